@@ -3,8 +3,10 @@ package com.azkar.configs;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.exceptions.BadRequestException;
 import com.azkar.payload.exceptions.DefaultExceptionResponse;
+import com.azkar.payload.exceptions.ServiceUnavailableException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -14,6 +16,7 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 public class ExceptionHandlingConfig {
 
   private static final Logger logger = LoggerFactory.getLogger(ExceptionHandlingConfig.class);
+  private static final String RETRY_AFTER_SECONDS = "1";
 
   @ExceptionHandler
   public ResponseEntity<DefaultExceptionResponse> handleException(Exception e) {
@@ -21,6 +24,12 @@ public class ExceptionHandlingConfig {
     if (e instanceof BadRequestException) {
       response.setStatus(((BadRequestException) e).error);
       return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    } else if (e instanceof ServiceUnavailableException) {
+      // Shed quickly so that the client retries later instead of waiting.
+      response.setStatus(((ServiceUnavailableException) e).error);
+      return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+          .header(HttpHeaders.RETRY_AFTER, RETRY_AFTER_SECONDS)
+          .body(response);
     } else {
       logger.error(e.getMessage(), e);
       response.setStatus(new Status(Status.DEFAULT_ERROR));
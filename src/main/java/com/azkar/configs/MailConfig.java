@@ -4,26 +4,30 @@ import java.util.Properties;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 @Configuration
 public class MailConfig {
 
-  @Value("${MAIL_HOST}")
+  @Value("${mail-host}")
   private String mailHost;
 
-  @Value("${MAIL_PORT}")
+  @Value("${mail-port}")
   private int mailPort;
 
-  @Value("${MAIL_USERNAME}")
+  @Value("${mail-username}")
   private String mailUsername;
 
-  @Value("${MAIL_PASSWORD}")
+  @Value("${mail-password}")
   private String mailPassword;
 
+  @Value("${mail-smtp-timeout-millis}")
+  private String mailSmtpTimeoutMillis;
+
+  // The emails are sent over the connections of SmtpTransportPool, which uses the session and
+  // server of this sender.
   @Bean
-  public JavaMailSender javaMailService() {
+  public JavaMailSenderImpl javaMailService() {
     JavaMailSenderImpl javaMailSender = new JavaMailSenderImpl();
 
     javaMailSender.setHost(mailHost);
@@ -40,6 +44,10 @@ public class MailConfig {
     Properties properties = new Properties();
     properties.setProperty("mail.transport.protocol", "smtp");
     properties.setProperty("mail.smtp.starttls.enable", "true");
+    // Without timeouts, a sender thread waits forever for an unresponsive server.
+    properties.setProperty("mail.smtp.connectiontimeout", mailSmtpTimeoutMillis);
+    properties.setProperty("mail.smtp.timeout", mailSmtpTimeoutMillis);
+    properties.setProperty("mail.smtp.writetimeout", mailSmtpTimeoutMillis);
     return properties;
   }
 }
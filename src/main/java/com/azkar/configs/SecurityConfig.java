@@ -1,18 +1,19 @@
 package com.azkar.configs;
 
+import com.azkar.configs.authentication.BoundedPasswordEncoder;
 import com.azkar.configs.authentication.JwtAuthenticationFilter;
 import com.azkar.controllers.AppLinkController;
 import com.azkar.controllers.PrivacyLinkController;
 import com.azkar.controllers.authenticationcontroller.ApiAuthenticationController;
 import com.azkar.controllers.authenticationcontroller.WebAuthenticationController;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -44,6 +45,14 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
   @Autowired
   JwtAuthenticationFilter jwtAuthenticationFilter;
 
+  // Every hash takes about 2^strength BCrypt rounds, so the strength trades off the time to
+  // crack a leaked hash against the CPU time of every login and registration.
+  @Value("${password-hashing-bcrypt-strength}")
+  public int bcryptStrength;
+
+  @Value("${password-hashing-queue-capacity}")
+  public int passwordHashingQueueCapacity;
+
   @Override
   protected void configure(HttpSecurity http) throws Exception {
     http.authorizeRequests()
@@ -73,7 +82,8 @@ public class SecurityConfig extends WebSecurityConfigurerAdapter {
   }
 
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public BoundedPasswordEncoder passwordEncoder() {
+    return new BoundedPasswordEncoder(new BCryptPasswordEncoder(bcryptStrength),
+        Runtime.getRuntime().availableProcessors(), passwordHashingQueueCapacity);
   }
 }
@@ -0,0 +1,126 @@
+package com.azkar.configs.authentication;
+
+import com.azkar.payload.ResponseBase.Status;
+import com.azkar.payload.exceptions.ServiceUnavailableException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * Hashes and checks passwords on a dedicated pool of {@code threadsCount} threads, so that at most
+ * that many CPU-heavy BCrypt computations run at the same time and the rest of the endpoints keep
+ * getting CPU time during bursts of logins and registrations.
+ *
+ * <p>At most {@code queueCapacity} computations wait for a thread. Computations requested while
+ * the queue is full fail right away with a {@link ServiceUnavailableException}, which is returned
+ * to the client as a 503, instead of making the request wait behind all of them.
+ */
+public class BoundedPasswordEncoder implements PasswordEncoder {
+
+  private static final Logger logger = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+  private static final String THREAD_NAME_PREFIX = "password-hashing-";
+  private static final long STATISTICS_LOGGING_DELAY_MILLIS = 60 * 1000;
+
+  private final PasswordEncoder delegate;
+  private final ThreadPoolExecutor executor;
+
+  // Counted since the statistics were last logged.
+  private final AtomicLong computationsCount = new AtomicLong();
+  private final AtomicLong computationNanos = new AtomicLong();
+  private final AtomicLong waitNanos = new AtomicLong();
+  private final AtomicLong rejectedCount = new AtomicLong();
+
+  public BoundedPasswordEncoder(PasswordEncoder delegate, int threadsCount, int queueCapacity) {
+    this.delegate = delegate;
+    CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(THREAD_NAME_PREFIX);
+    threadFactory.setDaemon(true);
+    executor = new ThreadPoolExecutor(threadsCount, threadsCount, 0, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(queueCapacity), threadFactory);
+  }
+
+  @Override
+  public String encode(CharSequence rawPassword) {
+    return compute(() -> delegate.encode(rawPassword));
+  }
+
+  @Override
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return compute(() -> delegate.matches(rawPassword, encodedPassword));
+  }
+
+  @Override
+  public boolean upgradeEncoding(String encodedPassword) {
+    // Doesn't hash anything.
+    return delegate.upgradeEncoding(encodedPassword);
+  }
+
+  // The number of computations waiting for a thread.
+  public int getQueueDepth() {
+    return executor.getQueue().size();
+  }
+
+  @Scheduled(fixedDelay = STATISTICS_LOGGING_DELAY_MILLIS)
+  public void logStatistics() {
+    long count = computationsCount.getAndSet(0);
+    long rejected = rejectedCount.getAndSet(0);
+    long computationMillis = TimeUnit.NANOSECONDS.toMillis(computationNanos.getAndSet(0));
+    long waitMillis = TimeUnit.NANOSECONDS.toMillis(waitNanos.getAndSet(0));
+    if (count == 0 && rejected == 0) {
+      return;
+    }
+    long averageComputationMillis = count == 0 ? 0 : computationMillis / count;
+    long averageWaitMillis = count == 0 ? 0 : waitMillis / count;
+    logger.info("Computed {} password hashes taking {} ms on average after waiting {} ms on "
+            + "average, rejected {}, {} waiting now", count, averageComputationMillis,
+        averageWaitMillis, rejected, getQueueDepth());
+  }
+
+  // Called by Spring when the application stops.
+  public void shutdown() {
+    executor.shutdownNow();
+  }
+
+  private <T> T compute(Callable<T> computation) {
+    long queuedAtNanos = System.nanoTime();
+    Future<T> future;
+    try {
+      future = executor.submit(() -> {
+        long startNanos = System.nanoTime();
+        waitNanos.addAndGet(startNanos - queuedAtNanos);
+        try {
+          return computation.call();
+        } finally {
+          computationNanos.addAndGet(System.nanoTime() - startNanos);
+          computationsCount.incrementAndGet();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      rejectedCount.incrementAndGet();
+      logger.warn("Rejected a password hash since {} are already waiting", getQueueDepth());
+      throw new ServiceUnavailableException(new Status(Status.SERVER_BUSY_ERROR));
+    }
+
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(/* mayInterruptIfRunning= */ true);
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for a password hash", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+package com.azkar.configs.authentication;
+
+import com.azkar.entities.User;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserChallengesOfType;
+import com.azkar.payload.ResponseBase.Status;
+import com.azkar.payload.exceptions.BadRequestException;
+import com.azkar.repos.UserRepo;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+/**
+ * Loads the user making the current request lazily and at most once per requested shape (a view,
+ * the challenges of one type or the whole document). The JwtAuthenticationFilter doesn't read the
+ * user from the database, so this is the only place in which the current user is loaded during a
+ * request.
+ *
+ * <p>Note: This is request-scoped so it must only be used from the request thread and not from
+ * {@code @Async} methods.
+ */
+@Component
+@RequestScope
+public class CurrentUserHolder {
+
+  @Autowired
+  private UserRepo userRepo;
+
+  private User user;
+  private boolean userExists;
+  private final Map<Class<?>, Object> views = new HashMap<>();
+  private final Map<ChallengeType, UserChallengesOfType<?>> challengesOfType =
+      new EnumMap<>(ChallengeType.class);
+
+  public UserPrincipal getPrincipal() {
+    return (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+  }
+
+  public String getUserId() {
+    return getPrincipal().getUserId();
+  }
+
+  /**
+   * Same as {@link #getUserId()} but also makes sure that the user was not deleted. Use it in
+   * requests that write data of the current user without loading them first.
+   */
+  public String getExistingUserId() {
+    if (!userExists) {
+      boolean userLoaded = user != null || !views.isEmpty() || !challengesOfType.isEmpty();
+      if (!userLoaded && !userRepo.existsById(getUserId())) {
+        throw userNotFound();
+      }
+      userExists = true;
+    }
+    return getUserId();
+  }
+
+  public User getUser() {
+    if (user == null) {
+      user = orUserNotFound(userRepo.findById(getUserId()));
+    }
+    return user;
+  }
+
+  public <V> V getView(Class<V> view) {
+    Object cachedView = views.get(view);
+    if (cachedView == null) {
+      cachedView = orUserNotFound(userRepo.findViewById(getUserId(), view));
+      views.put(view, cachedView);
+    }
+    return view.cast(cachedView);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T extends ChallengeBase> UserChallengesOfType<T> getChallenges(
+      ChallengeType challengeType) {
+    UserChallengesOfType<?> cachedChallenges = challengesOfType.get(challengeType);
+    if (cachedChallenges == null) {
+      cachedChallenges =
+          orUserNotFound(userRepo.<T>findChallengesOfType(getUserId(), challengeType));
+      challengesOfType.put(challengeType, cachedChallenges);
+    }
+    return (UserChallengesOfType<T>) cachedChallenges;
+  }
+
+  // The token of a deleted user may still be valid since the user is not loaded while
+  // authenticating the request.
+  private static <T> T orUserNotFound(Optional<T> value) {
+    return value.orElseThrow(CurrentUserHolder::userNotFound);
+  }
+
+  private static BadRequestException userNotFound() {
+    return new BadRequestException(new Status(Status.USER_NOT_FOUND_ERROR));
+  }
+}
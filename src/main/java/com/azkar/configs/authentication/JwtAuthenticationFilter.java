@@ -2,12 +2,11 @@ package com.azkar.configs.authentication;
 
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.exceptions.TokenExpiredException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.azkar.configs.SecurityConfig;
-import com.azkar.entities.User;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.authenticationcontroller.responses.UnauthenticatedResponse;
 import com.azkar.services.JwtService;
-import com.azkar.services.UserService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
 import java.util.Arrays;
@@ -32,8 +31,6 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
   private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
   @Autowired
   JwtService jwtService;
-  @Autowired
-  private UserService userService;
 
   @Override
   protected void doFilterInternal(
@@ -63,13 +60,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     logger.info(String.format("Token used for authentication is: %s", token));
 
     try {
-      String userId = jwtService.getVerifier().verify(token).getSubject();
-      populateSecurityContextWithUser(userId);
+      populateSecurityContextWithUser(jwtService.getVerifier().verify(token));
       filterChain.doFilter(httpServletRequest, httpServletResponse);
     } catch (TokenExpiredException exception) {
       logger.info("Token used is expired.");
-      String userId = jwtService.decode(token).getSubject();
-      populateSecurityContextWithUser(userId);
+      populateSecurityContextWithUser(jwtService.decode(token));
       filterChain.doFilter(httpServletRequest, httpServletResponse);
     } catch (JWTVerificationException exception) {
       logger.info("Token used is invalid.");
@@ -77,19 +72,18 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     }
   }
 
-  private void populateSecurityContextWithUser(String userId) {
-    User currentUser = userService.loadUserById(userId);
-    if (currentUser != null) {
-      UserPrincipal userPrincipal = new UserPrincipal();
-      userPrincipal.setUserId(userId);
-      userPrincipal.setUsername(currentUser.getUsername());
-      logger.info(String.format("The username of the requesting user: %s",
-          currentUser.getUsername()));
-      Authentication authToken =
-          new PreAuthenticatedAuthenticationToken(
-              userPrincipal, null, userPrincipal.getAuthorities());
-      SecurityContextHolder.getContext().setAuthentication(authToken);
-    }
+  // The user is not loaded from the database here. Controllers load only what they need through
+  // the CurrentUserHolder.
+  private void populateSecurityContextWithUser(DecodedJWT decodedJwt) {
+    UserPrincipal userPrincipal = new UserPrincipal();
+    userPrincipal.setUserId(decodedJwt.getSubject());
+    userPrincipal.setUsername(jwtService.getUsername(decodedJwt));
+    logger.info(String.format("The requesting user: %s (%s)", userPrincipal.getUserId(),
+        userPrincipal.getUsername()));
+    Authentication authToken =
+        new PreAuthenticatedAuthenticationToken(
+            userPrincipal, null, userPrincipal.getAuthorities());
+    SecurityContextHolder.getContext().setAuthentication(authToken);
   }
 
   private boolean uriMatchesAnyPattern(String uri, String[] patterns) {
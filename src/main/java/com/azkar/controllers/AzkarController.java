@@ -2,20 +2,23 @@ package com.azkar.controllers;
 
 import com.azkar.configs.AzkarCacher;
 import com.azkar.configs.CategoriesCacher;
-import com.azkar.entities.Category;
-import com.azkar.entities.Zekr;
+import com.azkar.payload.PreSerializedResponse;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.azkarcontroller.responses.GetAzkarResponse;
 import com.azkar.payload.azkarcontroller.responses.GetCategoriesResponse;
-import java.util.List;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import javax.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 // TODO(issue/238): Remove GET /azkar and rename this class
 @RestController
@@ -29,32 +32,62 @@ public class AzkarController extends BaseController {
   @Autowired
   CategoriesCacher categoriesCacher;
 
+  @Autowired
+  ObjectMapper objectMapper;
+
+  // The azkar and categories never change while the server is running, so their responses are
+  // serialized once instead of on every request.
+  private PreSerializedResponse azkarResponse;
+  private PreSerializedResponse categoriesResponse;
+
+  @PostConstruct
+  public void serializeResponses() {
+    if (!azkarCacher.getAzkar().isEmpty()) {
+      GetAzkarResponse response = new GetAzkarResponse();
+      response.setData(azkarCacher.getAzkar());
+      azkarResponse = PreSerializedResponse.of(objectMapper, response);
+    }
+    if (!categoriesCacher.getCategories().isEmpty()) {
+      GetCategoriesResponse response = new GetCategoriesResponse();
+      response.setData(categoriesCacher.getCategories());
+      categoriesResponse = PreSerializedResponse.of(objectMapper, response);
+    }
+  }
+
   @GetMapping(path = "/azkar", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<GetAzkarResponse> getAzkar() {
-    GetAzkarResponse response = new GetAzkarResponse();
-    List<Zekr> azkar = azkarCacher.getAzkar();
-    if (azkar.isEmpty()) {
+  public ResponseEntity<?> getAzkar(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      WebRequest webRequest) {
+    if (azkarResponse == null) {
       logger.error("Can't retrieve azkar");
+      GetAzkarResponse response = new GetAzkarResponse();
       response.setStatus(new Status(Status.DEFAULT_ERROR));
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
 
-    response.setData(azkar);
-    return ResponseEntity.ok(response);
+    // Clients that already have the same azkar don't get them again.
+    if (webRequest.checkNotModified(azkarResponse.getEtag())) {
+      return notModified(azkarResponse.getEtag());
+    }
+    return azkarResponse.toResponseEntity(acceptEncoding);
   }
 
   @GetMapping(path = "/categories", produces = MediaType.APPLICATION_JSON_VALUE)
-  public ResponseEntity<GetCategoriesResponse> getCategories() {
-    GetCategoriesResponse response = new GetCategoriesResponse();
-    List<Category> categories = categoriesCacher.getCategories();
-    if (categories.isEmpty()) {
+  public ResponseEntity<?> getCategories(
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      WebRequest webRequest) {
+    if (categoriesResponse == null) {
       logger.error("Can't retrieve categories");
+      GetCategoriesResponse response = new GetCategoriesResponse();
       response.setStatus(new Status(Status.DEFAULT_ERROR));
       return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
     }
 
-    response.setData(categories);
-    return ResponseEntity.ok(response);
+    // Clients that already have the same categories don't get them again.
+    if (webRequest.checkNotModified(categoriesResponse.getEtag())) {
+      return notModified(categoriesResponse.getEtag());
+    }
+    return categoriesResponse.toResponseEntity(acceptEncoding);
   }
 
 }
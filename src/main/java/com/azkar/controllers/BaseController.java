@@ -1,19 +1,101 @@
 package com.azkar.controllers;
 
+import com.azkar.configs.authentication.CurrentUserHolder;
 import com.azkar.configs.authentication.UserPrincipal;
+import com.azkar.entities.Friendship;
 import com.azkar.entities.User;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserChallengesOfType;
+import com.azkar.payload.ResponseBase.Status;
+import com.azkar.payload.exceptions.BadRequestException;
+import com.azkar.repos.FriendshipRepo;
+import com.azkar.repos.HomeFeedRepo;
 import com.azkar.repos.UserRepo;
-import org.springframework.security.core.context.SecurityContextHolder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 
 public class BaseController {
 
   public static final String API_VERSION_HEADER = "api-version";
 
+  @Autowired
+  private CurrentUserHolder currentUserHolder;
+
   protected UserPrincipal getCurrentUser() {
-    return (UserPrincipal) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+    return currentUserHolder.getPrincipal();
+  }
+
+  /**
+   * Returns the ID of the current user after making sure that the user was not deleted, since
+   * their token may still be valid. Prefer this over {@link #getCurrentUser()} when writing data
+   * of the current user without loading them.
+   */
+  protected String getExistingCurrentUserId() {
+    return currentUserHolder.getExistingUserId();
+  }
+
+  /**
+   * Loads the friendship of the current user, which is deleted with the user.
+   */
+  protected Friendship getCurrentUserFriendship(FriendshipRepo friendshipRepo) {
+    Friendship friendship = friendshipRepo.findByUserId(getCurrentUser().getUserId());
+    if (friendship == null) {
+      throw new BadRequestException(new Status(Status.USER_NOT_FOUND_ERROR));
+    }
+    return friendship;
   }
 
+  /**
+   * Loads the whole document of the current user. The document is loaded at most once per
+   * request.
+   */
   protected User getCurrentUser(UserRepo userRepo) {
-    return userRepo.findById(getCurrentUser().getUserId()).get();
+    return currentUserHolder.getUser();
+  }
+
+  /**
+   * Loads only the fields of the current user declared in {@code view}. Prefer this over {@link
+   * #getCurrentUser(UserRepo)} whenever the endpoint doesn't need the user challenges.
+   */
+  protected <V> V getCurrentUser(Class<V> view) {
+    return currentUserHolder.getView(view);
+  }
+
+  /**
+   * Loads the summary of the current user and only their challenges of {@code challengeType}.
+   */
+  protected <T extends ChallengeBase> UserChallengesOfType<T> getCurrentUserChallenges(
+      ChallengeType challengeType) {
+    return currentUserHolder.getChallenges(challengeType);
+  }
+
+  /**
+   * Returns a strong ETag of {@code resource} as returned to the current user for {@code
+   * apiVersion}, for resources built from the challenges, friendship and groups of the user. It
+   * is read from the home feed of the user without loading the user, and is empty if the user
+   * doesn't have a home feed yet.
+   */
+  protected Optional<String> getCurrentUserDataETag(HomeFeedRepo homeFeedRepo, String resource,
+      String apiVersion) {
+    String userId = getCurrentUser().getUserId();
+    return homeFeedRepo.findDataVersion(userId).map(homeFeed -> toETag(String.join(":",
+        resource,
+        userId,
+        String.valueOf(homeFeed.getDataVersion()),
+        String.valueOf(homeFeed.countExpiredChallenges()),
+        String.valueOf(apiVersion))));
+  }
+
+  private static String toETag(String content) {
+    return DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8));
+  }
+
+  protected static <T> ResponseEntity<T> notModified(String etag) {
+    return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
   }
 }
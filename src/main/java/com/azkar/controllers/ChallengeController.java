@@ -8,12 +8,17 @@ import com.azkar.entities.User;
 import com.azkar.entities.User.UserGroup;
 import com.azkar.entities.challenges.AzkarChallenge;
 import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
 import com.azkar.entities.challenges.CustomSimpleChallenge;
 import com.azkar.entities.challenges.GlobalChallenge;
 import com.azkar.entities.challenges.MeaningChallenge;
 import com.azkar.entities.challenges.MemorizationChallenge;
 import com.azkar.entities.challenges.MemorizationChallenge.Question;
 import com.azkar.entities.challenges.ReadingQuranChallenge;
+import com.azkar.entities.views.UserChallengesOfType;
+import com.azkar.entities.views.UserCounters;
+import com.azkar.entities.views.UserSummary;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.challengecontroller.requests.AddAzkarChallengeRequest;
 import com.azkar.payload.challengecontroller.requests.AddChallengeRequest;
@@ -47,11 +52,14 @@ import com.azkar.repos.CustomSimpleChallengeRepo;
 import com.azkar.repos.FriendshipRepo;
 import com.azkar.repos.GlobalChallengeRepo;
 import com.azkar.repos.GroupRepo;
+import com.azkar.repos.HomeFeedRepo;
 import com.azkar.repos.MeaningChallengeRepo;
 import com.azkar.repos.MemorizationChallengeRepo;
 import com.azkar.repos.ReadingQuranChallengeRepo;
 import com.azkar.repos.UserRepo;
+import com.azkar.services.ChallengeFanOutService;
 import com.azkar.services.ChallengesService;
+import com.azkar.services.GroupsService;
 import com.azkar.services.NotificationsService;
 import com.azkar.services.QuranService;
 import java.time.Instant;
@@ -80,6 +88,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping(path = "/challenges", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -94,6 +103,8 @@ public class ChallengeController extends BaseController {
   @Autowired
   private UserRepo userRepo;
   @Autowired
+  private HomeFeedRepo homeFeedRepo;
+  @Autowired
   private AzkarChallengeRepo azkarChallengeRepo;
   @Autowired
   private GlobalChallengeRepo globalChallengeRepo;
@@ -108,6 +119,8 @@ public class ChallengeController extends BaseController {
   @Autowired
   private GroupRepo groupRepo;
   @Autowired
+  private GroupsService groupsService;
+  @Autowired
   private FriendshipRepo friendshipRepo;
   @Autowired
   private TafseerCacher tafseerCacher;
@@ -115,6 +128,8 @@ public class ChallengeController extends BaseController {
   private ChallengesService challengesService;
   @Autowired
   private QuranService quranService;
+  @Autowired
+  private ChallengeFanOutService challengeFanOutService;
 
 
   public static ArrayList<WordMeaningPair> getWordMeaningPairs(TafseerCacher tafseerCacher,
@@ -206,13 +221,9 @@ public class ChallengeController extends BaseController {
   public ResponseEntity<GetChallengeResponse> getChallenge(
       @PathVariable(value = "challengeId") String challengeId) {
     GetChallengeResponse response = new GetChallengeResponse();
-    Optional<AzkarChallenge> userChallenge = getCurrentUser(userRepo).getAzkarChallenges()
-        .stream()
-        .filter(
-            challenge -> challenge.getId()
-                .equals(
-                    challengeId))
-        .findFirst();
+    Optional<AzkarChallenge> userChallenge =
+        this.<AzkarChallenge>getCurrentUserChallenges(ChallengeType.AZKAR)
+            .findChallenge(challengeId);
     if (!userChallenge.isPresent()) {
       response.setStatus(new Status(Status.CHALLENGE_NOT_FOUND_ERROR));
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -226,13 +237,8 @@ public class ChallengeController extends BaseController {
       @PathVariable(value = "challengeId") String challengeId) {
     GetMeaningChallengeResponse response = new GetMeaningChallengeResponse();
     Optional<MeaningChallenge> userMeaningChallenge =
-        getCurrentUser(userRepo).getMeaningChallenges()
-            .stream()
-            .filter(
-                challenge -> challenge.getId()
-                    .equals(
-                        challengeId))
-            .findFirst();
+        this.<MeaningChallenge>getCurrentUserChallenges(ChallengeType.MEANING)
+            .findChallenge(challengeId);
     if (!userMeaningChallenge.isPresent()) {
       response.setStatus(new Status(Status.CHALLENGE_NOT_FOUND_ERROR));
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
@@ -245,14 +251,15 @@ public class ChallengeController extends BaseController {
   public ResponseEntity<GetChallengeResponse> getOriginalChallenge(
       @PathVariable(value = "challengeId") String challengeId) {
     GetChallengeResponse response = new GetChallengeResponse();
-    Optional<AzkarChallenge> userChallenge = getCurrentUser(userRepo).getAzkarChallenges()
+    User currentUser = getCurrentUser(userRepo);
+    Optional<AzkarChallenge> userChallenge = currentUser.getAzkarChallenges()
         .stream()
         .filter(
             challenge -> challenge.getId()
                 .equals(
                     challengeId))
         .findFirst();
-    Optional<AzkarChallenge> personalChallenge = getCurrentUser(userRepo).getPersonalChallenges()
+    Optional<AzkarChallenge> personalChallenge = currentUser.getPersonalChallenges()
         .stream()
         .filter(
             challenge -> challenge.getId()
@@ -323,35 +330,31 @@ public class ChallengeController extends BaseController {
       response.setStatus(new Status(Status.NOT_GROUP_MEMBER_ERROR));
       return ResponseEntity.status(HttpStatus.FORBIDDEN).body(response);
     }
-    User currentUser = getCurrentUser(userRepo);
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
     AzkarChallenge challenge = req.getChallenge().toBuilder()
         .creatingUserId(currentUser.getId())
         .build();
     azkarChallengeRepo.save(challenge);
 
-    group.get().getChallengesIds().add(challenge.getId());
-    groupRepo.save(group.get());
+    groupsService.addChallenge(group.get().getId(), challenge.getId());
 
     List<String> groupUsersIds = group.get().getUsersIds();
-    Iterable<User> affectedUsers = userRepo.findAllById(groupUsersIds);
-    affectedUsers.forEach(user -> user.getAzkarChallenges().add(challenge));
-    affectedUsers.forEach(affectedUser -> {
-      if (!affectedUser.getId().equals(currentUser.getId())) {
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += currentUser.getFirstName();
-        body += " ";
-        body += currentUser.getLastName();
-        body += " (";
-
-        body += challenge.getName();
-        body += ")";
-        notificationsService.sendNotificationToUser(affectedUser, "لديك تحدٍ جديد",
-            body);
-      }
-    });
-    userRepo.saveAll(affectedUsers);
+    userRepo.addChallenge(groupUsersIds, ChallengeType.AZKAR, challenge);
+    List<String> otherMembersIds = groupUsersIds.stream()
+        .filter(userId -> !userId.equals(currentUser.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += currentUser.getFirstName();
+    body += " ";
+    body += currentUser.getLastName();
+    body += " (";
+
+    body += challenge.getName();
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "لديك تحدٍ جديد", body);
 
     response.setData(challenge);
     return ResponseEntity.ok(response);
@@ -371,7 +374,7 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    User currentUser = getCurrentUser(userRepo);
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
 
     if (request.getFriendsIds().size() < 2) {
       response.setStatus(new Status(Status.LESS_THAN_TWO_FRIENDS_ARE_PROVIDED_ERROR));
@@ -408,33 +411,26 @@ public class ChallengeController extends BaseController {
         .groupId(newGroup.getId())
         .build();
 
-    newGroup.getChallengesIds().add(challenge.getId());
-
-    Iterable<User> affectedUsers = userRepo.findAllById(groupMembers);
-    affectedUsers.forEach(user -> {
-      user.getAzkarChallenges().add(challenge);
-    });
-
-    userRepo.saveAll(affectedUsers);
     groupRepo.save(newGroup);
+    groupsService.addChallenge(newGroup.getId(), challenge.getId());
     azkarChallengeRepo.save(challenge);
+    userRepo.addChallenge(groupMembers, ChallengeType.AZKAR, challenge);
 
-    affectedUsers.forEach(affectedUser -> {
-      if (!affectedUser.getId().equals(currentUser.getId())) {
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += currentUser.getFirstName();
-        body += " ";
-        body += currentUser.getLastName();
-        body += " (";
-
-        body += challenge.getName();
-        body += ")";
-        notificationsService.sendNotificationToUser(affectedUser, "لديك تحدٍ جديد",
-            body);
-      }
-    });
+    List<String> otherMembersIds = groupMembers.stream()
+        .filter(userId -> !userId.equals(currentUser.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += currentUser.getFirstName();
+    body += " ";
+    body += currentUser.getLastName();
+    body += " (";
+
+    body += challenge.getName();
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "لديك تحدٍ جديد", body);
 
     response.setData(challenge);
     return ResponseEntity.ok(response);
@@ -452,7 +448,7 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    User currentUser = getCurrentUser(userRepo);
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
 
     // TODO(issue#328): Reuse the friend group to associate new MeaningChallenges
     HashSet<String> friendsIds = getUserFriends(currentUser);
@@ -491,33 +487,26 @@ public class ChallengeController extends BaseController {
         .finished(false)
         .build();
 
-    newGroup.getChallengesIds().add(challenge.getId());
-
-    Iterable<User> affectedUsers = userRepo.findAllById(groupMembers);
-    affectedUsers.forEach(user -> {
-      user.getMeaningChallenges().add(challenge);
-    });
-
-    userRepo.saveAll(affectedUsers);
     groupRepo.save(newGroup);
+    groupsService.addChallenge(newGroup.getId(), challenge.getId());
     meaningChallengeRepo.save(challenge);
+    userRepo.addChallenge(groupMembers, ChallengeType.MEANING, challenge);
 
-    affectedUsers.forEach(affectedUser -> {
-      if (!affectedUser.getId().equals(currentUser.getId())) {
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += currentUser.getFirstName();
-        body += " ";
-        body += currentUser.getLastName();
-        body += " (";
-
-        body += "معاني كلمات القرآن";
-        body += ")";
-        notificationsService.sendNotificationToUser(affectedUser, "لديك تحدٍ جديد",
-            body);
-      }
-    });
+    List<String> otherMembersIds = groupMembers.stream()
+        .filter(userId -> !userId.equals(currentUser.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += currentUser.getFirstName();
+    body += " ";
+    body += currentUser.getLastName();
+    body += " (";
+
+    body += "معاني كلمات القرآن";
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "لديك تحدٍ جديد", body);
 
     response.setData(challenge);
     return ResponseEntity.ok(response);
@@ -535,7 +524,7 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    User currentUser = getCurrentUser(userRepo);
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
 
     // TODO(issue#328): Reuse the friend group to associate new Memorization challenges
     HashSet<String> friendsIds = getUserFriends(currentUser);
@@ -564,33 +553,26 @@ public class ChallengeController extends BaseController {
 
     MemorizationChallenge challenge = createMemorizationChallenge(request, currentUser, newGroup);
 
-    newGroup.getChallengesIds().add(challenge.getId());
-
-    Iterable<User> affectedUsers = userRepo.findAllById(groupMembers);
-    affectedUsers.forEach(user -> {
-      user.getMemorizationChallenges().add(challenge);
-    });
-
-    userRepo.saveAll(affectedUsers);
     groupRepo.save(newGroup);
+    groupsService.addChallenge(newGroup.getId(), challenge.getId());
     memorizationChallengeRepo.save(challenge);
+    userRepo.addChallenge(groupMembers, ChallengeType.MEMORIZATION, challenge);
 
-    affectedUsers.forEach(affectedUser -> {
-      if (!affectedUser.getId().equals(currentUser.getId())) {
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += currentUser.getFirstName();
-        body += " ";
-        body += currentUser.getLastName();
-        body += " (";
-
-        body += "اختبار حفظ قرآن";
-        body += ")";
-        notificationsService.sendNotificationToUser(affectedUser, "لديك تحدٍ جديد",
-            body);
-      }
-    });
+    List<String> otherMembersIds = groupMembers.stream()
+        .filter(userId -> !userId.equals(currentUser.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += currentUser.getFirstName();
+    body += " ";
+    body += currentUser.getLastName();
+    body += " (";
+
+    body += "اختبار حفظ قرآن";
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "لديك تحدٍ جديد", body);
 
     response.setData(challenge);
     return ResponseEntity.ok(response);
@@ -608,7 +590,7 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    User currentUser = getCurrentUser(userRepo);
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
     HashSet<String> friendsIds = getUserFriends(currentUser);
     boolean allValidFriends =
         request.getFriendsIds().stream().allMatch(id -> friendsIds.contains(id));
@@ -633,45 +615,44 @@ public class ChallengeController extends BaseController {
         .finished(false)
         .build();
 
-    newGroup.getChallengesIds().add(challenge.getId());
-
-    Iterable<User> affectedUsers = userRepo.findAllById(groupMembers);
-    affectedUsers.forEach(user -> {
-      user.getReadingQuranChallenges().add(challenge);
-    });
-
-    userRepo.saveAll(affectedUsers);
     groupRepo.save(newGroup);
+    groupsService.addChallenge(newGroup.getId(), challenge.getId());
     readingQuranChallengeRepo.save(challenge);
+    userRepo.addChallenge(groupMembers, ChallengeType.READING_QURAN, challenge);
 
-    affectedUsers.forEach(affectedUser -> {
-      if (!affectedUser.getId().equals(currentUser.getId())) {
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += currentUser.getFirstName();
-        body += " ";
-        body += currentUser.getLastName();
-        body += " (";
-
-        body += "قراءة قرآن";
-        body += ")";
-        notificationsService.sendNotificationToUser(affectedUser, "لديك تحدٍ جديد",
-            body);
-      }
-    });
+    List<String> otherMembersIds = groupMembers.stream()
+        .filter(userId -> !userId.equals(currentUser.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += currentUser.getFirstName();
+    body += " ";
+    body += currentUser.getLastName();
+    body += " (";
+
+    body += "قراءة قرآن";
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "لديك تحدٍ جديد", body);
 
     response.setData(challenge);
     return ResponseEntity.ok(response);
   }
 
-  // Returns all challenges with all types.
+  // Returns all challenges with all types. These are the same challenges as the ones in the home
+  // feed of the user, so the home feed tells whether they changed without loading the user.
   @GetMapping(path = "/v2")
   public ResponseEntity<GetChallengesV2Response> getAllChallengesV2(
-      @RequestHeader(value = API_VERSION_HEADER, required = false) String apiVersion) {
+      @RequestHeader(value = API_VERSION_HEADER, required = false) String apiVersion,
+      WebRequest webRequest) {
     if (apiVersion != null) {
       logger.info("API version requested is " + apiVersion);
     }
+    Optional<String> etag = getCurrentUserDataETag(homeFeedRepo, "challenges/v2", apiVersion);
+    if (etag.isPresent() && webRequest.checkNotModified(etag.get())) {
+      return notModified(etag.get());
+    }
 
     GetChallengesV2Response response = new GetChallengesV2Response();
     List<ReturnedChallenge> returnedChallenges = null;
@@ -690,7 +671,9 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(errorResponse);
     }
     response.setData(returnedChallenges);
-    return ResponseEntity.ok(response);
+    return etag.map(value -> ResponseEntity.ok().eTag(value))
+        .orElseGet(ResponseEntity::ok)
+        .body(response);
   }
 
   @GetMapping(path = "/groups/{groupId}/")
@@ -704,7 +687,8 @@ public class ChallengeController extends BaseController {
     }
 
     List<AzkarChallenge> challengesInGroup =
-        getCurrentUser(userRepo).getAzkarChallenges().stream()
+        this.<AzkarChallenge>getCurrentUserChallenges(ChallengeType.AZKAR).getChallenges()
+            .stream()
             .filter((challenge -> challenge.getGroupId().equals(groupId)))
             .collect(
                 Collectors.toList());
@@ -722,13 +706,11 @@ public class ChallengeController extends BaseController {
   public ResponseEntity<UpdateChallengeResponse> updateAzkarChallenge(
       @PathVariable(value = "challengeId") String challengeId,
       @RequestBody UpdateChallengeRequest request) {
-    User currentUser = getCurrentUser(userRepo);
-    Optional<AzkarChallenge> currentUserChallenge = currentUser.getAzkarChallenges()
-        .stream()
-        .filter(challenge -> challenge.getId()
-            .equals(
-                challengeId))
-        .findFirst();
+    UserChallengesOfType<AzkarChallenge> currentUserChallenges =
+        getCurrentUserChallenges(ChallengeType.AZKAR);
+    UserSummary currentUser = currentUserChallenges.getUser();
+    Optional<AzkarChallenge> currentUserChallenge =
+        currentUserChallenges.findChallenge(challengeId);
     if (!currentUserChallenge.isPresent()) {
       UpdateChallengeResponse response = new UpdateChallengeResponse();
       response.setStatus(new Status(Status.CHALLENGE_NOT_FOUND_ERROR));
@@ -742,8 +724,6 @@ public class ChallengeController extends BaseController {
     }
 
     List<SubChallenge> oldSubChallenges = currentUserChallenge.get().getSubChallenges();
-    boolean oldSubChallengesFinished =
-        oldSubChallenges.stream().allMatch(subChallenge -> (subChallenge.getRepetitions() == 0));
     Optional<ResponseEntity<UpdateChallengeResponse>> errorResponse = updateOldSubChallenges(
         oldSubChallenges, request.getNewChallenge().getSubChallenges());
     if (errorResponse.isPresent()) {
@@ -751,23 +731,19 @@ public class ChallengeController extends BaseController {
     }
     boolean newSubChallengesFinished =
         oldSubChallenges.stream().allMatch(subChallenge -> (subChallenge.getRepetitions() == 0));
-    if (newSubChallengesFinished && !oldSubChallengesFinished) {
+    // An update finishing the challenge is only written if the challenge is not finished yet, so
+    // out of concurrent requests finishing it, only one updates the scores and counts.
+    boolean updated = userRepo.updateAzkarChallengeSubChallenges(currentUser.getId(),
+        challengeId, oldSubChallenges);
+    if (newSubChallengesFinished && updated) {
       updateScoreInFriendships(currentUser, currentUserChallenge.get().getGroupId());
-      userRepo.save(currentUser);
 
       AzkarChallenge challenge = azkarChallengeRepo.findById(challengeId).get();
-      updateAzkarChallengeOnUserFinished(challenge, currentUser);
-      // Invalidate current user because it may have changed indirectly (by changing only the
-      // database instance) after calling updateChallengeOnUserFinished.
-      currentUser = userRepo.findById(currentUser.getId()).get();
-      currentUser
-          .setFinishedAzkarChallengesCount(currentUser.getFinishedAzkarChallengesCount() + 1);
-
-      challengesService
-          .sendNotificationOnFinishedAzkarChallenge(getCurrentUser(userRepo), challenge);
-      azkarChallengeRepo.save(challenge);
+      updateChallengeOnUserFinished(ChallengeType.AZKAR, challenge, currentUser);
+      userRepo.incrementFinishedChallengesCount(currentUser.getId(), ChallengeType.AZKAR);
+
+      challengesService.sendNotificationOnFinishedAzkarChallenge(currentUser, challenge);
     }
-    userRepo.save(currentUser);
 
     return ResponseEntity.ok(new UpdateChallengeResponse());
   }
@@ -775,13 +751,11 @@ public class ChallengeController extends BaseController {
   @PutMapping(path = "/finish/meaning/{challengeId}")
   public ResponseEntity<FinishMeaningChallengeResponse> finishMeaningChallenge(
       @PathVariable(value = "challengeId") String challengeId) {
-    User currentUser = getCurrentUser(userRepo);
-    Optional<MeaningChallenge> currentUserChallenge = currentUser.getMeaningChallenges()
-        .stream()
-        .filter(challenge -> challenge.getId()
-            .equals(
-                challengeId))
-        .findFirst();
+    UserChallengesOfType<MeaningChallenge> currentUserChallenges =
+        getCurrentUserChallenges(ChallengeType.MEANING);
+    UserSummary currentUser = currentUserChallenges.getUser();
+    Optional<MeaningChallenge> currentUserChallenge =
+        currentUserChallenges.findChallenge(challengeId);
     if (!currentUserChallenge.isPresent()) {
       FinishMeaningChallengeResponse response = new FinishMeaningChallengeResponse();
       response.setStatus(new Status(Status.CHALLENGE_NOT_FOUND_ERROR));
@@ -800,22 +774,21 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
+    // The finished flag is set atomically so that two concurrent requests can't both finish the
+    // same challenge.
+    if (!userRepo.finishChallenge(currentUser.getId(), ChallengeType.MEANING, challengeId)) {
+      FinishMeaningChallengeResponse response = new FinishMeaningChallengeResponse();
+      response.setStatus(new Status(Status.CHALLENGE_HAS_ALREADY_BEEN_FINISHED));
+      return ResponseEntity.badRequest().body(response);
+    }
     currentUserChallenge.get().setFinished(true);
     updateScoreInFriendships(currentUser, currentUserChallenge.get().getGroupId());
-    userRepo.save(currentUser);
 
     MeaningChallenge challenge = meaningChallengeRepo.findById(challengeId).get();
-    updateMeaningChallengeOnUserFinished(challenge, currentUser);
-    // Invalidate current user because it may have changed indirectly (by changing only the
-    // database instance) after calling updateChallengeOnUserFinished.
-    currentUser = userRepo.findById(currentUser.getId()).get();
-    currentUser
-        .setFinishedMeaningChallengesCount(currentUser.getFinishedMeaningChallengesCount() + 1);
-
-    challengesService
-        .sendNotificationOnFinishedMeaningChallenge(getCurrentUser(userRepo), challenge);
-    meaningChallengeRepo.save(challenge);
-    userRepo.save(currentUser);
+    updateChallengeOnUserFinished(ChallengeType.MEANING, challenge, currentUser);
+    userRepo.incrementFinishedChallengesCount(currentUser.getId(), ChallengeType.MEANING);
+
+    challengesService.sendNotificationOnFinishedMeaningChallenge(currentUser, challenge);
 
     return ResponseEntity.ok(new FinishMeaningChallengeResponse());
   }
@@ -823,14 +796,11 @@ public class ChallengeController extends BaseController {
   @PutMapping(path = "/finish/reading_quran/{challengeId}")
   public ResponseEntity<FinishReadingQuranChallengeResponse> finishReadingQuranChallenge(
       @PathVariable(value = "challengeId") String challengeId) {
-    User currentUser = getCurrentUser(userRepo);
-    Optional<ReadingQuranChallenge> currentUserChallenge = currentUser.getReadingQuranChallenges()
-        .stream()
-        .filter(
-            challenge -> challenge.getId()
-                .equals(
-                    challengeId))
-        .findFirst();
+    UserChallengesOfType<ReadingQuranChallenge> currentUserChallenges =
+        getCurrentUserChallenges(ChallengeType.READING_QURAN);
+    UserSummary currentUser = currentUserChallenges.getUser();
+    Optional<ReadingQuranChallenge> currentUserChallenge =
+        currentUserChallenges.findChallenge(challengeId);
     if (!currentUserChallenge.isPresent()) {
       FinishReadingQuranChallengeResponse response = new FinishReadingQuranChallengeResponse();
       response.setStatus(new Status(Status.CHALLENGE_NOT_FOUND_ERROR));
@@ -849,22 +819,20 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
+    if (!userRepo.finishChallenge(currentUser.getId(), ChallengeType.READING_QURAN,
+        challengeId)) {
+      FinishReadingQuranChallengeResponse response = new FinishReadingQuranChallengeResponse();
+      response.setStatus(new Status(Status.CHALLENGE_HAS_ALREADY_BEEN_FINISHED));
+      return ResponseEntity.badRequest().body(response);
+    }
     currentUserChallenge.get().setFinished(true);
     updateScoreInFriendships(currentUser, currentUserChallenge.get().getGroupId());
-    userRepo.save(currentUser);
 
     ReadingQuranChallenge challenge = readingQuranChallengeRepo.findById(challengeId).get();
-    updateReadingQuranChallengeOnUserFinished(challenge, currentUser);
-    // Invalidate current user because it may have changed indirectly (by changing only the
-    // database instance) after calling updateChallengeOnUserFinished.
-    currentUser = userRepo.findById(currentUser.getId()).get();
-    currentUser.setFinishedReadingQuranChallengesCount(
-        currentUser.getFinishedReadingQuranChallengesCount() + 1);
-
-    challengesService.sendNotificationOnFinishedReadingQuranChallenge(getCurrentUser(userRepo),
-        challenge);
-    readingQuranChallengeRepo.save(challenge);
-    userRepo.save(currentUser);
+    updateChallengeOnUserFinished(ChallengeType.READING_QURAN, challenge, currentUser);
+    userRepo.incrementFinishedChallengesCount(currentUser.getId(), ChallengeType.READING_QURAN);
+
+    challengesService.sendNotificationOnFinishedReadingQuranChallenge(currentUser, challenge);
 
     return ResponseEntity.ok(new FinishReadingQuranChallengeResponse());
   }
@@ -874,14 +842,11 @@ public class ChallengeController extends BaseController {
   public ResponseEntity<FinishMemorizationChallengeQuestionResponse> finishMemorizationQuestion(
       @PathVariable(value = "challengeId") String challengeId,
       @PathVariable(value = "question") String question) {
-    User currentUser = getCurrentUser(userRepo);
-    Optional<MemorizationChallenge> currentUserChallenge = currentUser.getMemorizationChallenges()
-        .stream()
-        .filter(
-            challenge -> challenge.getId()
-                .equals(
-                    challengeId))
-        .findFirst();
+    UserChallengesOfType<MemorizationChallenge> currentUserChallenges =
+        getCurrentUserChallenges(ChallengeType.MEMORIZATION);
+    UserSummary currentUser = currentUserChallenges.getUser();
+    Optional<MemorizationChallenge> currentUserChallenge =
+        currentUserChallenges.findChallenge(challengeId);
     if (!currentUserChallenge.isPresent()) {
       FinishMemorizationChallengeQuestionResponse response =
           new FinishMemorizationChallengeQuestionResponse();
@@ -925,27 +890,24 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
+    if (!userRepo.finishMemorizationQuestion(currentUser.getId(), challengeId, questionNumber)) {
+      FinishMemorizationChallengeQuestionResponse response =
+          new FinishMemorizationChallengeQuestionResponse();
+      response.setStatus(new Status(Status.MEMORIZATION_QUESTION_HAS_ALREADY_BEEN_FINISHED));
+      return ResponseEntity.badRequest().body(response);
+    }
     currentUserChallenge.get().getQuestions().get(questionNumber).setFinished(true);
     if (!currentUserChallenge.get().finished()) {
-      userRepo.save(currentUser);
       return ResponseEntity.ok(new FinishMemorizationChallengeQuestionResponse());
     }
 
     updateScoreInFriendships(currentUser, currentUserChallenge.get().getGroupId());
-    userRepo.save(currentUser);
 
     MemorizationChallenge challenge = memorizationChallengeRepo.findById(challengeId).get();
-    updateMemorizationChallengeOnUserFinished(challenge, currentUser);
-    // Invalidate current user because it may have changed indirectly (by changing only the
-    // database instance) after calling updateChallengeOnUserFinished.
-    currentUser = userRepo.findById(currentUser.getId()).get();
-    currentUser.setFinishedMemorizationChallengesCount(
-        currentUser.getFinishedMemorizationChallengesCount() + 1);
-
-    challengesService.sendNotificationOnFinishedMemorizationChallenge(getCurrentUser(userRepo),
-        challenge);
-    memorizationChallengeRepo.save(challenge);
-    userRepo.save(currentUser);
+    updateChallengeOnUserFinished(ChallengeType.MEMORIZATION, challenge, currentUser);
+    userRepo.incrementFinishedChallengesCount(currentUser.getId(), ChallengeType.MEMORIZATION);
+
+    challengesService.sendNotificationOnFinishedMemorizationChallenge(currentUser, challenge);
 
     return ResponseEntity.ok(new FinishMemorizationChallengeQuestionResponse());
   }
@@ -962,12 +924,10 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
+    String currentUserId = getExistingCurrentUserId();
     globalChallengeRepo.findAndIncrementFinishedCountById(globalChallenges.get(0).getId());
 
-    User currentUser = getCurrentUser(userRepo);
-    currentUser
-        .setFinishedAzkarChallengesCount(currentUser.getFinishedAzkarChallengesCount() + 1);
-    userRepo.save(currentUser);
+    userRepo.incrementFinishedChallengesCount(currentUserId, ChallengeType.AZKAR);
 
     return ResponseEntity.ok(response);
   }
@@ -1030,21 +990,20 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
     if (azkarChallenge.isPresent()) {
-      user.getAzkarChallenges().removeIf(challenge -> challenge.getId().equals(challengeId));
+      userRepo.removeChallenge(user.getId(), ChallengeType.AZKAR, challengeId);
       response.setData(azkarChallenge.get());
     } else if (meaningChallenge.isPresent()) {
-      user.getMeaningChallenges().removeIf(challenge -> challenge.getId().equals(challengeId));
+      userRepo.removeChallenge(user.getId(), ChallengeType.MEANING, challengeId);
       response.setData(meaningChallenge.get());
     } else if (readingQuranChallenge.isPresent()) {
-      user.getReadingQuranChallenges().removeIf(challenge -> challenge.getId().equals(challengeId));
+      userRepo.removeChallenge(user.getId(), ChallengeType.READING_QURAN, challengeId);
       response.setData(readingQuranChallenge.get());
     } else if (memorizationChallenge.isPresent()) {
-      user.getMemorizationChallenges().removeIf(challenge -> challenge.getId().equals(challengeId));
+      userRepo.removeChallenge(user.getId(), ChallengeType.MEMORIZATION, challengeId);
       response.setData(memorizationChallenge.get());
     } else {
-      user.getCustomSimpleChallenges().removeIf(challenge -> challenge.getId().equals(challengeId));
+      userRepo.removeChallenge(user.getId(), ChallengeType.CUSTOM_SIMPLE, challengeId);
     }
-    userRepo.save(user);
     return ResponseEntity.ok(response);
   }
 
@@ -1060,7 +1019,7 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    User currentUser = getCurrentUser(userRepo);
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
     HashSet<String> friendsIds = getUserFriends(currentUser);
     boolean allValidFriends =
         request.getFriendsIds().stream().allMatch(id -> friendsIds.contains(id));
@@ -1087,33 +1046,26 @@ public class ChallengeController extends BaseController {
         .description(request.getDescription())
         .build();
 
-    newGroup.getChallengesIds().add(challenge.getId());
-
-    Iterable<User> affectedUsers = userRepo.findAllById(groupMembers);
-    affectedUsers.forEach(user -> {
-      user.getCustomSimpleChallenges().add(challenge);
-    });
-
-    userRepo.saveAll(affectedUsers);
     groupRepo.save(newGroup);
+    groupsService.addChallenge(newGroup.getId(), challenge.getId());
     customSimpleChallengeRepo.save(challenge);
+    userRepo.addChallenge(groupMembers, ChallengeType.CUSTOM_SIMPLE, challenge);
 
-    affectedUsers.forEach(affectedUser -> {
-      if (!affectedUser.getId().equals(currentUser.getId())) {
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += currentUser.getFirstName();
-        body += " ";
-        body += currentUser.getLastName();
-        body += " (";
-
-        body += challenge.getDescription();
-        body += ")";
-        notificationsService.sendNotificationToUser(affectedUser, "لديك تحدٍ جديد",
-            body);
-      }
-    });
+    List<String> otherMembersIds = groupMembers.stream()
+        .filter(userId -> !userId.equals(currentUser.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += currentUser.getFirstName();
+    body += " ";
+    body += currentUser.getLastName();
+    body += " (";
+
+    body += challenge.getDescription();
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "لديك تحدٍ جديد", body);
 
     response.setData(challenge);
     return ResponseEntity.ok(response);
@@ -1122,14 +1074,11 @@ public class ChallengeController extends BaseController {
   @PutMapping(path = "/finish/simple/{challengeId}")
   public ResponseEntity<FinishCustomSimpleChallengeResponse> finishCustomSimpleChallenge(
       @PathVariable(value = "challengeId") String challengeId) {
-    User currentUser = getCurrentUser(userRepo);
-    Optional<CustomSimpleChallenge> currentUserChallenge = currentUser.getCustomSimpleChallenges()
-        .stream()
-        .filter(
-            challenge -> challenge.getId()
-                .equals(
-                    challengeId))
-        .findFirst();
+    UserChallengesOfType<CustomSimpleChallenge> currentUserChallenges =
+        getCurrentUserChallenges(ChallengeType.CUSTOM_SIMPLE);
+    UserSummary currentUser = currentUserChallenges.getUser();
+    Optional<CustomSimpleChallenge> currentUserChallenge =
+        currentUserChallenges.findChallenge(challengeId);
     if (!currentUserChallenge.isPresent()) {
       FinishCustomSimpleChallengeResponse response = new FinishCustomSimpleChallengeResponse();
       response.setStatus(new Status(Status.CHALLENGE_NOT_FOUND_ERROR));
@@ -1148,22 +1097,20 @@ public class ChallengeController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
+    if (!userRepo.finishChallenge(currentUser.getId(), ChallengeType.CUSTOM_SIMPLE,
+        challengeId)) {
+      FinishCustomSimpleChallengeResponse response = new FinishCustomSimpleChallengeResponse();
+      response.setStatus(new Status(Status.CHALLENGE_HAS_ALREADY_BEEN_FINISHED));
+      return ResponseEntity.badRequest().body(response);
+    }
     currentUserChallenge.get().setFinished(true);
     updateScoreInFriendships(currentUser, currentUserChallenge.get().getGroupId());
-    userRepo.save(currentUser);
 
     CustomSimpleChallenge challenge = customSimpleChallengeRepo.findById(challengeId).get();
-    updateCustomSimpleChallengeOnUserFinished(challenge, currentUser);
-    // Invalidate current user because it may have changed indirectly (by changing only the
-    // database instance) after calling updateChallengeOnUserFinished.
-    currentUser = userRepo.findById(currentUser.getId()).get();
-    currentUser.setFinishedCustomSimpleChallengesCount(
-        currentUser.getFinishedCustomSimpleChallengesCount() + 1);
-
-    challengesService.sendNotificationOnFinishedCustomSimpleChallenge(getCurrentUser(userRepo),
-        challenge);
-    customSimpleChallengeRepo.save(challenge);
-    userRepo.save(currentUser);
+    updateChallengeOnUserFinished(ChallengeType.CUSTOM_SIMPLE, challenge, currentUser);
+    userRepo.incrementFinishedChallengesCount(currentUser.getId(), ChallengeType.CUSTOM_SIMPLE);
+
+    challengesService.sendNotificationOnFinishedCustomSimpleChallenge(currentUser, challenge);
 
     return ResponseEntity.ok(new FinishCustomSimpleChallengeResponse());
   }
@@ -1172,16 +1119,8 @@ public class ChallengeController extends BaseController {
   public ResponseEntity<GetFinishedChallengesCountResponse> getFinishedChallengesCount() {
     GetFinishedChallengesCountResponse response = new GetFinishedChallengesCountResponse();
 
-    User user = getCurrentUser(userRepo);
-    int finishedChallengesCount =
-        user.getFinishedAzkarChallengesCount()
-            + user.getFinishedMeaningChallengesCount()
-            + user.getFinishedReadingQuranChallengesCount()
-            + user.getFinishedMemorizationChallengesCount()
-            + user.getFinishedCustomSimpleChallengesCount()
-            + user.getFinishedPersonalChallengesCount();
-
-    response.setData(finishedChallengesCount);
+    UserCounters userCounters = getCurrentUser(UserCounters.class);
+    response.setData(userCounters.totalFinishedChallengesCount());
     return ResponseEntity.ok(response);
   }
 
@@ -1212,79 +1151,22 @@ public class ChallengeController extends BaseController {
   }
 
 
-  private void updateAzkarChallengeOnUserFinished(AzkarChallenge challenge, User currentUser) {
-    // Update the original copy of the challenge
-    challenge.getUsersFinished().add(currentUser.getId());
-
-    // Update users copies of the challenge
-    groupRepo.findById(challenge.getGroupId()).get().getUsersIds().forEach(groupMember -> {
-      User user = userRepo.findById(groupMember).get();
-      user.getAzkarChallenges().forEach(userChallenge -> {
-        if (userChallenge.getId().equals(challenge.getId())) {
-          userChallenge.getUsersFinished().add(currentUser.getId());
-        }
-      });
-      userRepo.save(user);
-    });
-  }
-
-  private void updateMeaningChallengeOnUserFinished(MeaningChallenge challenge, User currentUser) {
+  private void updateChallengeOnUserFinished(ChallengeType challengeType, ChallengeBase challenge,
+      UserSummary currentUser) {
     // Update the original copy of the challenge
-    challenge.getUsersFinished().add(currentUser.getId());
+    challengeFanOutService.addUserFinished(challenge, currentUser.getId());
 
     // Update users copies of the challenge
-    groupRepo.findById(challenge.getGroupId()).get().getUsersIds().forEach(groupMember -> {
-      User user = userRepo.findById(groupMember).get();
-      user.getMeaningChallenges().forEach(userChallenge -> {
-        if (userChallenge.getId().equals(challenge.getId())) {
-          userChallenge.getUsersFinished().add(currentUser.getId());
-        }
-      });
-      userRepo.save(user);
-    });
+    challengeFanOutService.fanOutUserFinished(challengeType, challenge, currentUser.getId());
   }
 
-  private void updateReadingQuranChallengeOnUserFinished(ReadingQuranChallenge challenge,
-      User currentUser) {
-    // Update the original copy of the challenge
-    challenge.getUsersFinished().add(currentUser.getId());
-
-    // Update users copies of the challenge
-    groupRepo.findById(challenge.getGroupId()).get().getUsersIds().forEach(groupMember -> {
-      User user = userRepo.findById(groupMember).get();
-      user.getReadingQuranChallenges().forEach(userChallenge -> {
-        if (userChallenge.getId().equals(challenge.getId())) {
-          userChallenge.getUsersFinished().add(currentUser.getId());
-        }
-      });
-      userRepo.save(user);
-    });
-  }
-
-  private HashSet<String> getUserFriends(User user) {
+  private HashSet<String> getUserFriends(UserSummary user) {
     Friendship friendship = friendshipRepo.findByUserId(user.getId());
     HashSet<String> friends = new HashSet<>();
     friendship.getFriends().forEach(friend -> friends.add(friend.getUserId()));
     return friends;
   }
 
-  private void updateMemorizationChallengeOnUserFinished(MemorizationChallenge challenge,
-      User currentUser) {
-    // Update the original copy of the challenge
-    challenge.getUsersFinished().add(currentUser.getId());
-
-    // Update users copies of the challenge
-    groupRepo.findById(challenge.getGroupId()).get().getUsersIds().forEach(groupMember -> {
-      User user = userRepo.findById(groupMember).get();
-      user.getMemorizationChallenges().forEach(userChallenge -> {
-        if (userChallenge.getId().equals(challenge.getId())) {
-          userChallenge.getUsersFinished().add(currentUser.getId());
-        }
-      });
-      userRepo.save(user);
-    });
-  }
-
   private boolean groupContainsCurrentUser(Group group) {
     return group.getUsersIds().contains(getCurrentUser().getUserId());
   }
@@ -1300,25 +1182,8 @@ public class ChallengeController extends BaseController {
     return filtered;
   }
 
-  private void updateCustomSimpleChallengeOnUserFinished(CustomSimpleChallenge challenge,
-      User currentUser) {
-    // Update the original copy of the challenge
-    challenge.getUsersFinished().add(currentUser.getId());
-
-    // Update users copies of the challenge
-    groupRepo.findById(challenge.getGroupId()).get().getUsersIds().forEach(groupMember -> {
-      User user = userRepo.findById(groupMember).get();
-      user.getCustomSimpleChallenges().forEach(userChallenge -> {
-        if (userChallenge.getId().equals(challenge.getId())) {
-          userChallenge.getUsersFinished().add(currentUser.getId());
-        }
-      });
-      userRepo.save(user);
-    });
-  }
-
   private MemorizationChallenge createMemorizationChallenge(AddMemorizationChallengeRequest request,
-      User user, Group group) {
+      UserSummary user, Group group) {
     MemorizationChallenge memorizationChallenge =
         MemorizationChallenge.builder()
             .id(new ObjectId().toString())
@@ -1377,7 +1242,7 @@ public class ChallengeController extends BaseController {
     return memorizationChallenge;
   }
 
-  private void updateScoreInFriendships(User user, String groupId) {
+  private void updateScoreInFriendships(UserSummary user, String groupId) {
     Group group = groupRepo.findById(groupId).orElse(null);
     if (group == null) {
       logger.warn("Group with ID: %s not found will trying to update score for user: %s", groupId,
@@ -1385,30 +1250,6 @@ public class ChallengeController extends BaseController {
       return;
     }
 
-    Friendship friendship = friendshipRepo.findByUserId(user.getId());
-
-    Set<String> friendsAndGroupMembers =
-        friendship.getFriends().stream()
-            .filter(friend -> group.getUsersIds().contains(friend.getUserId()))
-            .map(friend -> friend.getUserId()).collect(
-                Collectors.toSet());
-
-    // Update user friendship
-    friendship.getFriends().stream()
-        .filter(friend -> friendsAndGroupMembers.contains(friend.getUserId()))
-        .forEach(friend -> {
-          friend.setUserTotalScore(friend.getUserTotalScore() + 1);
-        });
-    friendshipRepo.save(friendship);
-
-    // Update friends' friendships
-    friendsAndGroupMembers.stream().forEach(friendUserId -> {
-      Friendship friendFriendship = friendshipRepo.findByUserId(friendUserId);
-
-      friendFriendship.getFriends().stream()
-          .filter(friend -> friend.getUserId().equals(user.getId()))
-          .forEach(friend -> friend.setFriendTotalScore(friend.getFriendTotalScore() + 1));
-      friendshipRepo.save(friendFriendship);
-    });
+    friendshipRepo.incrementScoreAgainstFriends(user.getId(), group.getUsersIds());
   }
 }
@@ -4,6 +4,7 @@ import com.azkar.entities.Friendship;
 import com.azkar.entities.Friendship.Friend;
 import com.azkar.entities.Group;
 import com.azkar.entities.User;
+import com.azkar.entities.views.UserSummary;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.usercontroller.responses.AddFriendResponse;
 import com.azkar.payload.usercontroller.responses.DeleteFriendResponse;
@@ -18,6 +19,7 @@ import com.azkar.repos.UserRepo;
 import com.azkar.services.FriendshipService;
 import com.azkar.services.NotificationsService;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
@@ -58,7 +60,7 @@ public class FriendshipController extends BaseController {
       @RequestHeader(value = API_VERSION_HEADER, required = false) String apiVersion) {
     GetFriendsResponse response = new GetFriendsResponse();
 
-    Friendship friendship = friendshipRepo.findByUserId(getCurrentUser().getUserId());
+    Friendship friendship = getCurrentUserFriendship(friendshipRepo);
     List<Friend> friends = friendship.getFriends();
     if (apiVersion == null
         || VersionComparator.compare(apiVersion, FeaturesVersions.SABEQ_ADDITION_VERSION) < 0) {
@@ -100,7 +102,7 @@ public class FriendshipController extends BaseController {
       @PathVariable(value = "id") String otherUserId) {
     AddFriendResponse response = new AddFriendResponse();
 
-    User currentUser = userRepo.findById(getCurrentUser().getUserId()).get();
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
     if (currentUser.getId().equals(otherUserId)) {
       response.setStatus(new Status(Status.ADD_SELF_ERROR));
       return ResponseEntity.badRequest().body(response);
@@ -128,40 +130,19 @@ public class FriendshipController extends BaseController {
         .filter(f -> f.getUserId().equals(otherUserId))
         .findAny();
     if (friend.isPresent()) {
-      Group binaryGroup = generateBinaryGroup(currentUser, friend.get());
-      groupRepo.save(binaryGroup);
-
-      // Set isPending for the current user.
-      friend.get().setPending(false);
-      friend.get().setGroupId(binaryGroup.getId());
-
-      // Set isPending for the current user.
-      otherUserFriendship.getFriends().add(
-          Friend.builder()
-              .userId(currentUser.getId())
-              .groupId(binaryGroup.getId())
-              .username(currentUser.getUsername())
-              .firstName(currentUser.getFirstName())
-              .lastName(currentUser.getLastName())
-              .isPending(false)
-              .build()
-      );
-
-      friendshipRepo.save(currentUserFriendship);
-      friendshipRepo.save(otherUserFriendship);
+      makeFriends(currentUser, otherUserId);
       return ResponseEntity.ok().body(response);
     }
 
-    otherUserFriendship.getFriends().add(
-        Friend.builder()
-            .userId(currentUser.getId())
-            .username(currentUser.getUsername())
-            .firstName(currentUser.getFirstName())
-            .lastName(currentUser.getLastName())
-            .isPending(true)
-            .build()
-    );
-    friendshipRepo.save(otherUserFriendship);
+    Friend friendRequest = Friend.builder()
+        .userId(currentUser.getId())
+        .username(currentUser.getUsername())
+        .firstName(currentUser.getFirstName())
+        .lastName(currentUser.getLastName())
+        .isPending(true)
+        .build();
+    friendshipService.updateFriendship(otherUserId,
+        friendship -> FriendshipService.addFriendIfAbsent(friendship, friendRequest));
     notificationsService.sendNotificationToUser(otherUser.get(), "لديك طلب صداقة جديد",
         currentUser.getFirstName() + " " + currentUser.getLastName());
 
@@ -173,7 +154,7 @@ public class FriendshipController extends BaseController {
       @PathVariable(value = "id") String otherUserId) {
     ResolveFriendRequestResponse response = new ResolveFriendRequestResponse();
 
-    User currentUser = userRepo.findById(getCurrentUser().getUserId()).get();
+    UserSummary currentUser = getCurrentUser(UserSummary.class);
 
     // Assert that the current user has a pending friend request from the other user.
     Friendship currentUserFriendship = friendshipRepo.findByUserId(currentUser.getId());
@@ -192,40 +173,48 @@ public class FriendshipController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    Group binaryGroup = generateBinaryGroup(currentUser, friend.get());
-    groupRepo.save(binaryGroup);
+    makeFriends(currentUser, otherUserId);
 
-    friend.get().setPending(false);
-    friend.get().setGroupId(binaryGroup.getId());
-    Friendship otherUserFriendship = friendshipRepo.findByUserId(otherUserId);
-
-    otherUserFriendship.getFriends().add(
-        Friend.builder()
-            .userId(currentUser.getId())
-            .username(currentUser.getUsername())
-            .firstName(currentUser.getFirstName())
-            .lastName(currentUser.getLastName())
-            .isPending(false)
-            .groupId(binaryGroup.getId())
-            .build()
-    );
-
-    friendshipRepo.save(currentUserFriendship);
-    friendshipRepo.save(otherUserFriendship);
-    userRepo.save(currentUser);
-
-    notificationsService.sendNotificationToUser(userRepo.findById(otherUserId).get(),
+    notificationsService.sendNotificationToUsers(Collections.singletonList(otherUserId),
         "تم قبول طلب الصداقة",
         currentUser.getFirstName() + " " + currentUser.getLastName());
 
     return ResponseEntity.ok(response);
   }
 
-  private Group generateBinaryGroup(User currentUser, Friend friend) {
+  // Accepts the pending friend request from the other user in the current user's friendship and
+  // adds the current user as a friend in the other user's friendship. Each friendship is updated
+  // separately so that a concurrent update to one of them retries only its own update.
+  private void makeFriends(UserSummary currentUser, String otherUserId) {
+    Group binaryGroup = generateBinaryGroup(currentUser, otherUserId);
+    groupRepo.save(binaryGroup);
+
+    friendshipService.updateFriendship(currentUser.getId(), friendship ->
+        friendship.getFriends().stream()
+            .filter(f -> f.getUserId().equals(otherUserId))
+            .findAny()
+            .ifPresent(f -> {
+              f.setPending(false);
+              f.setGroupId(binaryGroup.getId());
+            }));
+
+    Friend currentUserAsFriend = Friend.builder()
+        .userId(currentUser.getId())
+        .username(currentUser.getUsername())
+        .firstName(currentUser.getFirstName())
+        .lastName(currentUser.getLastName())
+        .isPending(false)
+        .groupId(binaryGroup.getId())
+        .build();
+    friendshipService.updateFriendship(otherUserId,
+        friendship -> FriendshipService.addFriendIfAbsent(friendship, currentUserAsFriend));
+  }
+
+  private Group generateBinaryGroup(UserSummary currentUser, String friendId) {
     // TODO(issue#148): Make Group.adminId a list
     Group group = Group.builder()
-        .usersIds(Arrays.asList(currentUser.getId(), friend.getUserId()))
-        .creatorId(friend.getUserId())
+        .usersIds(Arrays.asList(currentUser.getId(), friendId))
+        .creatorId(friendId)
         .build();
     return group;
   }
@@ -237,7 +226,7 @@ public class FriendshipController extends BaseController {
 
     // Assert that the current user has a pending friend request from the other user.
     // Check if the current user already requested friendship with the other user.
-    Friendship currentUserFriendship = friendshipRepo.findByUserId(getCurrentUser().getUserId());
+    Friendship currentUserFriendship = getCurrentUserFriendship(friendshipRepo);
     List<Friend> currentUserFriends = currentUserFriendship.getFriends();
 
     int friendIndex = findFriendIndexInList(otherUserId, currentUserFriends);
@@ -252,8 +241,9 @@ public class FriendshipController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    currentUserFriends.remove(friendIndex);
-    friendshipRepo.save(currentUserFriendship);
+    friendshipService.updateFriendship(getCurrentUser().getUserId(),
+        friendship -> friendship.getFriends().removeIf(
+            friend -> friend.getUserId().equals(otherUserId) && friend.isPending()));
     return ResponseEntity.ok(response);
   }
 
@@ -274,7 +264,7 @@ public class FriendshipController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    Friendship currentUserFriendship = friendshipRepo.findByUserId(getCurrentUser().getUserId());
+    Friendship currentUserFriendship = getCurrentUserFriendship(friendshipRepo);
     Friendship otherUserFriendship = friendshipRepo.findByUserId(otherUserId);
 
     int currentUserAsFriendIndex = findFriendIndexInList(getCurrentUser().getUserId(),
@@ -287,13 +277,13 @@ public class FriendshipController extends BaseController {
       return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
     }
 
-    currentUserFriendship.getFriends().remove(otherUserAsFriendIndex);
-    otherUserFriendship.getFriends().remove(currentUserAsFriendIndex);
-
     // Don't remove their binary group so as we don't need to remove their previous challenges too.
 
-    friendshipRepo.save(currentUserFriendship);
-    friendshipRepo.save(otherUserFriendship);
+    String currentUserId = getCurrentUser().getUserId();
+    friendshipService.updateFriendship(currentUserId,
+        friendship -> FriendshipService.removeFriend(friendship, otherUserId));
+    friendshipService.updateFriendship(otherUserId,
+        friendship -> FriendshipService.removeFriend(friendship, currentUserId));
     return ResponseEntity.ok(response);
   }
 
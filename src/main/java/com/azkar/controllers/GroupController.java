@@ -1,7 +1,7 @@
 package com.azkar.controllers;
 
 import com.azkar.entities.Group;
-import com.azkar.entities.User;
+import com.azkar.entities.views.UserSummary;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.groupcontroller.requests.AddGroupRequest;
 import com.azkar.payload.groupcontroller.responses.AddGroupResponse;
@@ -11,6 +11,7 @@ import com.azkar.payload.groupcontroller.responses.GetGroupsResponse;
 import com.azkar.repos.AzkarChallengeRepo;
 import com.azkar.repos.FriendshipRepo;
 import com.azkar.repos.GroupRepo;
+import com.azkar.repos.UserChangeRepo;
 import com.azkar.repos.UserRepo;
 import com.azkar.services.GroupsService;
 import java.util.ArrayList;
@@ -45,6 +46,8 @@ public class GroupController extends BaseController {
   @Autowired
   private UserRepo userRepo;
   @Autowired
+  private UserChangeRepo userChangeRepo;
+  @Autowired
   private FriendshipRepo friendshipRepo;
   @Autowired
   private GroupsService groupsService;
@@ -53,17 +56,15 @@ public class GroupController extends BaseController {
   public ResponseEntity<AddGroupResponse> addGroup(@RequestBody AddGroupRequest req) {
     req.validate();
 
-    User currentUser = getCurrentUser(userRepo);
+    String currentUserId = getExistingCurrentUserId();
     Group newGroup =
         Group.builder()
             .name(req.getName())
-            .creatorId(currentUser.getId())
-            .usersIds(new ArrayList<>(Collections.singletonList(currentUser.getId())))
+            .creatorId(currentUserId)
+            .usersIds(new ArrayList<>(Collections.singletonList(currentUserId)))
             .build();
     newGroup = groupRepo.save(newGroup);
 
-    userRepo.save(currentUser);
-
     AddGroupResponse response = new AddGroupResponse();
     response.setData(newGroup);
     return ResponseEntity.ok(response);
@@ -80,9 +81,9 @@ public class GroupController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
-    User currentUser = getCurrentUser(userRepo);
+    String currentUserId = getCurrentUser().getUserId();
     if (!group.get().getUsersIds().stream()
-        .anyMatch(userId -> userId.equals(currentUser.getId()))) {
+        .anyMatch(userId -> userId.equals(currentUserId))) {
       response.setStatus(new Status(Status.NOT_MEMBER_IN_GROUP_ERROR));
       return ResponseEntity.badRequest().body(response);
     }
@@ -119,7 +120,7 @@ public class GroupController extends BaseController {
     AddToGroupResponse response = new AddToGroupResponse();
 
     // Check if the ID of the user to be added is valid.
-    Optional<User> userToAdd = userRepo.findById(invitedUserId);
+    Optional<UserSummary> userToAdd = userRepo.findViewById(invitedUserId, UserSummary.class);
     if (!userToAdd.isPresent()) {
       response.setStatus(new Status(Status.INVITED_USER_INVALID_ERROR));
       return ResponseEntity.badRequest().body(response);
@@ -133,31 +134,31 @@ public class GroupController extends BaseController {
     }
 
     // Check if the two users are friends
-    if (!friendshipRepo.findByUserId(getCurrentUser().getUserId()).getFriends().stream()
+    if (!getCurrentUserFriendship(friendshipRepo).getFriends().stream()
         .anyMatch(friend -> friend.getUserId().equals(invitedUserId) && !friend.isPending())) {
       response.setStatus(new Status(Status.NO_FRIENDSHIP_ERROR));
       return ResponseEntity.badRequest().body(response);
     }
 
     // Check if the inviting user is a member of the group.
-    if (!isMember(userRepo.findById(getCurrentUser().getUserId()).get(), group.get())) {
+    if (!isMember(getCurrentUser().getUserId(), group.get())) {
       response.setStatus(new Status(Status.INVITING_USER_IS_NOT_MEMBER_ERROR));
       return ResponseEntity.badRequest().body(response);
     }
 
     // Check if the invited user is already a member of the group.
-    if (isMember(userToAdd.get(), group.get())) {
+    if (isMember(invitedUserId, group.get())) {
       response.setStatus(new Status(Status.INVITED_USER_ALREADY_MEMBER_ERROR));
       return ResponseEntity.badRequest().body(response);
     }
 
     group.get().getUsersIds().add(userToAdd.get().getId());
-    userRepo.save(userToAdd.get());
     groupRepo.save(group.get());
+    userChangeRepo.recordGroupChange(group.get().getUsersIds(), group.get().getId());
     return ResponseEntity.ok(response);
   }
 
-  private boolean isMember(User user, Group group) {
-    return group.getUsersIds().stream().anyMatch(userId -> userId.equals(user.getId()));
+  private boolean isMember(String userId, Group group) {
+    return group.getUsersIds().stream().anyMatch(memberId -> memberId.equals(userId));
   }
 }
@@ -0,0 +1,32 @@
+package com.azkar.controllers;
+
+import com.azkar.payload.synccontroller.SyncResponse;
+import com.azkar.services.SyncService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping(path = "/sync", produces = MediaType.APPLICATION_JSON_VALUE)
+public class SyncController extends BaseController {
+
+  @Autowired
+  SyncService syncService;
+
+  // Returns only the challenges, friends and groups that changed since the watermark returned by
+  // the previous sync of the client, which is much smaller than the whole home once the client is
+  // up to date. The user document is never loaded whole.
+  @GetMapping
+  public ResponseEntity<SyncResponse> sync(
+      @RequestHeader(value = API_VERSION_HEADER, required = false) String apiVersion,
+      @RequestParam(value = "since", required = false) String since) {
+    SyncResponse response = new SyncResponse();
+    response.setData(syncService.sync(getCurrentUser().getUserId(), apiVersion, since));
+    return ResponseEntity.ok(response);
+  }
+}
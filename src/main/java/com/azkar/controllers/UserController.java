@@ -1,9 +1,9 @@
 package com.azkar.controllers;
 
-import com.azkar.entities.Friendship;
 import com.azkar.entities.PubliclyAvailableFemaleUser;
 import com.azkar.entities.PubliclyAvailableMaleUser;
 import com.azkar.entities.User;
+import com.azkar.entities.views.UserSummary;
 import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.usercontroller.requests.SetNotificationTokenRequestBody;
 import com.azkar.payload.usercontroller.responses.AddToPubliclyAvailableUsersResponse;
@@ -14,18 +14,27 @@ import com.azkar.payload.usercontroller.responses.GetPubliclyAvailableUsersRespo
 import com.azkar.payload.usercontroller.responses.GetUserResponse;
 import com.azkar.payload.usercontroller.responses.SetNotificationTokenResponse;
 import com.azkar.repos.FriendshipRepo;
-import com.azkar.repos.GroupRepo;
 import com.azkar.repos.PubliclyAvailableFemaleUsersRepo;
 import com.azkar.repos.PubliclyAvailableMaleUsersRepo;
 import com.azkar.repos.UserRepo;
+import com.azkar.services.SabeqService;
+import com.azkar.services.UserDeletionService;
+import com.azkar.services.notifications.NotificationTargetsCache;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.domain.Sort.Direction;
 import org.springframework.http.MediaType;
@@ -45,17 +54,24 @@ public class UserController extends BaseController {
 
   private static final Logger logger = LoggerFactory.getLogger(UserController.class);
   private static final int LIST_PUBLICLY_AVAILABLE_USERS_PAGE_SIZE = 20;
+  private static final int KEYSET_PAGE_SIZE = 500;
+  // The largest possible ObjectId, used as the start of keyset pagination on _id.
+  private static final String MAX_OBJECT_ID = "ffffffffffffffffffffffff";
 
   @Autowired
   FriendshipRepo friendshipRepo;
   @Autowired
-  GroupRepo groupRepo;
-  @Autowired
   private UserRepo userRepo;
   @Autowired
   private PubliclyAvailableMaleUsersRepo publiclyAvailableMaleUsersRepo;
   @Autowired
   private PubliclyAvailableFemaleUsersRepo publiclyAvailableFemaleUsersRepo;
+  @Autowired
+  private SabeqService sabeqService;
+  @Autowired
+  private UserDeletionService userDeletionService;
+  @Autowired
+  private NotificationTargetsCache notificationTargetsCache;
 
   @GetMapping(path = "/{id}")
   public ResponseEntity<GetUserResponse> getUser(@PathVariable String id) {
@@ -63,7 +79,7 @@ public class UserController extends BaseController {
     /*
 //    Return minimal user information, even if not friends so as to allow displaying non-friends in
 //    a group.
-    if (!friendshipRepo.findByUserId(getCurrentUser(userRepo).getId()).getFriends().stream()
+    if (!friendshipRepo.findByUserId(getCurrentUser().getUserId()).getFriends().stream()
         .anyMatch(friend -> friend.getUserId().equals(id))) {
       response.setStatus(new Status(Status.NO_FRIENDSHIP_ERROR));
       return ResponseEntity.badRequest().body(response);
@@ -84,13 +100,18 @@ public class UserController extends BaseController {
   public ResponseEntity<GetUserResponse> getSabeq() {
     GetUserResponse response = new GetUserResponse();
 
-    Optional<User> user = userRepo.findById(User.SABEQ_ID);
-    if (!user.isPresent()) {
+    Optional<UserSummary> sabeq = sabeqService.getSabeq();
+    if (!sabeq.isPresent()) {
       response.setStatus(new Status(Status.USER_NOT_FOUND_ERROR));
       return ResponseEntity.badRequest().body(response);
     }
 
-    response.setData(getMinimalInfoAboutUser(user.get()));
+    response.setData(User.builder()
+        .id(sabeq.get().getId())
+        .firstName(sabeq.get().getFirstName())
+        .lastName(sabeq.get().getLastName())
+        .username(sabeq.get().getUsername())
+        .build());
     return ResponseEntity.ok(response);
   }
 
@@ -121,9 +142,7 @@ public class UserController extends BaseController {
       @RequestBody SetNotificationTokenRequestBody body) {
     body.validate();
 
-    User user = getCurrentUser(userRepo);
-    user.setNotificationsToken(body.getToken());
-    userRepo.save(user);
+    notificationTargetsCache.setNotificationsToken(getExistingCurrentUserId(), body.getToken());
 
     return ResponseEntity.ok(new SetNotificationTokenResponse());
   }
@@ -156,7 +175,7 @@ public class UserController extends BaseController {
   @GetMapping(path = "/me/v2")
   public ResponseEntity<GetUserResponse> getCurrentUserProfileV2() {
     GetUserResponse response = new GetUserResponse();
-    User user = userRepo.findById(getCurrentUser().getUserId()).get();
+    User user = getCurrentUser(userRepo);
     response.setData(
         User.builder()
             .id(user.getId())
@@ -168,12 +187,19 @@ public class UserController extends BaseController {
     return ResponseEntity.ok(response);
   }
 
+  /**
+   * Lists the publicly available users of the same gender as the current user. Without {@code
+   * page_num}, the users are listed in pages of {@link #KEYSET_PAGE_SIZE} starting from the most
+   * recently added ones, and every page returns the {@code after_id} of the next one. Without
+   * {@code after_id} the first page is returned.
+   */
   @GetMapping(path = "/publicly_available_users")
   public ResponseEntity<GetPubliclyAvailableUsersResponse> getPubliclyAvailableUsers(
-      @RequestParam(name = "page_num", required = false) String pageNum) {
+      @RequestParam(name = "page_num", required = false) String pageNum,
+      @RequestParam(name = "after_id", required = false) String afterId) {
     GetPubliclyAvailableUsersResponse response = new GetPubliclyAvailableUsersResponse();
 
-    User user = getCurrentUser(userRepo);
+    UserSummary user = getCurrentUser(UserSummary.class);
 
     Optional<PubliclyAvailableMaleUser> userAsPubliclyAvailableMale =
         publiclyAvailableMaleUsersRepo.findByUserId(user.getId());
@@ -186,34 +212,42 @@ public class UserController extends BaseController {
       return ResponseEntity.badRequest().body(response);
     }
 
+    Integer parsedPageNum = null;
+    if (pageNum != null) {
+      try {
+        parsedPageNum = Integer.parseInt(pageNum);
+      } catch (NumberFormatException e) {
+        logger.error("Couldn't parse page number", e);
+        return ResponseEntity.badRequest().body(response);
+      }
+    }
+    if (afterId != null && !ObjectId.isValid(afterId)) {
+      logger.error("Invalid after_id: {}", afterId);
+      return ResponseEntity.badRequest().body(response);
+    }
+
     if (userAsPubliclyAvailableMale.isPresent()) {
       List<PubliclyAvailableMaleUser> all;
-      if (pageNum != null) {
-        Integer parsedPageNum;
-        try {
-          parsedPageNum = Integer.parseInt(pageNum);
-        } catch (NumberFormatException e) {
-          logger.error("Couldn't parse page number", e);
-          return ResponseEntity.badRequest().body(response);
-        }
+      if (parsedPageNum != null) {
         all =
             publiclyAvailableMaleUsersRepo.findAll(PageRequest.of(parsedPageNum,
                     LIST_PUBLICLY_AVAILABLE_USERS_PAGE_SIZE, Sort.by(Direction.DESC, "_id")))
                 .getContent();
       } else {
-        all = publiclyAvailableMaleUsersRepo.findAll();
+        all = findKeysetPage(publiclyAvailableMaleUsersRepo::findByIdLessThan, afterId);
+        response.setNextAfterId(getNextAfterId(all, PubliclyAvailableMaleUser::getId));
+        if (afterId == null) {
+          // The first page used to be the whole list in the order in which the users were added.
+          all = new ArrayList<>(all);
+          Collections.reverse(all);
+        }
       }
 
+      Set<String> usersWithFriendRequests = findUsersWithFriendRequestsFrom(user.getId(),
+          all.stream().map(PubliclyAvailableMaleUser::getUserId).collect(Collectors.toList()));
       List<PubliclyAvailableUser> publiclyAvailableUsers = all.stream()
-          // TODO(issue/335): Optimize filtering publicly available users by the ones without a
-          //  friend request sent
           .filter(publiclyAvailableMaleUser ->
-              !publiclyAvailableMaleUser.getUserId().equals(user.getId()) && !friendshipRepo
-                  .findByUserId(publiclyAvailableMaleUser.getUserId())
-                  .getFriends().stream().anyMatch(friend ->
-                      friend.getUserId().equals(user.getId())
-                  )
-          )
+              !usersWithFriendRequests.contains(publiclyAvailableMaleUser.getUserId()))
           .map(publiclyAvailableMaleUser -> PubliclyAvailableUser.builder()
               .userId(publiclyAvailableMaleUser.getUserId())
               .firstName(publiclyAvailableMaleUser.getFirstName())
@@ -225,30 +259,22 @@ public class UserController extends BaseController {
     }
 
     List<PubliclyAvailableFemaleUser> all;
-    if (pageNum != null) {
-      Integer parsedPageNum;
-      try {
-        parsedPageNum = Integer.parseInt(pageNum);
-      } catch (NumberFormatException e) {
-        logger.error("Couldn't parse page number", e);
-        return ResponseEntity.badRequest().body(response);
-      }
+    if (parsedPageNum != null) {
       all =
           publiclyAvailableFemaleUsersRepo.findAll(PageRequest.of(parsedPageNum,
                   LIST_PUBLICLY_AVAILABLE_USERS_PAGE_SIZE, Sort.by(Direction.DESC, "_id")))
               .getContent();
     } else {
-      all = publiclyAvailableFemaleUsersRepo.findAll();
+      // Newly added members are shown first.
+      all = findKeysetPage(publiclyAvailableFemaleUsersRepo::findByIdLessThan, afterId);
+      response.setNextAfterId(getNextAfterId(all, PubliclyAvailableFemaleUser::getId));
     }
 
+    Set<String> usersWithFriendRequests = findUsersWithFriendRequestsFrom(user.getId(),
+        all.stream().map(PubliclyAvailableFemaleUser::getUserId).collect(Collectors.toList()));
     List<PubliclyAvailableUser> publiclyAvailableUsers = all.stream()
         .filter(publiclyAvailableFemaleUser ->
-            !publiclyAvailableFemaleUser.getUserId().equals(user.getId()) && !friendshipRepo
-                .findByUserId(publiclyAvailableFemaleUser.getUserId())
-                .getFriends().stream().anyMatch(friend ->
-                    friend.getUserId().equals(user.getId())
-                )
-        )
+            !usersWithFriendRequests.contains(publiclyAvailableFemaleUser.getUserId()))
         .map(publiclyAvailableFemaleUser -> PubliclyAvailableUser.builder()
             .userId(publiclyAvailableFemaleUser.getUserId())
             .firstName(publiclyAvailableFemaleUser.getFirstName())
@@ -256,18 +282,48 @@ public class UserController extends BaseController {
             .build())
         .collect(Collectors.toList());
 
-    // Return them in reverse order so that newly added members are shown first.
-    Collections.reverse(publiclyAvailableUsers);
-
     response.setData(publiclyAvailableUsers);
     return ResponseEntity.ok(response);
   }
 
+  /**
+   * Returns the users in {@code usersIds} that shouldn't be suggested to {@code userId}, i.e. the
+   * user themselves and the users who have {@code userId} as a friend or have a pending friend
+   * request from them.
+   */
+  private Set<String> findUsersWithFriendRequestsFrom(String userId, List<String> usersIds) {
+    Set<String> usersWithFriendRequests = new HashSet<>();
+    usersWithFriendRequests.add(userId);
+    if (!usersIds.isEmpty()) {
+      usersWithFriendRequests.addAll(friendshipRepo.findUsersHavingFriend(usersIds, userId));
+    }
+    return usersWithFriendRequests;
+  }
+
+  /**
+   * Loads the page of the most recent documents with IDs lower than {@code afterId} (or of all the
+   * documents if it is null) in descending order of IDs. Every page is read with a bounded query on
+   * the _id index, however far it is from the first one.
+   */
+  private static <T> List<T> findKeysetPage(BiFunction<String, Pageable, List<T>> findBefore,
+      String afterId) {
+    return findBefore.apply(afterId == null ? MAX_OBJECT_ID : afterId,
+        PageRequest.of(0, KEYSET_PAGE_SIZE, Sort.by(Direction.DESC, "_id")));
+  }
+
+  // Returns null if the page is the last one.
+  private static <T> String getNextAfterId(List<T> page, Function<T, String> getId) {
+    if (page.size() < KEYSET_PAGE_SIZE) {
+      return null;
+    }
+    return getId.apply(page.get(page.size() - 1));
+  }
+
   @PutMapping(path = "/publicly_available_males")
   public ResponseEntity<AddToPubliclyAvailableUsersResponse> addToPubliclyAvailableMales() {
     AddToPubliclyAvailableUsersResponse response = new AddToPubliclyAvailableUsersResponse();
 
-    User user = getCurrentUser(userRepo);
+    UserSummary user = getCurrentUser(UserSummary.class);
 
     Optional<PubliclyAvailableMaleUser> userAsPubliclyAvailableMale =
         publiclyAvailableMaleUsersRepo.findByUserId(user.getId());
@@ -294,7 +350,7 @@ public class UserController extends BaseController {
   public ResponseEntity<AddToPubliclyAvailableUsersResponse> addToPubliclyAvailableFemales() {
     AddToPubliclyAvailableUsersResponse response = new AddToPubliclyAvailableUsersResponse();
 
-    User user = getCurrentUser(userRepo);
+    UserSummary user = getCurrentUser(UserSummary.class);
 
     Optional<PubliclyAvailableMaleUser> userAsPubliclyAvailableMale =
         publiclyAvailableMaleUsersRepo.findByUserId(user.getId());
@@ -321,7 +377,7 @@ public class UserController extends BaseController {
   public ResponseEntity<DeleteFromPubliclyAvailableUsers> deleteFromPubliclyAvailableUsers() {
     DeleteFromPubliclyAvailableUsers response = new DeleteFromPubliclyAvailableUsers();
 
-    User user = getCurrentUser(userRepo);
+    UserSummary user = getCurrentUser(UserSummary.class);
 
     Optional<PubliclyAvailableMaleUser> userAsPubliclyAvailableMale =
         publiclyAvailableMaleUsersRepo.findByUserId(user.getId());
@@ -345,48 +401,21 @@ public class UserController extends BaseController {
   @DeleteMapping(path = "/me")
   public ResponseEntity<DeleteUserResponse> deleteUser() {
 
-    User user = getCurrentUser(userRepo);
-
-    publiclyAvailableMaleUsersRepo.deleteByUserId(user.getId());
-    publiclyAvailableFemaleUsersRepo.deleteByUserId(user.getId());
-
-    deleteFriendships(user.getId());
-
-    deleteUserFromGroups(user);
+    UserSummary user = getCurrentUser(UserSummary.class);
 
-    userRepo.deleteById(user.getId());
+    userDeletionService.deleteUser(user.getId());
+    userDeletionService.cleanUpDeletedUser(user.getId());
 
     DeleteUserResponse response = new DeleteUserResponse();
-    response.setData(getMinimalInfoAboutUser(user));
+    response.setData(User.builder()
+        .id(user.getId())
+        .firstName(user.getFirstName())
+        .lastName(user.getLastName())
+        .username(user.getUsername())
+        .build());
     return ResponseEntity.ok(response);
   }
 
-  private void deleteUserFromGroups(User user) {
-    groupRepo.findAll().stream()
-        .filter(group -> group.getUsersIds().contains(user.getId()))
-        .forEach(group -> {
-          group.getUsersIds().removeIf(userId -> userId.equals(user.getId()));
-          groupRepo.save(group);
-        });
-  }
-
-  private void deleteFriendships(String userId) {
-    Friendship friendship = friendshipRepo.findByUserId(userId);
-
-    friendship.getFriends().stream().forEach(friend -> {
-      Friendship friendsFriendship = friendshipRepo.findByUserId(friend.getUserId());
-      if (friendsFriendship == null) {
-        logger.error("Couldn't find friendship for user with ID {}, while deleting user with ID {}",
-            friend.getUserId(), userId);
-        return;
-      }
-
-      friendsFriendship.getFriends().removeIf(friend1 -> friend1.getUserId().equals(userId));
-      friendshipRepo.save(friendsFriendship);
-    });
-
-    friendshipRepo.deleteByUserId(userId);
-  }
 
   private User getMinimalInfoAboutUser(User user) {
     return User.builder()
@@ -26,6 +26,7 @@ import com.azkar.repos.RegistrationEmailConfirmationStateRepo;
 import com.azkar.repos.UserRepo;
 import com.azkar.services.JwtService;
 import com.azkar.services.UserService;
+import com.azkar.services.mail.MailService;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken;
 import com.google.api.client.googleapis.auth.oauth2.GoogleIdToken.Payload;
@@ -46,12 +47,7 @@ import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.TimeUnit;
-import javax.mail.MessagingException;
-import javax.mail.internet.InternetAddress;
-import javax.mail.internet.MimeMessage;
 import lombok.Data;
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.lang3.RandomStringUtils;
 import org.bouncycastle.util.io.pem.PemObject;
 import org.bouncycastle.util.io.pem.PemReader;
 import org.slf4j.Logger;
@@ -65,8 +61,6 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.mail.javamail.JavaMailSender;
-import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.security.authentication.AnonymousAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -98,12 +92,6 @@ public class ApiAuthenticationController extends BaseController {
   private static final Logger logger = LoggerFactory.getLogger(ApiAuthenticationController.class);
   private static final long RESET_PASSWORD_EXPIRY_TIME_SECONDS = 30 * 60;
 
-  private static final String RESET_PASSWORD_EMAIL_TEMPLATE_PATH =
-      "emailTemplates/reset_password_email.html";
-  // Use VERIFY_EMAIL_V2_TEMPLATE_PATH instead.
-  @Deprecated
-  private static final String VERIFY_EMAIL_TEMPLATE_PATH = "emailTemplates/verify_email.html";
-  private static final String VERIFY_EMAIL_V2_TEMPLATE_PATH = "emailTemplates/verify_email_v2.html";
   @Value("${files.apple_auth_private_key}")
   public String appleAuthPrivateKeyFile;
   @Autowired
@@ -117,7 +105,7 @@ public class ApiAuthenticationController extends BaseController {
   @Autowired
   private RegistrationEmailConfirmationStateRepo registrationEmailConfirmationStateRepo;
   @Autowired
-  private JavaMailSender javaMailSender;
+  private MailService mailService;
   private final RestTemplate restTemplate;
   @Value("${APPLE_TEAM_ID}")
   private String appleTeamId;
@@ -133,8 +121,7 @@ public class ApiAuthenticationController extends BaseController {
   @Deprecated
   @PutMapping(value = REGISTER_WITH_EMAIL_PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<EmailRegistrationResponse> registerWithEmail(
-      @RequestBody EmailRegistrationRequestBody body)
-      throws MessagingException, IOException {
+      @RequestBody EmailRegistrationRequestBody body) {
     EmailRegistrationResponse response = new EmailRegistrationResponse();
     body.validate();
 
@@ -162,7 +149,7 @@ public class ApiAuthenticationController extends BaseController {
 
     int pin = generatePin();
     registrationEmailConfirmationState.setPin(pin);
-    sendVerificationEmail(body.getEmail(), pin);
+    mailService.sendVerificationEmail(body.getEmail(), pin);
 
     registrationEmailConfirmationStateRepo.save(registrationEmailConfirmationState);
 
@@ -171,8 +158,7 @@ public class ApiAuthenticationController extends BaseController {
 
   @PutMapping(value = REGISTER_WITH_EMAIL_V2_PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<EmailRegistrationResponse> registerWithEmailV2(
-      @RequestBody EmailRegistrationRequestBody body)
-      throws MessagingException, IOException {
+      @RequestBody EmailRegistrationRequestBody body) {
     EmailRegistrationResponse response = new EmailRegistrationResponse();
     body.validate();
 
@@ -200,7 +186,7 @@ public class ApiAuthenticationController extends BaseController {
 
     String emailValidationToken = UUID.randomUUID().toString();
     registrationEmailConfirmationState.setToken(emailValidationToken);
-    sendVerificationEmailV2(body.getEmail(), emailValidationToken);
+    mailService.sendVerificationEmailV2(body.getEmail(), emailValidationToken);
 
     registrationEmailConfirmationStateRepo.save(registrationEmailConfirmationState);
 
@@ -284,16 +270,18 @@ public class ApiAuthenticationController extends BaseController {
 
   @PostMapping(value = RESET_PASSWORD_PATH, consumes = MediaType.APPLICATION_JSON_VALUE)
   public ResponseEntity<ResetPasswordResponse> resetPassword(
-      @RequestBody ResetPasswordRequest request) throws MessagingException, IOException {
+      @RequestBody ResetPasswordRequest request) {
     request.validate();
     Optional<User> user = userRepo.findByEmail(request.getEmail());
     if (user.isPresent()) {
       String resetPasswordToken = UUID.randomUUID().toString();
-      user.get().setResetPasswordToken(resetPasswordToken);
-      user.get().setResetPasswordTokenExpiryTime(
-          Instant.now().getEpochSecond() + RESET_PASSWORD_EXPIRY_TIME_SECONDS);
-      userRepo.save(user.get());
-      sendResetPasswordEmail(request.getEmail(), resetPasswordToken);
+      long resetPasswordTokenExpiryTime =
+          Instant.now().getEpochSecond() + RESET_PASSWORD_EXPIRY_TIME_SECONDS;
+      userService.updateUser(user.get().getId(), userToUpdate -> {
+        userToUpdate.setResetPasswordToken(resetPasswordToken);
+        userToUpdate.setResetPasswordTokenExpiryTime(resetPasswordTokenExpiryTime);
+      });
+      mailService.sendResetPasswordEmail(request.getEmail(), resetPasswordToken);
       return ResponseEntity.ok(new ResetPasswordResponse());
     } else {
       ResetPasswordResponse errorResponse = new ResetPasswordResponse();
@@ -377,10 +365,11 @@ public class ApiAuthenticationController extends BaseController {
           .firstName(facebookResponse.firstName)
           .lastName(facebookResponse.lastName)
           .email(facebookResponse.email).build();
-      user.setUserFacebookData(userFacebookData);
-      user.setFirstName(userFacebookData.getFirstName());
-      user.setLastName(userFacebookData.getLastName());
-      userRepo.save(user);
+      user = userService.updateUser(user.getId(), userToUpdate -> {
+        userToUpdate.setUserFacebookData(userFacebookData);
+        userToUpdate.setFirstName(userFacebookData.getFirstName());
+        userToUpdate.setLastName(userFacebookData.getLastName());
+      });
       jwtToken = jwtService.generateToken(user);
     } catch (Exception e) {
       logger.error("Problem while trying to connect to facebook.", e);
@@ -434,8 +423,8 @@ public class ApiAuthenticationController extends BaseController {
         .firstName(facebookResponse.firstName)
         .lastName(facebookResponse.lastName)
         .email(facebookResponse.email).build();
-    user.setUserFacebookData(userFacebookData);
-    userRepo.save(user);
+    userService.updateUser(user.getId(),
+        userToUpdate -> userToUpdate.setUserFacebookData(userFacebookData));
 
     return ResponseEntity.ok(response);
   }
@@ -550,53 +539,6 @@ public class ApiAuthenticationController extends BaseController {
     return responseEntity;
   }
 
-  private void sendVerificationEmail(String email, int pin)
-      throws MessagingException, IOException {
-    String subject = "تأكيد البريد الإلكتروني";
-    String text = getEmailTemplate(VERIFY_EMAIL_TEMPLATE_PATH)
-        .replaceAll("PIN", "" + pin);
-    sendEmail(email, subject, text);
-  }
-
-  private void sendVerificationEmailV2(String email, String token)
-      throws MessagingException, IOException {
-    String subject = "تأكيد البريد الإلكتروني";
-    String url = String.format("https://www.tanafaso.com/verify/email/v2?token=%s", token);
-    String html = getEmailTemplate(VERIFY_EMAIL_V2_TEMPLATE_PATH)
-        .replaceAll("URL", url);
-    sendEmail(email, subject, html);
-  }
-
-  private void sendResetPasswordEmail(String email, String token)
-      throws MessagingException, IOException {
-    String subject = "إعادة ضبط كلمة المرور";
-    String url = String.format("https://www.tanafaso.com/update_password?token=%s", token);
-    // adding a random number at the end to make sure that gmail does not collapse the email ending.
-    String text = getEmailTemplate(RESET_PASSWORD_EMAIL_TEMPLATE_PATH)
-        .replaceAll("URL", url)
-        .replaceAll("RANDOM", RandomStringUtils.randomNumeric(2));
-    sendEmail(email, subject, text);
-  }
-
-  private String getEmailTemplate(String path) throws IOException {
-    return IOUtils.toString(
-        new InputStreamReader(new ClassPathResource(path).getInputStream()));
-  }
-
-  private void sendEmail(String email, String subject, String body)
-      throws MessagingException, UnsupportedEncodingException {
-    MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-    MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
-    // This should be disregarded by new Mime clients.
-    InternetAddress fromAddress = new InternetAddress("azkar_email_name@azkaremaildomain.com",
-        "تنافسوا");
-    helper.setFrom(fromAddress);
-    helper.setSubject(subject);
-    helper.setText(body, /* html= */ true);
-    helper.setTo(email);
-    javaMailSender.send(mimeMessage);
-  }
-
   private int generatePin() {
     final int min = 100_000;
     final int max = 1000_000 - 1;
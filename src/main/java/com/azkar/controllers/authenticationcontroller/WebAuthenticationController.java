@@ -2,6 +2,7 @@ package com.azkar.controllers.authenticationcontroller;
 
 import com.azkar.entities.RegistrationEmailConfirmationState;
 import com.azkar.entities.User;
+import com.azkar.payload.exceptions.ServiceUnavailableException;
 import com.azkar.repos.RegistrationEmailConfirmationStateRepo;
 import com.azkar.repos.UserRepo;
 import com.azkar.services.UserService;
@@ -37,6 +38,8 @@ public class WebAuthenticationController {
   public static final String PASSWORD_MALFORMED_ERROR =
       "يجب ألا تقل كلمة المرور عن 8 أحرف.";
   private static final String UPDATE_SUCCESSFUL_MESSAGE = "تم تغيير كلمة المرور بنجاح.";
+  private static final String SERVER_BUSY_ERROR =
+      "الخادم مشغول الآن. من فضلك حاول مرة أخرى بعد قليل.";
 
   @Autowired
   RegistrationEmailConfirmationStateRepo registrationEmailConfirmationStateRepo;
@@ -79,9 +82,18 @@ public class WebAuthenticationController {
     }
     Optional<User> user = userRepo.findByResetPasswordToken(token);
     if (isResetPasswordTokenValid(user)) {
-      user.get().setEncodedPassword(passwordEncoder.encode(password));
-      user.get().setResetPasswordTokenExpiryTime(Instant.now().getEpochSecond());
-      userRepo.save(user.get());
+      String encodedPassword;
+      try {
+        encodedPassword = passwordEncoder.encode(password);
+      } catch (ServiceUnavailableException e) {
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        model.addAttribute("errorMessage", SERVER_BUSY_ERROR);
+        return ERROR_PAGE_VIEW_NAME;
+      }
+      userService.updateUser(user.get().getId(), userToUpdate -> {
+        userToUpdate.setEncodedPassword(encodedPassword);
+        userToUpdate.setResetPasswordTokenExpiryTime(Instant.now().getEpochSecond());
+      });
       model.addAttribute("successMessage", UPDATE_SUCCESSFUL_MESSAGE);
       return SUCCESS_PAGE_VIEW_NAME;
     } else {
@@ -1,23 +1,17 @@
 package com.azkar.controllers.homecontroller;
 
 import com.azkar.controllers.BaseController;
-import com.azkar.entities.Friendship.Friend;
-import com.azkar.entities.Group;
-import com.azkar.entities.User;
+import com.azkar.entities.views.UserHome;
 import com.azkar.payload.ResponseBase.Status;
-import com.azkar.payload.challengecontroller.responses.ReturnedChallenge;
+import com.azkar.payload.exceptions.BadRequestException;
 import com.azkar.payload.homecontroller.GetHomeResponse;
 import com.azkar.payload.homecontroller.GetHomeResponse.Body;
-import com.azkar.repos.UserRepo;
+import com.azkar.repos.HomeFeedRepo;
 import com.azkar.services.ChallengesCleanerService;
 import com.azkar.services.ChallengesService;
 import com.azkar.services.FriendshipService;
-import com.azkar.services.GroupsService;
-import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutionException;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.ArrayList;
+import java.util.Optional;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -25,57 +19,50 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
 @RestController
 @RequestMapping(path = "/apiHome", produces = MediaType.APPLICATION_JSON_VALUE)
 public class ApiHomeController extends BaseController {
 
-  private static final Logger logger = LoggerFactory.getLogger(ApiHomeController.class);
-
   @Autowired
   ChallengesService challengesService;
   @Autowired
   ChallengesCleanerService challengesCleanerService;
   @Autowired
-  FriendshipService friendshipService;
-  @Autowired
-  GroupsService groupsService;
-  @Autowired
-  UserRepo userRepo;
+  HomeFeedRepo homeFeedRepo;
 
+  // This is the most requested endpoint, so everything it returns is loaded with a single query
+  // that starts from the home feed of the user instead of the user document. Clients that already
+  // have the latest home of the user only get a 304 response which is checked before loading it.
   @GetMapping()
   public ResponseEntity<GetHomeResponse> getHome(
-      @RequestHeader(value = API_VERSION_HEADER, required = true) String apiVersion) {
-    GetHomeResponse getHomeResponse = new GetHomeResponse();
+      @RequestHeader(value = API_VERSION_HEADER, required = true) String apiVersion,
+      WebRequest webRequest) {
+    Optional<String> etag = getCurrentUserDataETag(homeFeedRepo, "apiHome", apiVersion);
+    if (etag.isPresent() && webRequest.checkNotModified(etag.get())) {
+      return notModified(etag.get());
+    }
 
-    User currentUser = getCurrentUser(userRepo);
-    CompletableFuture<List<ReturnedChallenge>> challenges =
-        challengesService.getAllChallenges(apiVersion, currentUser);
-    CompletableFuture<List<Friend>> friendsLeaderboard =
-        friendshipService.getFriendsLeaderboard(apiVersion, currentUser);
-    CompletableFuture<List<Group>> groups = groupsService.getGroups(currentUser);
+    UserHome userHome = homeFeedRepo.findHome(getCurrentUser().getUserId())
+        .orElseThrow(() -> new BadRequestException(new Status(Status.USER_NOT_FOUND_ERROR)));
 
-    try {
-      getHomeResponse.setData(Body
-          .builder()
-          .challenges(challenges.get())
-          .friends(friendsLeaderboard.get())
-          .groups(groups.get())
-          .build()
-      );
-    } catch (InterruptedException e) {
-      GetHomeResponse errorResponse = new GetHomeResponse();
-      errorResponse.setStatus(new Status(Status.DEFAULT_ERROR));
-      logger.error("Concurrency error", e);
-      return ResponseEntity.badRequest().body(errorResponse);
-    } catch (ExecutionException e) {
-      GetHomeResponse errorResponse = new GetHomeResponse();
-      errorResponse.setStatus(new Status(Status.DEFAULT_ERROR));
-      logger.error("Concurrency error", e);
-      return ResponseEntity.badRequest().body(errorResponse);
-    }
+    GetHomeResponse getHomeResponse = new GetHomeResponse();
+    getHomeResponse.setData(Body
+        .builder()
+        .challenges(challengesService.getAllChallenges(apiVersion, userHome))
+        .friends(userHome.getFriendships().isEmpty() ? new ArrayList<>()
+            : FriendshipService.getFriendsLeaderboard(apiVersion,
+                userHome.getFriendships().get(0)))
+        .groups(userHome.getGroups())
+        .build()
+    );
 
-    challengesCleanerService.cleanOldUserChallengesAsync(currentUser);
-    return ResponseEntity.ok(getHomeResponse);
+    challengesCleanerService.cleanOldUserChallengesAsync(userHome);
+    // The ETag is the one read before loading the home, so it is at worst older than the returned
+    // home, which only makes the next request return the home again.
+    return etag.map(value -> ResponseEntity.ok().eTag(value))
+        .orElseGet(ResponseEntity::ok)
+        .body(getHomeResponse);
   }
 }
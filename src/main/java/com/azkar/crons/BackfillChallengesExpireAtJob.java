@@ -0,0 +1,75 @@
+package com.azkar.crons;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.azkar.crons.batch.BatchJob;
+import com.azkar.crons.batch.BatchStep;
+import com.azkar.crons.batch.DocumentUpdate;
+import com.azkar.crons.batch.MongoBulkUpdateWriter;
+import com.azkar.crons.batch.MongoKeysetReader;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.services.ChallengesRetentionService;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sets the expireAt of the challenges that were created before {@link ChallengesRetentionService}
+ * existed, so that they are also deleted by the TTL index.
+ */
+@Component
+public class BackfillChallengesExpireAtJob extends BatchJob {
+
+  private static final int READ_BATCH_SIZE = 500;
+  private static final String EXPIRY_DATE_FIELD = "expiryDate";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ChallengesRetentionService challengesRetentionService;
+
+  @Value("${backfill-challenges-expire-at-job-run-mode}")
+  public boolean jobMode;
+
+  @Override
+  protected String getName() {
+    return "Backfill challenges expireAt";
+  }
+
+  @Override
+  protected boolean isJobMode() {
+    return jobMode;
+  }
+
+  @Override
+  protected List<BatchStep<?, ?>> getSteps() {
+    List<BatchStep<?, ?>> steps = new ArrayList<>();
+    if (!challengesRetentionService.enabled) {
+      return steps;
+    }
+    for (Class<? extends ChallengeBase> challengeClass :
+        ChallengesRetentionService.RETAINED_CHALLENGE_CLASSES) {
+      steps.add(BatchStep.<Document, DocumentUpdate>builder()
+          .name("Backfill expireAt of " + mongoTemplate.getCollectionName(challengeClass))
+          .reader(new MongoKeysetReader(mongoTemplate, challengeClass,
+              where(ChallengesRetentionService.EXPIRE_AT_FIELD).exists(false)
+                  .and(EXPIRY_DATE_FIELD).exists(true),
+              EXPIRY_DATE_FIELD))
+          .processor(challenge -> Optional.of(new DocumentUpdate(challenge.get("_id"),
+              new Update().set(ChallengesRetentionService.EXPIRE_AT_FIELD,
+                  challengesRetentionService.getExpireAt(
+                      ((Number) challenge.get(EXPIRY_DATE_FIELD)).longValue())))))
+          .writer(new MongoBulkUpdateWriter(mongoTemplate, challengeClass))
+          .batchSize(READ_BATCH_SIZE)
+          .build());
+    }
+    return steps;
+  }
+}
@@ -1,226 +1,93 @@
 package com.azkar.crons;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.azkar.crons.batch.BatchJob;
+import com.azkar.crons.batch.BatchStep;
+import com.azkar.crons.batch.DocumentUpdate;
+import com.azkar.crons.batch.MongoBulkUpdateWriter;
+import com.azkar.crons.batch.MongoKeysetReader;
 import com.azkar.entities.Friendship;
-import com.azkar.entities.Friendship.Friend;
 import com.azkar.entities.PubliclyAvailableFemaleUser;
 import com.azkar.entities.PubliclyAvailableMaleUser;
 import com.azkar.entities.User;
-import com.azkar.repos.FriendshipRepo;
-import com.azkar.repos.PubliclyAvailableFemaleUsersRepo;
-import com.azkar.repos.PubliclyAvailableMaleUsersRepo;
-import com.azkar.repos.UserRepo;
+import java.util.Arrays;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import org.bson.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.ApplicationArguments;
-import org.springframework.boot.ApplicationRunner;
-import org.springframework.boot.SpringApplication;
-import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
-@Component public class BackfillNullLastNamesJob implements ApplicationRunner {
+@Component
+public class BackfillNullLastNamesJob extends BatchJob {
 
   private static final Logger logger = LoggerFactory.getLogger(BackfillNullLastNamesJob.class);
   private static final int READ_BATCH_SIZE = 100;
 
   @Autowired
-  private UserRepo userRepo;
-
-  @Autowired
-  private FriendshipRepo friendshipRepo;
-
-  @Autowired
-  private PubliclyAvailableMaleUsersRepo publiclyAvailableMaleUsersRepo;
-
-  @Autowired
-  private PubliclyAvailableFemaleUsersRepo publiclyAvailableFemaleUsersRepo;
-
-  @Autowired
-  private ApplicationContext appContext;
+  private MongoTemplate mongoTemplate;
 
   @Value("${backfill-null-lastnames-job-run-mode}")
   public boolean jobMode;
 
-  // A cleanup after the fix https://github.com/tanafaso/tanafaso-backend/pull/465.
-  @Override public void run(ApplicationArguments args) throws Exception {
-    if (!jobMode) {
-      logger.info(
-          "[Backfill null lastnames] skipping as the application is not running in job mode");
-      return;
-    }
-
-    backfillUsers();
-    backfillFriendships();
-    backfillPubliclyAvailableMales();
-    backfillPublicklyAvailableFemales();
-
-    logger.info("[Backfill null lastnames] finished all backfilles!");
-
-    SpringApplication.exit(appContext, () -> 0);
+  @Override
+  protected String getName() {
+    return "Backfill null lastnames";
   }
 
-  public void backfillUsers() {
-    logger.info("[Backfill null lastnames of users] started!");
-
-    long numberOfUsers = userRepo.count();
-    logger.info("[Backfill null lastnames of users] number of users to be processed: {}",
-        numberOfUsers);
-    logger.info("[Backfill null lastnames of users] users will be processed in batches of {}",
-        READ_BATCH_SIZE);
-
-    long numberOfBatches = (numberOfUsers + READ_BATCH_SIZE - 1) / READ_BATCH_SIZE;
-    logger.info("[Backfill null lastnames of users] number of batches to be processed: {}",
-        numberOfBatches);
-
-    AtomicInteger backfilledUsernames = new AtomicInteger();
-    for (int batch = 0; batch < numberOfBatches; batch++) {
-      Page<User> page = userRepo.findAll(PageRequest.of(batch, READ_BATCH_SIZE));
-      List<User> modifiedUsers = page.get().map(user -> {
-        if (user.getLastName() == null) {
-          logger.info("[Backfill null lastnames of users] backfilled lastname of user {}",
-              user.getUsername());
-          user.setLastName("");
-          backfilledUsernames.incrementAndGet();
-        }
-        return user;
-      }).collect(Collectors.toList());
-
-      userRepo.saveAll(modifiedUsers);
-
-      logger.info("[Backfill null lastnames of users] processed {}/{} batches", batch + 1,
-          numberOfBatches);
-    }
-    logger.info("[Backfill null lastnames of users] backfilled lastnames of {} users",
-        backfilledUsernames);
+  @Override
+  protected boolean isJobMode() {
+    return jobMode;
   }
 
-  public void backfillFriendships() {
-    logger.info("[Backfill Null lastnames of friendships] started!");
-
-    long numberOfFriendships = friendshipRepo.count();
-    logger.info(
-        "[Backfill Null lastnames of friendships] number of friendships to be processed: {}",
-        numberOfFriendships);
-    logger.info(
-        "[Backfill Null lastnames of friendships] friendships will be processed in batches of {}",
-        READ_BATCH_SIZE);
-
-    long numberOfBatches = (numberOfFriendships + READ_BATCH_SIZE - 1) / READ_BATCH_SIZE;
-    logger.info("[Backfill Null lastnames of friendships] number of batches to be processed: {}",
-        numberOfBatches);
-
-    AtomicInteger cleanedFriendsCounter = new AtomicInteger();
-    for (int batch = 0; batch < numberOfBatches; batch++) {
-      Page<Friendship> page = friendshipRepo.findAll(PageRequest.of(batch, READ_BATCH_SIZE));
-
-      List<Friendship> modifiedFriendships = page.get().map(friendship -> {
-
-        AtomicInteger friendsWithNullLastnameCounter = new AtomicInteger();
-        List<Friend> cleanedFriendships = friendship.getFriends().stream().map(friend -> {
-          if (friend.getLastName() == null) {
-            friend.setLastName("");
-            friendsWithNullLastnameCounter.incrementAndGet();
-          }
-          return friend;
-        }).collect(Collectors.toList());
-
-        if (friendsWithNullLastnameCounter.get() != 0) {
-          friendship.setFriends(cleanedFriendships);
-          logger.info(
-              "[Backfill Null lastnames of friendships] cleaned lastnames of {} friends for "
-                  + "user {}", friendsWithNullLastnameCounter, friendship.getUserId());
-        }
-        cleanedFriendsCounter.addAndGet(friendsWithNullLastnameCounter.get());
-        return friendship;
-      }).collect(Collectors.toList());
-
-      friendshipRepo.saveAll(modifiedFriendships);
-
-      logger.info("[Backfill Null lastnames of friendships] processed {}/{} batches", batch + 1,
-          numberOfBatches);
-    }
+  // A cleanup after the fix https://github.com/tanafaso/tanafaso-backend/pull/465.
+  @Override
+  protected List<BatchStep<?, ?>> getSteps() {
+    return Arrays.asList(
+        backfillLastNameStep("Backfill null lastnames of users", User.class, "username"),
+        backfillFriendshipsStep(),
+        backfillLastNameStep("Backfill null lastnames of public males",
+            PubliclyAvailableMaleUser.class, "userId"),
+        backfillLastNameStep("Backfill null lastnames of public females",
+            PubliclyAvailableFemaleUser.class, "userId"));
   }
 
-  public void backfillPubliclyAvailableMales() {
-    logger.info("[Backfill null lastnames of public males] started!");
-
-    long numberOfPubliclyAvailableMales = publiclyAvailableMaleUsersRepo.count();
-    logger.info(
-        "[Backfill null lastnames of public males] number of public males to be processed: {}",
-        numberOfPubliclyAvailableMales);
-    logger.info(
-        "[Backfill null lastnames of public males] public males will be processed in batches of {}",
-        READ_BATCH_SIZE);
-
-    long numberOfBatches = (numberOfPubliclyAvailableMales + READ_BATCH_SIZE - 1) / READ_BATCH_SIZE;
-    logger.info("[Backfill null lastnames of public males] number of batches to be processed: {}",
-        numberOfBatches);
-
-    AtomicInteger backfilledPubliclyAvaialbleMales = new AtomicInteger();
-    for (int batch = 0; batch < numberOfBatches; batch++) {
-      Page<PubliclyAvailableMaleUser> page =
-          publiclyAvailableMaleUsersRepo.findAll(PageRequest.of(batch, READ_BATCH_SIZE));
-      List<PubliclyAvailableMaleUser> modifiedUsers = page.get().map(user -> {
-        if (user.getLastName() == null) {
-          user.setLastName("");
-          logger.info("[Backfill null lastnames of public males] backfilled lastname of user {}",
-              user.getUserId());
-          backfilledPubliclyAvaialbleMales.incrementAndGet();
-        }
-        return user;
-      }).collect(Collectors.toList());
-
-      publiclyAvailableMaleUsersRepo.saveAll(modifiedUsers);
-
-      logger.info("[Backfill null lastnames of public males] processed {}/{} batches", batch + 1,
-          numberOfBatches);
-    }
-    logger.info("[Backfill null lastnames of public males] backfilled lastnames of {} users",
-        backfilledPubliclyAvaialbleMales);
+  private BatchStep<Document, DocumentUpdate> backfillLastNameStep(String name,
+      Class<?> entityClass, String loggedField) {
+    return BatchStep.<Document, DocumentUpdate>builder()
+        .name(name)
+        .reader(new MongoKeysetReader(mongoTemplate, entityClass, where("lastName").is(null),
+            loggedField))
+        .processor(document -> {
+          logger.info("[{}] backfilled lastname of user {}", name, document.get(loggedField));
+          return Optional.of(
+              new DocumentUpdate(document.get("_id"), new Update().set("lastName", "")));
+        })
+        .writer(new MongoBulkUpdateWriter(mongoTemplate, entityClass))
+        .batchSize(READ_BATCH_SIZE)
+        .build();
   }
 
-  public void backfillPublicklyAvailableFemales() {
-    logger.info("[Backfill null lastnames of public females] started!");
-
-    long numberOfPubliclyAvailableFemales = publiclyAvailableFemaleUsersRepo.count();
-    logger.info(
-        "[Backfill null lastnames of public females] number of public females to be processed: {}",
-        numberOfPubliclyAvailableFemales);
-    logger.info(
-        "[Backfill null lastnames of public females] public females will be processed in batches of"
-            + " {}", READ_BATCH_SIZE);
-
-    long numberOfBatches =
-        (numberOfPubliclyAvailableFemales + READ_BATCH_SIZE - 1) / READ_BATCH_SIZE;
-    logger.info("[Backfill null lastnames of public females] number of batches to be processed: {}",
-        numberOfBatches);
-
-    AtomicInteger backfilledPubliclyAvaialbleFemales = new AtomicInteger();
-    for (int batch = 0; batch < numberOfBatches; batch++) {
-      Page<PubliclyAvailableFemaleUser> page =
-          publiclyAvailableFemaleUsersRepo.findAll(PageRequest.of(batch, READ_BATCH_SIZE));
-      List<PubliclyAvailableFemaleUser> modifiedUsers = page.get().map(user -> {
-        if (user.getLastName() == null) {
-          user.setLastName("");
-          logger.info("[Backfill null lastnames of public females] backfilled lastname of user {}",
-              user.getUserId());
-          backfilledPubliclyAvaialbleFemales.incrementAndGet();
-        }
-        return user;
-      }).collect(Collectors.toList());
-
-      publiclyAvailableFemaleUsersRepo.saveAll(modifiedUsers);
-
-      logger.info("[Backfill null lastnames of public females] processed {}/{} batches", batch + 1,
-          numberOfBatches);
-    }
-    logger.info("[Backfill null lastnames of public females] backfilled lastnames of {} users",
-        backfilledPubliclyAvaialbleFemales);
+  private BatchStep<Document, DocumentUpdate> backfillFriendshipsStep() {
+    String name = "Backfill null lastnames of friendships";
+    return BatchStep.<Document, DocumentUpdate>builder()
+        .name(name)
+        .reader(new MongoKeysetReader(mongoTemplate, Friendship.class,
+            where("friends").elemMatch(where("lastName").is(null)), "userId"))
+        .processor(friendship -> {
+          logger.info("[{}] cleaned lastnames of friends for user {}", name,
+              friendship.get("userId"));
+          return Optional.of(new DocumentUpdate(friendship.get("_id"),
+              new Update().set("friends.$[friend].lastName", "")
+                  .filterArray(where("friend.lastName").is(null))));
+        })
+        .writer(new MongoBulkUpdateWriter(mongoTemplate, Friendship.class))
+        .batchSize(READ_BATCH_SIZE)
+        .build();
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.azkar.crons;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.Friendship;
+import com.azkar.entities.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Sets the version of the users and friendships that were created before they were versioned.
+ * Documents without a version can still be saved, but they are only protected against concurrent
+ * writes once they have a version, so this should run after all instances are versioned.
+ */
+@Component
+public class BackfillVersionsJob implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(BackfillVersionsJob.class);
+
+  @Value("${backfill-versions-job-run-mode}")
+  public boolean jobMode;
+  @Autowired
+  private MongoTemplate mongoTemplate;
+  @Autowired
+  private ApplicationContext appContext;
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    if (!jobMode) {
+      logger.info("[Backfill versions] skipping as the application is not running in job mode");
+      return;
+    }
+
+    logger.info("[Backfill versions] started!");
+    logger.info("[Backfill versions] backfilled {} users", backfill(User.class));
+    logger.info("[Backfill versions] backfilled {} friendships", backfill(Friendship.class));
+    logger.info("[Backfill versions] finished!");
+
+    SpringApplication.exit(appContext, () -> 0);
+  }
+
+  private long backfill(Class<?> entityClass) {
+    return mongoTemplate.updateMulti(query(where("version").exists(false)),
+        new Update().set("version", 0L), entityClass).getModifiedCount();
+  }
+}
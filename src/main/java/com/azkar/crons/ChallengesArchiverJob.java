@@ -0,0 +1,128 @@
+package com.azkar.crons;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.crons.batch.BatchJob;
+import com.azkar.crons.batch.BatchStep;
+import com.azkar.crons.batch.MongoKeysetReader;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.services.ChallengesRetentionService;
+import com.mongodb.client.model.CreateCollectionOptions;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation.WhenDocumentsDontMatch;
+import org.springframework.data.mongodb.core.aggregation.MergeOperation.WhenDocumentsMatch;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Copies the challenges that are about to be deleted by the TTL index of {@link
+ * ChallengesRetentionService} to archive collections, which are compressed with {@code
+ * challenges-archive-block-compressor}. Only the challenges that will be deleted within {@code
+ * challenges-archiver-lead-time-days} are copied, so the job should be run more often than that
+ * for no challenge to be deleted before being archived.
+ */
+@Component
+public class ChallengesArchiverJob extends BatchJob {
+
+  private static final Logger logger = LoggerFactory.getLogger(ChallengesArchiverJob.class);
+
+  private static final int CHALLENGES_BATCH_SIZE = 500;
+  private static final String ARCHIVE_COLLECTION_SUFFIX = "_archive";
+  // Set on the archived challenges so that they are not archived again by the next runs.
+  private static final String ARCHIVED_AT_FIELD = "archivedAt";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Value("${challenges-archiver-job-run-mode}")
+  public boolean jobMode;
+
+  @Value("${challenges-archiver-lead-time-days}")
+  public long leadTimeDays;
+
+  @Value("${challenges-archive-block-compressor}")
+  public String blockCompressor;
+
+  @Override
+  protected String getName() {
+    return "Challenges archiver";
+  }
+
+  @Override
+  protected boolean isJobMode() {
+    return jobMode;
+  }
+
+  @Override
+  protected List<BatchStep<?, ?>> getSteps() {
+    Date archivedExpireAt = Date.from(Instant.now().plus(Duration.ofDays(leadTimeDays)));
+    List<BatchStep<?, ?>> steps = new ArrayList<>();
+    for (Class<? extends ChallengeBase> challengeClass :
+        ChallengesRetentionService.RETAINED_CHALLENGE_CLASSES) {
+      String collectionName = mongoTemplate.getCollectionName(challengeClass);
+      String archiveCollectionName = collectionName + ARCHIVE_COLLECTION_SUFFIX;
+      ensureArchiveCollection(archiveCollectionName);
+
+      Criteria toBeArchived = where(ChallengesRetentionService.EXPIRE_AT_FIELD)
+          .lte(archivedExpireAt)
+          .and(ARCHIVED_AT_FIELD).exists(false);
+      steps.add(BatchStep.<Document, Object>builder()
+          .name("Challenges archiver: " + collectionName)
+          .reader(new MongoKeysetReader(mongoTemplate, challengeClass, toBeArchived))
+          .processor(challenge -> Optional.of(challenge.get("_id")))
+          .writer(challengesIds -> archive(collectionName, archiveCollectionName, challengesIds))
+          .batchSize(CHALLENGES_BATCH_SIZE)
+          .build());
+    }
+    return steps;
+  }
+
+  // The challenges are copied by the database itself, so they are never loaded by the job. A
+  // challenge that was copied but not marked as archived is copied again by the next run, which
+  // only replaces its previous copy.
+  private long archive(String collectionName, String archiveCollectionName,
+      List<Object> challengesIds) {
+    MergeOperation mergeIntoArchive = MergeOperation.builder()
+        .intoCollection(archiveCollectionName)
+        .on("_id")
+        .whenMatched(WhenDocumentsMatch.replaceDocument())
+        .whenDocumentsDontMatch(WhenDocumentsDontMatch.insertNewDocument())
+        .build();
+    mongoTemplate.aggregate(
+        newAggregation(match(where("_id").in(challengesIds)), mergeIntoArchive),
+        collectionName, Document.class);
+
+    Update markArchived = new Update().set(ARCHIVED_AT_FIELD, new Date());
+    return mongoTemplate.updateMulti(query(where("_id").in(challengesIds)), markArchived,
+        collectionName).getModifiedCount();
+  }
+
+  // The compression of a collection can only be chosen when it is created.
+  private void ensureArchiveCollection(String archiveCollectionName) {
+    if (mongoTemplate.collectionExists(archiveCollectionName)) {
+      return;
+    }
+    logger.info("[{}] creating {} compressed with {}", getName(), archiveCollectionName,
+        blockCompressor);
+    Document wiredTigerOptions =
+        new Document("configString", "block_compressor=" + blockCompressor);
+    mongoTemplate.getDb().createCollection(archiveCollectionName, new CreateCollectionOptions()
+        .storageEngineOptions(new Document("wiredTiger", wiredTigerOptions)));
+  }
+}
@@ -1,99 +1,103 @@
 package com.azkar.crons;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.azkar.crons.batch.BatchJob;
+import com.azkar.crons.batch.BatchStep;
+import com.azkar.crons.batch.MongoKeysetReader;
 import com.azkar.entities.User;
+import com.azkar.entities.challenges.ChallengeType;
 import com.azkar.repos.UserRepo;
+import com.azkar.repos.UserRepoCustomImpl;
+import com.azkar.services.ChallengesRetentionService;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Optional;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.ApplicationArguments;
-import org.springframework.boot.ApplicationRunner;
-import org.springframework.boot.SpringApplication;
-import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.stereotype.Component;
 
 @Component
-public class ChallengesCleanerJob implements ApplicationRunner {
+public class ChallengesCleanerJob extends BatchJob {
 
-  private static final Logger logger = LoggerFactory.getLogger(ChallengesCleanerJob.class);
-  private static final int USERS_BATCH_SIZE = 100;
+  private static final int USERS_BATCH_SIZE = 1000;
+  private static final ChallengeType[] TRIMMED_CHALLENGE_TYPES =
+      UserRepoCustomImpl.TRIMMED_CHALLENGE_TYPES.toArray(new ChallengeType[0]);
 
   @Autowired
   private UserRepo userRepo;
 
   @Autowired
-  private ApplicationContext appContext;
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private ChallengesRetentionService challengesRetentionService;
 
   @Value("${challenges-cleaner-job-run-mode}")
   public boolean jobMode;
 
+  @Override
+  protected String getName() {
+    return "Challenges cleaner";
+  }
+
+  @Override
+  protected boolean isJobMode() {
+    return jobMode;
+  }
+
   // Run every while to clean old challenges. Note that although after every challenge creation
   // done by a certain user, we clean the old challenges for this user, that's not enough because
   // we don't clean for all other users who are also part of that challenge.
+  //
+  // Only the IDs of the users that have too many challenges are read, and every batch of them is
+  // trimmed with a single write. If the challenges retention is enabled, the challenges that are
+  // no longer retained are also removed from the users the same way.
   @Override
-  public void run(ApplicationArguments args) throws Exception {
-    if (!jobMode) {
-      logger.info("[Challenges cleaner] skipping as the application is not running in job mode");
-      return;
+  protected List<BatchStep<?, ?>> getSteps() {
+    List<BatchStep<?, ?>> steps = new ArrayList<>();
+    steps.add(BatchStep.<Document, Object>builder()
+        .name("Challenges cleaner")
+        .reader(new MongoKeysetReader(mongoTemplate, User.class, anyChallengesExceedLimit()))
+        .processor(user -> Optional.of(user.get("_id")))
+        .writer(usersIds -> userRepo.trimChallenges(usersIds,
+            UserRepoCustomImpl.MAX_USER_CHALLENGES_WITH_SAME_TYPE, TRIMMED_CHALLENGE_TYPES))
+        .batchSize(USERS_BATCH_SIZE)
+        .build());
+    if (challengesRetentionService.enabled) {
+      long oldestRetainedExpiryDate = challengesRetentionService.getOldestRetainedExpiryDate();
+      steps.add(BatchStep.<Document, Object>builder()
+          .name("Challenges cleaner: not retained challenges")
+          .reader(new MongoKeysetReader(mongoTemplate, User.class,
+              anyChallengesExpiredBefore(oldestRetainedExpiryDate)))
+          .processor(user -> Optional.of(user.get("_id")))
+          .writer(usersIds -> userRepo.removeChallengesExpiredBefore(usersIds,
+              oldestRetainedExpiryDate, ChallengeType.values()))
+          .batchSize(USERS_BATCH_SIZE)
+          .build());
     }
+    return steps;
+  }
 
-    logger.info("[Challenges cleaner] started!");
-
-    long numberOfUsers = userRepo.count();
-    logger.info("[Challenges cleaner] number of users to be processed: {}", numberOfUsers);
-    logger.info("[Challenges cleaner] users will be processed in batches of {}", USERS_BATCH_SIZE);
-
-    long numberOfBatches = (numberOfUsers + USERS_BATCH_SIZE - 1) / USERS_BATCH_SIZE;
-    logger.info("[Challenges cleaner] number of batches to be processed: {}", numberOfBatches);
-
-    AtomicInteger cleanedChallenges = new AtomicInteger();
-    for (int batch = 0; batch < numberOfBatches; batch++) {
-      Page<User> page = userRepo.findAll(PageRequest.of(batch, USERS_BATCH_SIZE));
-      List<User> modifiedUsers = page.get().map(user -> {
-        int userChallengesBeforeCleaning =
-            user.getAzkarChallenges().size() + user.getReadingQuranChallenges().size()
-                + user.getMeaningChallenges().size() + user.getMemorizationChallenges().size();
-
-        user.setAzkarChallenges(user.getAzkarChallenges().subList(
-            Math.max(0, user.getAzkarChallenges().size() - 30),
-            user.getAzkarChallenges().size()));
-
-        user.setReadingQuranChallenges(user.getReadingQuranChallenges().subList(
-            Math.max(0, user.getReadingQuranChallenges().size() - 30),
-            user.getReadingQuranChallenges().size()));
-
-        user.setMeaningChallenges(user.getMeaningChallenges().subList(
-            Math.max(0, user.getMeaningChallenges().size() - 30),
-            user.getMeaningChallenges().size()));
-
-        user.setMemorizationChallenges(user.getMemorizationChallenges().subList(
-            Math.max(0, user.getMemorizationChallenges().size() - 30),
-            user.getMemorizationChallenges().size()));
-
-        int userChallengesAfterCleaning =
-            user.getAzkarChallenges().size() + user.getReadingQuranChallenges().size()
-                + user.getMeaningChallenges().size() + user.getMemorizationChallenges().size();
-
-        if (userChallengesBeforeCleaning != userChallengesAfterCleaning) {
-          logger.info("[Challenges cleaner] cleaned {} challenges for user {}",
-              userChallengesBeforeCleaning - userChallengesAfterCleaning, user.getId());
-        }
-        cleanedChallenges.addAndGet((userChallengesBeforeCleaning - userChallengesAfterCleaning));
-        return user;
-      }).collect(Collectors.toList());
-
-      userRepo.saveAll(modifiedUsers);
-
-      logger.info("[Challenges cleaner] processed {}/{} batches", batch + 1, numberOfBatches);
+  private static Criteria anyChallengesExceedLimit() {
+    Criteria[] anyExceedsLimit = new Criteria[TRIMMED_CHALLENGE_TYPES.length];
+    for (int i = 0; i < TRIMMED_CHALLENGE_TYPES.length; i++) {
+      anyExceedsLimit[i] = where(UserRepoCustomImpl.getChallengesField(TRIMMED_CHALLENGE_TYPES[i])
+          + "." + UserRepoCustomImpl.MAX_USER_CHALLENGES_WITH_SAME_TYPE).exists(true);
     }
+    return new Criteria().orOperator(anyExceedsLimit);
+  }
 
-    logger.info("[Challenges cleaner] finished! Cleaned {} challenges", cleanedChallenges);
-
-    SpringApplication.exit(appContext, () -> 0);
+  private static Criteria anyChallengesExpiredBefore(long expiryDate) {
+    ChallengeType[] challengeTypes = ChallengeType.values();
+    Criteria[] anyExpired = new Criteria[challengeTypes.length];
+    for (int i = 0; i < challengeTypes.length; i++) {
+      anyExpired[i] = where(UserRepoCustomImpl.getChallengesField(challengeTypes[i])
+          + ".expiryDate").lt(expiryDate);
+    }
+    return new Criteria().orOperator(anyExpired);
   }
-}
\ No newline at end of file
+}
@@ -1,84 +1,54 @@
 package com.azkar.crons;
 
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.azkar.crons.batch.BatchJob;
+import com.azkar.crons.batch.BatchStep;
+import com.azkar.crons.batch.DocumentUpdate;
+import com.azkar.crons.batch.MongoBulkUpdateWriter;
+import com.azkar.crons.batch.MongoKeysetReader;
 import com.azkar.entities.Friendship;
-import com.azkar.entities.Friendship.Friend;
-import com.azkar.repos.FriendshipRepo;
+import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Optional;
+import org.bson.Document;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.ApplicationArguments;
-import org.springframework.boot.ApplicationRunner;
-import org.springframework.boot.SpringApplication;
-import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Component;
 
 @Component
-public class FriendshipEmptyGroupIdCleanerJob implements ApplicationRunner {
+public class FriendshipEmptyGroupIdCleanerJob extends BatchJob {
 
-  private static final Logger logger =
-      LoggerFactory.getLogger(FriendshipEmptyGroupIdCleanerJob.class);
   private static final int FRIENDSHIPS_BATCH_SIZE = 100;
   @Value("${friendship-empty-group-id-cleaner-job-run-mode}")
   public boolean jobMode;
   @Autowired
-  private FriendshipRepo friendshipRepo;
-  @Autowired
-  private ApplicationContext appContext;
+  private MongoTemplate mongoTemplate;
 
-  // This is a cleanup after the fix:
-  // https://github.com/tanafaso/tanafaso-backend/pull/463.
   @Override
-  public void run(ApplicationArguments args) throws Exception {
-    if (!jobMode) {
-      logger.info(
-          "[Empty group ID cleaner] skipping as the application is not running in job mode");
-      return;
-    }
-
-    logger.info("[Empty group ID cleaner] started!");
-
-    long numberOfFriendships = friendshipRepo.count();
-    logger.info("[Empty group ID cleaner] number of friendships to be processed: {}",
-        numberOfFriendships);
-    logger.info("[Empty group ID cleaner] friendships will be processed in batches of {}",
-        FRIENDSHIPS_BATCH_SIZE);
-
-    long numberOfBatches =
-        (numberOfFriendships + FRIENDSHIPS_BATCH_SIZE - 1) / FRIENDSHIPS_BATCH_SIZE;
-    logger.info("[Empty group ID cleaner] number of batches to be processed: {}", numberOfBatches);
-
-    AtomicInteger cleanedFriendshps = new AtomicInteger();
-    for (int batch = 0; batch < numberOfBatches; batch++) {
-      Page<Friendship> page = friendshipRepo.findAll(PageRequest.of(batch, FRIENDSHIPS_BATCH_SIZE));
-
-      List<Friendship> modifiedFriendships = page.get().map(friendship -> {
-        int friendsCountBeforeCleaning = friendship.getFriends().size();
-
-        List<Friend> cleanedFriendships =
-            friendship.getFriends().stream().filter(friend -> friend.getGroupId() != null)
-                .collect(Collectors.toList());
-
-        int friendsCountAfterCleaning = cleanedFriendships.size();
-        int cleanedFriendshipsCount = friendsCountBeforeCleaning - friendsCountAfterCleaning;
-        if (cleanedFriendshipsCount != 0) {
-          friendship.setFriends(cleanedFriendships);
-          logger.info("[Empty group ID cleaner] cleaned {} friendships for user {}",
-              cleanedFriendshipsCount, friendship.getUserId());
-        }
-        cleanedFriendshps.addAndGet((cleanedFriendshipsCount));
-        return friendship;
-      }).collect(Collectors.toList());
+  protected String getName() {
+    return "Empty group ID cleaner";
+  }
 
-      friendshipRepo.saveAll(modifiedFriendships);
+  @Override
+  protected boolean isJobMode() {
+    return jobMode;
+  }
 
-      logger.info("[Empty group ID cleaner] processed {}/{} batches", batch + 1, numberOfBatches);
-    }
-    SpringApplication.exit(appContext, () -> 0);
+  // This is a cleanup after the fix:
+  // https://github.com/tanafaso/tanafaso-backend/pull/463.
+  @Override
+  protected List<BatchStep<?, ?>> getSteps() {
+    return Collections.singletonList(BatchStep.<Document, DocumentUpdate>builder()
+        .name("Empty group ID cleaner")
+        .reader(new MongoKeysetReader(mongoTemplate, Friendship.class,
+            where("friends").elemMatch(where("groupId").is(null))))
+        .processor(friendship -> Optional.of(new DocumentUpdate(friendship.get("_id"),
+            new Update().pull("friends", new Document("groupId", null)))))
+        .writer(new MongoBulkUpdateWriter(mongoTemplate, Friendship.class))
+        .batchSize(FRIENDSHIPS_BATCH_SIZE)
+        .build());
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,113 @@
+package com.azkar.crons;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.Group;
+import com.azkar.entities.GroupChallenge;
+import java.util.ArrayList;
+import java.util.List;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves the challenges IDs that used to be saved in the group documents to the group_challenges
+ * collection, see {@link GroupChallenge}. It can be run again safely if it stops in the middle.
+ */
+@Component
+public class MoveGroupChallengesIdsJob implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(MoveGroupChallengesIdsJob.class);
+  private static final int GROUPS_BATCH_SIZE = 100;
+  private static final String CHALLENGES_IDS_FIELD = "challengesIds";
+
+  @Value("${move-group-challenges-ids-job-run-mode}")
+  public boolean jobMode;
+  @Autowired
+  private MongoTemplate mongoTemplate;
+  @Autowired
+  private ApplicationContext appContext;
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    if (!jobMode) {
+      logger.info("[Move group challenges IDs] skipping as the application is not running in job"
+          + " mode");
+      return;
+    }
+
+    logger.info("[Move group challenges IDs] started!");
+
+    String groupsCollection = mongoTemplate.getCollectionName(Group.class);
+    String groupChallengesCollection = mongoTemplate.getCollectionName(GroupChallenge.class);
+    long movedGroupsCount = 0;
+    long movedChallengesCount = 0;
+    List<Document> groups;
+    do {
+      // The moved lists are unset, so the next batch always starts from the first group that
+      // still has its list.
+      Query batchQuery = query(where(CHALLENGES_IDS_FIELD).exists(true))
+          .with(Sort.by(Direction.ASC, "_id"))
+          .limit(GROUPS_BATCH_SIZE);
+      batchQuery.fields().include(CHALLENGES_IDS_FIELD).include("createdAt");
+      groups = mongoTemplate.find(batchQuery, Document.class, groupsCollection);
+
+      // The entries are upserted so that a batch can be moved again if the job stopped before
+      // unsetting its lists. They are written as raw updates so that the auditing doesn't
+      // override their creation times with the current time.
+      BulkOperations bulkOperations =
+          mongoTemplate.bulkOps(BulkMode.UNORDERED, groupChallengesCollection);
+      long batchChallengesCount = 0;
+      List<Object> groupsIds = new ArrayList<>();
+      for (Document group : groups) {
+        groupsIds.add(group.get("_id"));
+        for (String challengeId : group.getList(CHALLENGES_IDS_FIELD, String.class)) {
+          bulkOperations.upsert(
+              query(where("groupId").is(group.get("_id").toString())
+                  .and("challengeId").is(challengeId)),
+              new Update().setOnInsert("createdAt", getCreatedAt(challengeId, group)));
+          batchChallengesCount++;
+        }
+      }
+
+      if (batchChallengesCount > 0) {
+        bulkOperations.execute();
+      }
+      mongoTemplate.updateMulti(query(where("_id").in(groupsIds)),
+          new Update().unset(CHALLENGES_IDS_FIELD), groupsCollection);
+
+      movedGroupsCount += groups.size();
+      movedChallengesCount += batchChallengesCount;
+      logger.info("[Move group challenges IDs] moved {} challenges of {} groups so far",
+          movedChallengesCount, movedGroupsCount);
+    } while (groups.size() == GROUPS_BATCH_SIZE);
+
+    logger.info("[Move group challenges IDs] finished!");
+    SpringApplication.exit(appContext, () -> 0);
+  }
+
+  // Challenges IDs are object IDs, so their creation times can be recovered from them.
+  private static long getCreatedAt(String challengeId, Document group) {
+    if (ObjectId.isValid(challengeId)) {
+      return new ObjectId(challengeId).getDate().getTime();
+    }
+    Object groupCreatedAt = group.get("createdAt");
+    return groupCreatedAt instanceof Number ? ((Number) groupCreatedAt).longValue() : 0;
+  }
+}
@@ -0,0 +1,97 @@
+package com.azkar.crons;
+
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.group;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.limit;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.match;
+import static org.springframework.data.mongodb.core.aggregation.Aggregation.newAggregation;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import com.azkar.entities.User;
+import com.azkar.services.UsernameRegistry;
+import java.util.List;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.AggregationOptions;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Replaces the old non-unique index on usernames with the unique index that {@link
+ * UsernameRegistry} relies on. It only needs to be run once since the application never alters
+ * an existing index on usernames. If some usernames are taken by more than one user, they are
+ * logged and the job fails without touching the index, so that they can be changed manually
+ * before running it again.
+ */
+@Component
+public class UniqueUsernameIndexJob implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(UniqueUsernameIndexJob.class);
+
+  private static final int MAX_LOGGED_DUPLICATE_USERNAMES = 100;
+
+  @Value("${unique-username-index-job-run-mode}")
+  public boolean jobMode;
+  @Autowired
+  private MongoTemplate mongoTemplate;
+  @Autowired
+  private ApplicationContext appContext;
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    if (!jobMode) {
+      logger.info("[Unique username index] skipping as the application is not running in job "
+          + "mode");
+      return;
+    }
+
+    logger.info("[Unique username index] started!");
+    createUniqueUsernameIndex();
+    logger.info("[Unique username index] finished!");
+
+    SpringApplication.exit(appContext, () -> 0);
+  }
+
+  private void createUniqueUsernameIndex() {
+    IndexOperations indexOperations = mongoTemplate.indexOps(User.class);
+    if (UsernameRegistry.hasUniqueUsernameIndex(indexOperations)) {
+      logger.info("[Unique username index] the index on usernames is already unique");
+      return;
+    }
+
+    List<Document> duplicateUsernames = findDuplicateUsernames();
+    if (!duplicateUsernames.isEmpty()) {
+      duplicateUsernames.forEach(duplicateUsername ->
+          logger.error("[Unique username index] username {} is taken by {} users",
+              duplicateUsername.get("_id"), duplicateUsername.get("count")));
+      throw new IllegalStateException("Duplicate usernames must be changed before creating a "
+          + "unique index on usernames");
+    }
+
+    // Two indexes can't have the same keys, so the old index is dropped first. Queries by
+    // username don't use an index until the new one is built.
+    if (UsernameRegistry.hasUsernameIndex(indexOperations)) {
+      indexOperations.dropIndex(UsernameRegistry.USERNAME_INDEX_NAME);
+    }
+    indexOperations.ensureIndex(UsernameRegistry.newUniqueUsernameIndex());
+    logger.info("[Unique username index] created a unique index on usernames");
+  }
+
+  private List<Document> findDuplicateUsernames() {
+    Aggregation aggregation = newAggregation(
+        match(where("username").ne(null)),
+        group("username").count().as("count"),
+        match(where("count").gt(1)),
+        limit(MAX_LOGGED_DUPLICATE_USERNAMES))
+        .withOptions(AggregationOptions.builder().allowDiskUse(true).build());
+    return mongoTemplate.aggregate(aggregation, User.class, Document.class).getMappedResults();
+  }
+}
@@ -0,0 +1,47 @@
+package com.azkar.crons.batch;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * A job that runs its steps one after the other using {@link BatchJobRunner} and then exits the
+ * application, if the application is running in the mode of this job.
+ */
+public abstract class BatchJob implements ApplicationRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchJob.class);
+
+  @Autowired
+  private BatchJobRunner batchJobRunner;
+
+  @Autowired
+  private ApplicationContext appContext;
+
+  protected abstract String getName();
+
+  protected abstract boolean isJobMode();
+
+  protected abstract List<BatchStep<?, ?>> getSteps();
+
+  @Override
+  public void run(ApplicationArguments args) throws Exception {
+    if (!isJobMode()) {
+      logger.info("[{}] skipping as the application is not running in job mode", getName());
+      return;
+    }
+
+    logger.info("[{}] started!", getName());
+    for (BatchStep<?, ?> step : getSteps()) {
+      batchJobRunner.run(step);
+    }
+    logger.info("[{}] finished!", getName());
+
+    SpringApplication.exit(appContext, () -> 0);
+  }
+}
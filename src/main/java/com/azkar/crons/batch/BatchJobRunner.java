@@ -0,0 +1,133 @@
+package com.azkar.crons.batch;
+
+import com.azkar.entities.JobCheckpoint;
+import com.azkar.repos.JobCheckpointRepo;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Runs {@link BatchStep}s. Batches are read one after the other using keyset pagination, and up to
+ * {@code batch-jobs-parallelism} of them are processed and written in parallel. After all the
+ * batches being processed in parallel are written, the key of the last of them is saved in the
+ * step's {@link JobCheckpoint}, so if the job is stopped it resumes after that key when it is run
+ * again.
+ */
+@Service
+public class BatchJobRunner {
+
+  private static final Logger logger = LoggerFactory.getLogger(BatchJobRunner.class);
+
+  @Value("${batch-jobs-parallelism}")
+  public int parallelism;
+
+  // Zero means no limit.
+  @Value("${batch-jobs-max-items-per-second}")
+  public long maxItemsPerSecond;
+
+  @Autowired
+  private JobCheckpointRepo jobCheckpointRepo;
+
+  public <I, O> void run(BatchStep<I, O> step) throws InterruptedException {
+    JobCheckpoint checkpoint = loadCheckpoint(step.getName());
+    logger.info("[{}] started after key {} with parallelism {} and batches of {}", step.getName(),
+        checkpoint.getLastKey(), parallelism, step.getBatchSize());
+
+    long startTimeMillis = System.currentTimeMillis();
+    long readCount = 0;
+    long writtenCount = 0;
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      boolean finished = false;
+      while (!finished) {
+        // Reading is sequential since every batch starts after the last key of the previous one.
+        List<List<I>> batches = new ArrayList<>();
+        Object lastKey = checkpoint.getLastKey();
+        while (batches.size() < parallelism && !finished) {
+          List<I> batch = step.getReader().read(lastKey, step.getBatchSize());
+          if (!batch.isEmpty()) {
+            batches.add(batch);
+            lastKey = step.getReader().getKey(batch.get(batch.size() - 1));
+          }
+          finished = batch.size() < step.getBatchSize();
+        }
+
+        List<CompletableFuture<Long>> writes = new ArrayList<>();
+        for (List<I> batch : batches) {
+          writes.add(CompletableFuture.supplyAsync(() -> processAndWrite(step, batch), pool));
+        }
+        // Fails the step without saving the checkpoint if any of the batches failed, so that all
+        // of them are retried when the job is run again.
+        long batchesWrittenCount = 0;
+        for (CompletableFuture<Long> write : writes) {
+          batchesWrittenCount += write.join();
+        }
+        long batchesReadCount = batches.stream().mapToLong(List::size).sum();
+        readCount += batchesReadCount;
+        writtenCount += batchesWrittenCount;
+
+        checkpoint.setLastKey(lastKey);
+        checkpoint.setReadCount(checkpoint.getReadCount() + batchesReadCount);
+        checkpoint.setWrittenCount(checkpoint.getWrittenCount() + batchesWrittenCount);
+        checkpoint.setFinished(finished);
+        jobCheckpointRepo.save(checkpoint);
+
+        logStatistics(step.getName(), startTimeMillis, readCount, writtenCount);
+        throttle(startTimeMillis, readCount);
+      }
+    } finally {
+      pool.shutdown();
+      pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    logger.info("[{}] finished! Read {} items and wrote {} documents in total", step.getName(),
+        checkpoint.getReadCount(), checkpoint.getWrittenCount());
+  }
+
+  // A step that finished starts over, otherwise it resumes from its checkpoint.
+  private JobCheckpoint loadCheckpoint(String stepName) {
+    Optional<JobCheckpoint> checkpoint = jobCheckpointRepo.findById(stepName);
+    if (checkpoint.isPresent() && !checkpoint.get().isFinished()) {
+      return checkpoint.get();
+    }
+    return JobCheckpoint.builder()
+        .id(stepName)
+        .startedAt(System.currentTimeMillis())
+        .build();
+  }
+
+  private static <I, O> long processAndWrite(BatchStep<I, O> step, List<I> batch) {
+    List<O> results = new ArrayList<>();
+    for (I item : batch) {
+      step.getProcessor().process(item).ifPresent(results::add);
+    }
+    return results.isEmpty() ? 0 : step.getWriter().write(results);
+  }
+
+  private static void logStatistics(String stepName, long startTimeMillis, long readCount,
+      long writtenCount) {
+    long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTimeMillis);
+    logger.info("[{}] read {} items and wrote {} documents in {} seconds ({} items/second)",
+        stepName, readCount, writtenCount, elapsedMillis / 1000, readCount * 1000 / elapsedMillis);
+  }
+
+  // Sleeps long enough for the average rate since the start of the step not to exceed the limit.
+  private void throttle(long startTimeMillis, long readCount) throws InterruptedException {
+    if (maxItemsPerSecond <= 0) {
+      return;
+    }
+    long minElapsedMillis = readCount * 1000 / maxItemsPerSecond;
+    long elapsedMillis = System.currentTimeMillis() - startTimeMillis;
+    if (elapsedMillis < minElapsedMillis) {
+      Thread.sleep(minElapsedMillis - elapsedMillis);
+    }
+  }
+}
@@ -0,0 +1,12 @@
+package com.azkar.crons.batch;
+
+import java.util.Optional;
+
+public interface BatchProcessor<I, O> {
+
+  /**
+   * Returns what should be written for {@code item}, or an empty optional if nothing should be
+   * written for it.
+   */
+  Optional<O> process(I item);
+}
@@ -0,0 +1,17 @@
+package com.azkar.crons.batch;
+
+import java.util.List;
+
+/**
+ * Reads the items processed by a {@link BatchStep} in pages sorted by their keys.
+ */
+public interface BatchReader<T> {
+
+  /**
+   * Reads at most {@code limit} items with keys greater than {@code afterKey}, or from the first
+   * item if {@code afterKey} is null.
+   */
+  List<T> read(Object afterKey, int limit);
+
+  Object getKey(T item);
+}
@@ -0,0 +1,22 @@
+package com.azkar.crons.batch;
+
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Getter;
+
+/**
+ * A unit of work run by {@link BatchJobRunner}: every item read by the reader is processed by the
+ * processor and the non-empty results are written by the writer in batches.
+ */
+@Getter
+@Builder
+public class BatchStep<I, O> {
+
+  // Identifies the checkpoint of the step, so it shouldn't be changed while the step is running.
+  private final String name;
+  private final BatchReader<I> reader;
+  private final BatchProcessor<I, O> processor;
+  private final BatchWriter<O> writer;
+  @Default
+  private final int batchSize = 100;
+}
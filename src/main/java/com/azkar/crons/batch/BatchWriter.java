@@ -0,0 +1,12 @@
+package com.azkar.crons.batch;
+
+import java.util.List;
+
+public interface BatchWriter<O> {
+
+  /**
+   * Writes {@code items} and returns the number of modified documents. A batch may be written
+   * again if the job is resumed after it was stopped, so writes should be idempotent.
+   */
+  long write(List<O> items);
+}
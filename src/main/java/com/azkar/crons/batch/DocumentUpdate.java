@@ -0,0 +1,16 @@
+package com.azkar.crons.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * An update of the document with the given {@code _id}.
+ */
+@Getter
+@AllArgsConstructor
+public class DocumentUpdate {
+
+  private final Object id;
+  private final Update update;
+}
@@ -0,0 +1,59 @@
+package com.azkar.crons.batch;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import java.time.Instant;
+import java.util.List;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentEntity;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Update;
+
+/**
+ * Writes the updates of a batch with a single unordered bulk write. Like the writes done by the
+ * application, the updates also set the modification time and increment the version of versioned
+ * documents.
+ */
+public class MongoBulkUpdateWriter implements BatchWriter<DocumentUpdate> {
+
+  private final MongoTemplate mongoTemplate;
+  private final Class<?> entityClass;
+  private final MongoPersistentProperty versionProperty;
+  private final MongoPersistentProperty lastModifiedDateProperty;
+
+  public MongoBulkUpdateWriter(MongoTemplate mongoTemplate, Class<?> entityClass) {
+    this.mongoTemplate = mongoTemplate;
+    this.entityClass = entityClass;
+    MongoPersistentEntity<?> entity =
+        mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(entityClass);
+    this.versionProperty = entity.getVersionProperty();
+    this.lastModifiedDateProperty = entity.getPersistentProperty(LastModifiedDate.class);
+  }
+
+  @Override
+  public long write(List<DocumentUpdate> documentUpdates) {
+    if (documentUpdates.isEmpty()) {
+      return 0;
+    }
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, entityClass);
+    for (DocumentUpdate documentUpdate : documentUpdates) {
+      bulkOperations.updateOne(query(where("_id").is(documentUpdate.getId())),
+          touch(documentUpdate.getUpdate()));
+    }
+    return bulkOperations.execute().getModifiedCount();
+  }
+
+  private Update touch(Update update) {
+    if (lastModifiedDateProperty != null) {
+      update.set(lastModifiedDateProperty.getFieldName(), Instant.now().toEpochMilli());
+    }
+    if (versionProperty != null) {
+      update.inc(versionProperty.getFieldName(), 1);
+    }
+    return update;
+  }
+}
@@ -0,0 +1,73 @@
+package com.azkar.crons.batch;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+
+import java.util.List;
+import org.bson.BsonType;
+import org.bson.Document;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+
+/**
+ * Reads the raw documents of a collection that match a filter in pages sorted by {@code _id}. Every
+ * page starts after the last {@code _id} of the previous page, so reading a page costs the same
+ * regardless of how many documents were read before it.
+ */
+public class MongoKeysetReader implements BatchReader<Document> {
+
+  private static final String ID_FIELD = "_id";
+
+  private final MongoTemplate mongoTemplate;
+  private final String collectionName;
+  private final Criteria filter;
+  private final String[] fields;
+
+  /**
+   * @param filter only documents matching this filter are read, or all documents if it is null.
+   *               The field names in the filter are the names of the fields in the database.
+   * @param fields the fields to read in addition to {@code _id}.
+   */
+  public MongoKeysetReader(MongoTemplate mongoTemplate, Class<?> entityClass, Criteria filter,
+      String... fields) {
+    this.mongoTemplate = mongoTemplate;
+    this.collectionName = mongoTemplate.getCollectionName(entityClass);
+    this.filter = filter;
+    this.fields = fields;
+  }
+
+  @Override
+  public List<Document> read(Object afterKey, int limit) {
+    Criteria criteria = filter;
+    if (afterKey != null) {
+      criteria = filter == null ? after(afterKey)
+          : new Criteria().andOperator(filter, after(afterKey));
+    }
+    Query query = (criteria == null ? new Query() : new Query(criteria))
+        .with(Sort.by(Direction.ASC, ID_FIELD))
+        .limit(limit);
+    query.fields().include(ID_FIELD);
+    for (String field : fields) {
+      query.fields().include(field);
+    }
+    return mongoTemplate.find(query, Document.class, collectionName);
+  }
+
+  @Override
+  public Object getKey(Document document) {
+    return document.get(ID_FIELD);
+  }
+
+  // Comparison operators only match values of the same type, but the IDs of some documents are
+  // strings and the IDs of the others are object IDs, which are sorted after all the strings.
+  private static Criteria after(Object afterKey) {
+    if (afterKey instanceof String) {
+      return new Criteria().orOperator(
+          where(ID_FIELD).gt(afterKey),
+          where(ID_FIELD).type(BsonType.OBJECT_ID.getValue()));
+    }
+    return where(ID_FIELD).gt(afterKey);
+  }
+}
@@ -12,6 +12,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Persistable;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -20,7 +22,7 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @Builder
 @NoArgsConstructor
 @AllArgsConstructor
-public class Friendship extends EntityBase {
+public class Friendship extends EntityBase implements Persistable<String> {
 
   @Indexed
   @Id
@@ -36,6 +38,20 @@ public class Friendship extends EntityBase {
   @JsonIgnore
   @LastModifiedDate
   private long modifiedAt;
+  // Incremented by every write so that concurrent read-modify-write operations don't overwrite
+  // each other, see OptimisticLockingRetrier.
+  @JsonIgnore
+  @Version
+  private Long version;
+
+  // Documents that were written before they were versioned are loaded with a null version, so
+  // only documents without an ID are considered new. Saving a loaded document that has no version
+  // updates it on condition that it still has no version.
+  @JsonIgnore
+  @Override
+  public boolean isNew() {
+    return id == null;
+  }
 
   @Builder
   @Data
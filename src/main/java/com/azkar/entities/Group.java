@@ -2,12 +2,10 @@ package com.azkar.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.ArrayList;
 import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
-import lombok.Builder.Default;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
@@ -41,9 +39,14 @@ public class Group extends EntityBase {
   // TODO(issue#258): Populate Group.creatorId for existing users
   private String creatorId;
   @NotNull
+  @Indexed(name = "users_ids_index")
   private List<String> usersIds;
-  @Default
-  private List<String> challengesIds = new ArrayList<>();
+  // The challenges of the group are not added here anymore, see GroupChallenge. The old lists are
+  // kept until MoveGroupChallengesIdsJob moves them, so that saving a loaded group doesn't drop
+  // its list before it is moved.
+  @Deprecated
+  @JsonIgnore
+  private List<String> challengesIds;
   @JsonIgnore
   @CreatedDate
   private long createdAt;
@@ -0,0 +1,39 @@
+package com.azkar.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * An entry in the index of the challenges of a group. The challenges of a group used to be saved
+ * in a list in the group document, which only grew, so now every challenge creation inserts one
+ * small document here instead of rewriting the group.
+ */
+@Document(collection = "group_challenges")
+// Unique so that moving the challenges IDs of a group more than once doesn't duplicate them, see
+// MoveGroupChallengesIdsJob.
+@CompoundIndex(name = "group_id_challenge_id_index", def = "{'groupId': 1, 'challengeId': 1}",
+    unique = true)
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupChallenge extends EntityBase {
+
+  @Id
+  private String id;
+  @NotNull
+  private String groupId;
+  @NotNull
+  private String challengeId;
+  @JsonIgnore
+  @CreatedDate
+  private long createdAt;
+}
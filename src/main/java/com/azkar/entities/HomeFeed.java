@@ -0,0 +1,101 @@
+package com.azkar.entities;
+
+import com.azkar.entities.challenges.AzkarChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.challenges.CustomSimpleChallenge;
+import com.azkar.entities.challenges.MeaningChallenge;
+import com.azkar.entities.challenges.MemorizationChallenge;
+import com.azkar.entities.challenges.ReadingQuranChallenge;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The challenges shown in the home of a user, kept up to date by {@code UserRepo} whenever the
+ * user copies of challenges are written so that loading the home doesn't read the user document.
+ * Only the most recent {@link #getMaxChallenges(ChallengeType)} challenges of every type are kept,
+ * and the azkar challenges don't include the azkar text.
+ *
+ * <p>The ID of the feed is the ID of its user. A feed is built from the user document the first
+ * time it is needed, see {@code HomeFeedRepo.rebuild}.
+ */
+@Document(collection = "home_feeds")
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HomeFeed extends EntityBase {
+
+  // Increasing these results in significant amount of delays in GET apiHome requests because all
+  // the challenges details will be sent by the server to the client.
+  private static final int MAX_AZKAR_CHALLENGES = 5;
+  private static final int MAX_READING_QURAN_CHALLENGES = 5;
+  private static final int MAX_MEANING_CHALLENGES = 5;
+  private static final int MAX_MEMORIZATION_CHALLENGES = 5;
+  private static final int MAX_CUSTOM_SIMPLE_CHALLENGES = 10;
+
+  @Id
+  private String id;
+  @Default
+  private List<AzkarChallenge> azkarChallenges = new ArrayList<>();
+  @Default
+  private List<MeaningChallenge> meaningChallenges = new ArrayList<>();
+  @Default
+  private List<ReadingQuranChallenge> readingQuranChallenges = new ArrayList<>();
+  @Default
+  private List<MemorizationChallenge> memorizationChallenges = new ArrayList<>();
+  @Default
+  private List<CustomSimpleChallenge> customSimpleChallenges = new ArrayList<>();
+  // The number of all the challenges of every type in the user document. This may be more than
+  // the actual number until the feed is rebuilt.
+  @Default
+  private Map<ChallengeType, Integer> challengesCounts = new EnumMap<>(ChallengeType.class);
+  // The groups of all the challenges in the user document.
+  @Default
+  private List<String> groupsIds = new ArrayList<>();
+  private long updatedAt;
+  // Incremented by every write of the feed and by every write of the friendship of the user or of
+  // the groups of their challenges, so that clients can tell whether their home changed. It never
+  // decreases, not even when the feed is rebuilt.
+  private long dataVersion;
+
+  /**
+   * Returns the number of the challenges in this feed that have expired by now. The home is sorted
+   * by whether its challenges expired, so it changes whenever this number does even if the feed
+   * wasn't written.
+   */
+  public long countExpiredChallenges() {
+    return Stream.<List<? extends ChallengeBase>>of(azkarChallenges, meaningChallenges,
+            readingQuranChallenges, memorizationChallenges, customSimpleChallenges)
+        .<ChallengeBase>flatMap(List::stream)
+        .filter(ChallengeBase::expired)
+        .count();
+  }
+
+  public static int getMaxChallenges(ChallengeType challengeType) {
+    switch (challengeType) {
+      case AZKAR:
+        return MAX_AZKAR_CHALLENGES;
+      case MEANING:
+        return MAX_MEANING_CHALLENGES;
+      case MEMORIZATION:
+        return MAX_MEMORIZATION_CHALLENGES;
+      case READING_QURAN:
+        return MAX_READING_QURAN_CHALLENGES;
+      case CUSTOM_SIMPLE:
+        return MAX_CUSTOM_SIMPLE_CHALLENGES;
+      default:
+        throw new IllegalArgumentException("Unknown challenge type: " + challengeType);
+    }
+  }
+}
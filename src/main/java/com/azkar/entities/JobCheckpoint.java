@@ -0,0 +1,34 @@
+package com.azkar.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * The progress of a step of a batch job, so that a job that was stopped resumes from where it
+ * stopped instead of starting over. See {@link com.azkar.crons.batch.BatchJobRunner}.
+ */
+@Document(collection = "job_checkpoints")
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JobCheckpoint extends EntityBase {
+
+  // The name of the step.
+  @Id
+  private String id;
+  // The key of the last item that was processed and written. All the items with smaller keys were
+  // processed and written too.
+  private Object lastKey;
+  private long readCount;
+  private long writtenCount;
+  private boolean finished;
+  private long startedAt;
+  @LastModifiedDate
+  private long modifiedAt;
+}
@@ -0,0 +1,49 @@
+package com.azkar.entities;
+
+import java.util.Date;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * A push notification waiting to be sent. Entries are written while handling the request that
+ * triggers the notification and are deleted once the notification is sent, see {@code
+ * NotificationDispatcher}, so notifications are not lost when an instance is stopped.
+ */
+@Document(collection = "notification_outbox")
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationOutboxEntry extends EntityBase {
+
+  // Notifications that could not be sent for this long are no longer relevant.
+  public static final int RETENTION_SECONDS = 24 * 60 * 60;
+
+  @Id
+  private String id;
+  @NotNull
+  private String userId;
+  @NotNull
+  private String token;
+  private String title;
+  private String body;
+  // The number of failed attempts to send the notification.
+  private int attempts;
+  // The entry is sent by the first worker that claims it at or after this time. Claiming it moves
+  // this forward so that no other worker sends it while it is being sent.
+  @NotNull
+  @Indexed(name = "next_attempt_at_index")
+  private Date nextAttemptAt;
+  // Identifies the batch that claimed the entry the last time.
+  @Indexed(name = "lease_id_index", sparse = true)
+  private String leaseId;
+  @NotNull
+  @Indexed(name = "created_at_ttl_index", expireAfterSeconds = RETENTION_SECONDS)
+  private Date createdAt;
+}
@@ -17,6 +17,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.domain.Persistable;
 import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
@@ -25,11 +27,12 @@ import org.springframework.data.mongodb.core.mapping.Document;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class User extends EntityBase {
+public class User extends EntityBase implements Persistable<String> {
 
   // Sabeq is a user that is added by default as a friend for all users so that new users can try
   // the application by sending challenges to sabeq and seeing him on the leaderboard and also so
-  // that users can use him to create personal challenges.
+  // that users can use him to create personal challenges. Sabeq is a virtual participant, i.e.
+  // his challenges, progress and friends are never written to his documents, see SabeqService.
   public static final String SABEQ_ID = "60d18088076b0b7d53e5a35a";
 
   @Indexed
@@ -45,7 +48,8 @@ public class User extends EntityBase {
   @Default
   private List<AzkarChallenge> personalChallenges = new ArrayList<>();
   private int finishedPersonalChallengesCount;
-  @Indexed(name = "username_index")
+  // The unique index on this field is created by UsernameRegistry on new databases and by
+  // UniqueUsernameIndexJob on the old ones.
   private String username;
   @NotNull
   private String firstName;
@@ -87,6 +91,20 @@ public class User extends EntityBase {
   @JsonIgnore
   @LastModifiedDate
   private long updatedAt;
+  // Incremented by every write so that concurrent read-modify-write operations don't overwrite
+  // each other, see OptimisticLockingRetrier.
+  @JsonIgnore
+  @Version
+  private Long version;
+
+  // Documents that were written before they were versioned are loaded with a null version, so
+  // only documents without an ID are considered new. Saving a loaded document that has no version
+  // updates it on condition that it still has no version.
+  @JsonIgnore
+  @Override
+  public boolean isNew() {
+    return id == null;
+  }
 
   @Builder
   @Data
@@ -0,0 +1,52 @@
+package com.azkar.entities;
+
+import com.azkar.entities.challenges.ChallengeType;
+import java.util.Date;
+import javax.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * An entry in the change log of a user, recording that something shown to the user changed so
+ * that clients can fetch only what changed since their last sync, see {@code SyncService}. The
+ * entry only identifies what changed, the current state is always read from where it is saved.
+ */
+@Document(collection = "user_changes")
+@CompoundIndex(name = "user_id_changed_at_index", def = "{'userId': 1, 'changedAt': 1}")
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChange extends EntityBase {
+
+  // Clients that didn't sync for longer than this have to load everything again.
+  public static final int RETENTION_SECONDS = 30 * 24 * 60 * 60;
+
+  @Id
+  private String id;
+  @NotNull
+  private String userId;
+  @NotNull
+  private Type type;
+  // Only set for challenge changes.
+  private ChallengeType challengeType;
+  // The ID of the changed challenge or group. Not set for friendship changes since a user has
+  // only one friendship.
+  private String entityId;
+  @NotNull
+  @Indexed(name = "changed_at_ttl_index", expireAfterSeconds = RETENTION_SECONDS)
+  private Date changedAt;
+
+  public enum Type {
+    CHALLENGE,
+    CHALLENGE_REMOVED,
+    FRIENDSHIP,
+    GROUP
+  }
+}
@@ -3,6 +3,7 @@ package com.azkar.entities.challenges;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import javax.validation.constraints.NotNull;
 import lombok.Builder.Default;
@@ -38,7 +39,9 @@ public class ChallengeBase {
   @JsonIgnore
   @LastModifiedDate
   private long modifiedAt;
-
+  // When the challenge is deleted by the TTL index, see ChallengesRetentionService.
+  @JsonIgnore
+  private Date expireAt;
 
   public boolean expired() {
     return getExpiryDate() < Instant.now().getEpochSecond();
@@ -0,0 +1,9 @@
+package com.azkar.entities.challenges;
+
+public enum ChallengeType {
+  AZKAR,
+  MEANING,
+  MEMORIZATION,
+  READING_QURAN,
+  CUSTOM_SIMPLE
+}
@@ -0,0 +1,31 @@
+package com.azkar.entities.views;
+
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import java.util.List;
+import java.util.Optional;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A view of a user document that includes the user summary and only one of the user challenges
+ * lists, e.g. only the user copies of azkar challenges.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserChallengesOfType<T extends ChallengeBase> {
+
+  private UserSummary user;
+  private ChallengeType challengeType;
+  private List<T> challenges;
+
+  public Optional<T> findChallenge(String challengeId) {
+    return challenges.stream()
+        .filter(challenge -> challenge.getId().equals(challengeId))
+        .findFirst();
+  }
+}
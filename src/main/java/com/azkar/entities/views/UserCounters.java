@@ -0,0 +1,33 @@
+package com.azkar.entities.views;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A view of a user document that includes only the finished challenges counters.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserCounters {
+
+  private String id;
+  private int finishedPersonalChallengesCount;
+  private int finishedAzkarChallengesCount;
+  private int finishedMeaningChallengesCount;
+  private int finishedMemorizationChallengesCount;
+  private int finishedReadingQuranChallengesCount;
+  private int finishedCustomSimpleChallengesCount;
+
+  public int totalFinishedChallengesCount() {
+    return finishedAzkarChallengesCount
+        + finishedMeaningChallengesCount
+        + finishedReadingQuranChallengesCount
+        + finishedMemorizationChallengesCount
+        + finishedCustomSimpleChallengesCount
+        + finishedPersonalChallengesCount;
+  }
+}
@@ -0,0 +1,52 @@
+package com.azkar.entities.views;
+
+import com.azkar.entities.Friendship;
+import com.azkar.entities.Group;
+import com.azkar.entities.challenges.AzkarChallenge;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.challenges.CustomSimpleChallenge;
+import com.azkar.entities.challenges.MeaningChallenge;
+import com.azkar.entities.challenges.MemorizationChallenge;
+import com.azkar.entities.challenges.ReadingQuranChallenge;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Builder.Default;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Everything needed for the home of a user, loaded by {@code HomeFeedRepo.findHome} with a single
+ * query. The challenges are the ones in the {@link com.azkar.entities.HomeFeed} of the user.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserHome {
+
+  private String id;
+  @Default
+  private List<AzkarChallenge> azkarChallenges = new ArrayList<>();
+  @Default
+  private List<MeaningChallenge> meaningChallenges = new ArrayList<>();
+  @Default
+  private List<ReadingQuranChallenge> readingQuranChallenges = new ArrayList<>();
+  @Default
+  private List<MemorizationChallenge> memorizationChallenges = new ArrayList<>();
+  @Default
+  private List<CustomSimpleChallenge> customSimpleChallenges = new ArrayList<>();
+  // The number of all the challenges of every type in the user document, not only the returned
+  // ones. See HomeFeed.
+  @Default
+  private Map<ChallengeType, Integer> challengesCounts = new EnumMap<>(ChallengeType.class);
+  // Contains the friendship of the user, if any.
+  @Default
+  private List<Friendship> friendships = new ArrayList<>();
+  // The groups of all the challenges in the user document.
+  @Default
+  private List<Group> groups = new ArrayList<>();
+}
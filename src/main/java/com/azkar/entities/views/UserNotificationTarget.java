@@ -0,0 +1,21 @@
+package com.azkar.entities.views;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A view of a user document that includes only what is needed to send the user a notification.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserNotificationTarget {
+
+  private String id;
+  private String notificationsToken;
+  private String firstName;
+  private String lastName;
+}
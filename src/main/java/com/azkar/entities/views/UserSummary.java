@@ -0,0 +1,22 @@
+package com.azkar.entities.views;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A view of a user document that includes only the fields identifying the user. Use it instead
+ * of loading the whole {@link com.azkar.entities.User} whenever nothing else is needed.
+ */
+@Builder(toBuilder = true)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummary {
+
+  private String id;
+  private String username;
+  private String firstName;
+  private String lastName;
+}
@@ -0,0 +1,101 @@
+package com.azkar.payload;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
+
+/**
+ * A successful JSON response that is serialized and compressed only once, for responses that
+ * never change while the server is running. Every request is then served by writing the already
+ * serialized bytes as they are.
+ */
+public final class PreSerializedResponse {
+
+  private static final String GZIP_ENCODING = "gzip";
+
+  private final byte[] body;
+  private final byte[] gzippedBody;
+  private final String etag;
+
+  private PreSerializedResponse(byte[] body) {
+    this.body = body;
+    this.gzippedBody = gzip(body);
+    this.etag = DigestUtils.md5DigestAsHex(body);
+  }
+
+  /**
+   * Serializes {@code response} with {@code objectMapper}, which should be the mapper of the
+   * application so that the response is serialized as any other response.
+   */
+  public static PreSerializedResponse of(ObjectMapper objectMapper, ResponseBase<?> response) {
+    try {
+      return new PreSerializedResponse(objectMapper.writeValueAsBytes(response));
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Can't serialize " + response.getClass().getSimpleName(), e);
+    }
+  }
+
+  /**
+   * Returns a strong ETag of the response, which is a hash of its serialized form.
+   */
+  public String getEtag() {
+    return etag;
+  }
+
+  /**
+   * Returns the response compressed with gzip if {@code acceptEncoding}, the Accept-Encoding
+   * header of the request, allows it.
+   */
+  public ResponseEntity<byte[]> toResponseEntity(String acceptEncoding) {
+    boolean gzipped = acceptsGzip(acceptEncoding);
+    byte[] selectedBody = gzipped ? gzippedBody : body;
+    ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+        .contentType(MediaType.APPLICATION_JSON)
+        .contentLength(selectedBody.length)
+        .eTag(etag)
+        .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    if (gzipped) {
+      builder.header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING);
+    }
+    return builder.body(selectedBody);
+  }
+
+  // Only explicitly refusing gzip with a zero quality is supported, other qualities are ignored
+  // since gzip is always preferred over no encoding.
+  private static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) {
+      return false;
+    }
+    for (String coding : acceptEncoding.split(",")) {
+      String[] codingParts = coding.split(";");
+      if (!codingParts[0].trim().equalsIgnoreCase(GZIP_ENCODING)) {
+        continue;
+      }
+      for (int i = 1; i < codingParts.length; i++) {
+        String parameter = codingParts[i].replace(" ", "");
+        if (parameter.matches("q=0(\\.0*)?")) {
+          return false;
+        }
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4);
+    try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+      gzipOutputStream.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return compressed.toByteArray();
+  }
+}
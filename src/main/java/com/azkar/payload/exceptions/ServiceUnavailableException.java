@@ -0,0 +1,13 @@
+package com.azkar.payload.exceptions;
+
+import com.azkar.payload.ResponseBase.Status;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+  public Status error;
+
+  public ServiceUnavailableException(Status status) {
+    super("Service Unavailable");
+    this.error = status;
+  }
+}
@@ -0,0 +1,37 @@
+package com.azkar.payload.synccontroller;
+
+import com.azkar.entities.Friendship.Friend;
+import com.azkar.entities.Group;
+import com.azkar.payload.ResponseBase;
+import com.azkar.payload.challengecontroller.responses.ReturnedChallenge;
+import com.azkar.payload.synccontroller.SyncResponse.Body;
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+public class SyncResponse extends ResponseBase<Body> {
+
+  @Builder
+  @Getter
+  @NoArgsConstructor
+  @AllArgsConstructor
+  @Setter
+  public static class Body {
+
+    // To be sent as the since parameter of the next sync.
+    String watermark;
+    // Set if the changes since the given watermark are not known anymore, in which case nothing
+    // else is returned and the client should load everything again.
+    boolean fullSyncRequired;
+    // The current state of every challenge that changed, including the progress of the user.
+    List<ReturnedChallenge> challenges;
+    List<String> removedChallengesIds;
+    // Null if the friendship of the user didn't change.
+    List<Friend> friends;
+    // The groups that changed and the groups of the changed challenges.
+    List<Group> groups;
+  }
+}
@@ -9,8 +9,13 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 
+@Getter
+@Setter
 public class GetPubliclyAvailableUsersResponse extends ResponseBase<List<PubliclyAvailableUser>> {
 
+  // The after_id with which the next page is requested, or null if this is the last page.
+  private String nextAfterId;
+
   @Builder
   @Getter
   @NoArgsConstructor
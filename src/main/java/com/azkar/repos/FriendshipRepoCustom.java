@@ -0,0 +1,32 @@
+package com.azkar.repos;
+
+import com.mongodb.bulk.BulkWriteResult;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Targeted partial updates of friendship documents that don't load or rewrite whole friendships,
+ * which may be big for users with many friends.
+ */
+public interface FriendshipRepoCustom {
+
+  /**
+   * Increments the score of {@code userId} against each of their friends in {@code
+   * groupMembersIds} in both the friendship of {@code userId} and the friendships of these friends.
+   * All the increments are done in a single bulk write.
+   */
+  BulkWriteResult incrementScoreAgainstFriends(String userId, Collection<String> groupMembersIds);
+
+  /**
+   * Removes {@code userId} from the friends of all of {@code friendsIds} with a single update.
+   *
+   * @return the number of modified friendships.
+   */
+  long removeFriendFromFriendships(String userId, Collection<String> friendsIds);
+
+  /**
+   * Returns the IDs of the users in {@code usersIds} who have {@code friendId} as a friend or
+   * have a pending friend request from them, using a single query.
+   */
+  Set<String> findUsersHavingFriend(Collection<String> usersIds, String friendId);
+}
@@ -0,0 +1,92 @@
+package com.azkar.repos;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.Friendship;
+import com.azkar.entities.User;
+import com.mongodb.bulk.BulkWriteResult;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class FriendshipRepoCustomImpl implements FriendshipRepoCustom {
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+  @Autowired
+  private UserChangeRepo userChangeRepo;
+
+  @Override
+  public BulkWriteResult incrementScoreAgainstFriends(String userId,
+      Collection<String> groupMembersIds) {
+    List<String> otherMembersIds = groupMembersIds.stream()
+        .filter(memberId -> !memberId.equals(userId))
+        .collect(Collectors.toList());
+
+    BulkOperations bulkOperations = mongoTemplate.bulkOps(BulkMode.UNORDERED, Friendship.class);
+
+    // The user's score in every friend entry that belongs to one of the other group members.
+    // Pending friend requests don't keep scores.
+    Update userFriendshipUpdate = new Update()
+        .inc("friends.$[friend].userTotalScore", 1)
+        .filterArray(where("friend.userId").in(otherMembersIds).and("friend.isPending").ne(true));
+    bulkOperations.updateOne(query(where("userId").is(userId)), touch(userFriendshipUpdate));
+
+    // The friend score in the entry of the user in the friendships of the other group members.
+    // Members who are not friends with the user don't have such an entry so they are not
+    // affected. Sabeq's friendship is never written since all users are implicitly his friends.
+    List<String> friendshipsToUpdate = otherMembersIds.stream()
+        .filter(memberId -> !memberId.equals(User.SABEQ_ID))
+        .collect(Collectors.toList());
+    if (!friendshipsToUpdate.isEmpty()) {
+      Update friendsFriendshipsUpdate = new Update()
+          .inc("friends.$[friend].friendTotalScore", 1)
+          .filterArray(where("friend.userId").is(userId).and("friend.isPending").ne(true));
+      bulkOperations.updateMulti(query(where("userId").in(friendshipsToUpdate)),
+          touch(friendsFriendshipsUpdate));
+    }
+
+    BulkWriteResult result = bulkOperations.execute();
+    List<String> changedUsersIds = new ArrayList<>(friendshipsToUpdate);
+    changedUsersIds.add(userId);
+    userChangeRepo.recordFriendshipChange(changedUsersIds);
+    return result;
+  }
+
+  @Override
+  public long removeFriendFromFriendships(String userId, Collection<String> friendsIds) {
+    Update update = new Update().pull("friends", new Document("userId", userId));
+    long modifiedCount = mongoTemplate
+        .updateMulti(query(where("userId").in(friendsIds)), touch(update), Friendship.class)
+        .getModifiedCount();
+    userChangeRepo.recordFriendshipChange(friendsIds);
+    return modifiedCount;
+  }
+
+  @Override
+  public Set<String> findUsersHavingFriend(Collection<String> usersIds, String friendId) {
+    Query query = query(where("userId").in(usersIds).and("friends.userId").is(friendId));
+    query.fields().include("userId");
+    return mongoTemplate.find(query, Friendship.class).stream()
+        .map(Friendship::getUserId)
+        .collect(Collectors.toSet());
+  }
+
+  // Partial updates don't go through the auditing handler so the modification time is set here.
+  // The version is incremented so that read-modify-write operations that loaded the document
+  // before this update fail instead of overwriting it.
+  private static Update touch(Update update) {
+    return update.set("modifiedAt", Instant.now().toEpochMilli()).inc("version", 1);
+  }
+}
@@ -0,0 +1,12 @@
+package com.azkar.repos;
+
+import com.azkar.entities.GroupChallenge;
+import java.util.List;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface GroupChallengeRepo extends MongoRepository<GroupChallenge, String> {
+
+  List<GroupChallenge> findByGroupId(String groupId);
+}
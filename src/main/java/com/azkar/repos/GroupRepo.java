@@ -1,10 +1,12 @@
 package com.azkar.repos;
 
 import com.azkar.entities.Group;
+import java.util.List;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
 @Repository
-public interface GroupRepo extends MongoRepository<Group, String> {
+public interface GroupRepo extends MongoRepository<Group, String>, GroupRepoCustom {
 
+  List<Group> findByUsersIdsContaining(String userId);
 }
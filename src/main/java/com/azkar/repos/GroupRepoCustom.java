@@ -0,0 +1,15 @@
+package com.azkar.repos;
+
+/**
+ * Targeted partial updates of group documents.
+ */
+public interface GroupRepoCustom {
+
+  /**
+   * Removes {@code userId} from the members of every group they are a member of with a single
+   * update that uses the index on the group members.
+   *
+   * @return the number of modified groups.
+   */
+  long removeUserFromAllGroups(String userId);
+}
@@ -0,0 +1,25 @@
+package com.azkar.repos;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.Group;
+import java.time.Instant;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class GroupRepoCustomImpl implements GroupRepoCustom {
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public long removeUserFromAllGroups(String userId) {
+    Update update = new Update()
+        .pull("usersIds", userId)
+        .set("modifiedAt", Instant.now().toEpochMilli());
+    return mongoTemplate.updateMulti(query(where("usersIds").is(userId)), update, Group.class)
+        .getModifiedCount();
+  }
+}
@@ -0,0 +1,10 @@
+package com.azkar.repos;
+
+import com.azkar.entities.HomeFeed;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface HomeFeedRepo extends MongoRepository<HomeFeed, String>, HomeFeedRepoCustom {
+
+}
@@ -0,0 +1,57 @@
+package com.azkar.repos;
+
+import com.azkar.entities.HomeFeed;
+import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserHome;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads and updates of {@link com.azkar.entities.HomeFeed}s. Every update here mirrors an update
+ * of the user copies of challenges in {@link UserRepoCustom}, and is done by it right after
+ * updating the users.
+ */
+public interface HomeFeedRepoCustom {
+
+  /**
+   * Loads the home feed of the user together with the user friendship and the groups of the user
+   * challenges with a single aggregation, see {@link UserHome}. The feed is built from the user
+   * document first if the user doesn't have one yet.
+   */
+  Optional<UserHome> findHome(String userId);
+
+  /**
+   * Replaces the feeds of all of {@code usersIds} with feeds built from their user documents. This
+   * is done by the database itself with a single aggregation.
+   */
+  void rebuild(Collection<?> usersIds);
+
+  /**
+   * Loads only the data version of the feed of the user and the expiry dates of its challenges,
+   * which is enough to tell whether the home of the user changed, see {@link
+   * com.azkar.entities.HomeFeed#getDataVersion()}.
+   */
+  Optional<HomeFeed> findDataVersion(String userId);
+
+  /**
+   * Increments the data versions of the feeds of {@code usersIds} after a write of something
+   * other than their challenges that is shown in their homes.
+   */
+  void incrementDataVersion(Collection<String> usersIds);
+
+  void addChallenge(Collection<String> usersIds, ChallengeType challengeType,
+      ChallengeBase challenge);
+
+  void updateAzkarChallengeSubChallenges(String userId, String challengeId,
+      List<SubChallenge> subChallenges);
+
+  void finishChallenge(String userId, ChallengeType challengeType, String challengeId);
+
+  void finishMemorizationQuestion(String userId, String challengeId, int question);
+
+  void addUserFinishedToChallenge(Collection<String> usersIds, ChallengeType challengeType,
+      String challengeId, String finishedUserId);
+}
@@ -0,0 +1,231 @@
+package com.azkar.repos;
+
+import static com.azkar.repos.UserRepoCustomImpl.getChallengesField;
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.Friendship;
+import com.azkar.entities.Group;
+import com.azkar.entities.HomeFeed;
+import com.azkar.entities.User;
+import com.azkar.entities.challenges.AzkarChallenge;
+import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserHome;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class HomeFeedRepoCustomImpl implements HomeFeedRepoCustom {
+
+  // The azkar text is the biggest part of the user copies of challenges and the home doesn't
+  // show it.
+  private static final String AZKAR_TEXT_FIELD = "azkarChallenges.subChallenges.zekr";
+  private static final String DATA_VERSION_FIELD = "dataVersion";
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public Optional<UserHome> findHome(String userId) {
+    Optional<UserHome> userHome = aggregateHome(userId);
+    if (userHome.isPresent()) {
+      return userHome;
+    }
+    // The feeds of the users that existed before the feeds were introduced are built lazily.
+    rebuild(Collections.singletonList(userId));
+    return aggregateHome(userId);
+  }
+
+  @Override
+  public void rebuild(Collection<?> usersIds) {
+    List<Object> storedUsersIds = usersIds.stream()
+        .map(userId -> mongoTemplate.getConverter().convertId(userId, ObjectId.class))
+        .collect(Collectors.toList());
+    Document projection = new Document();
+    Document challengesCounts = new Document();
+    List<Document> challengesGroupsIds = new ArrayList<>();
+    for (ChallengeType challengeType : ChallengeType.values()) {
+      String challengesField = getChallengesField(challengeType);
+      int maxChallenges = HomeFeed.getMaxChallenges(challengeType);
+      projection.append(challengesField, new Document("$slice",
+          Arrays.asList(orEmpty("$" + challengesField), -maxChallenges)));
+      challengesCounts.append(challengeType.name(),
+          new Document("$size", orEmpty("$" + challengesField)));
+      challengesGroupsIds.add(orEmpty("$" + challengesField + ".groupId"));
+    }
+    projection
+        .append("challengesCounts", challengesCounts)
+        .append("groupsIds", new Document("$setUnion", challengesGroupsIds))
+        .append("updatedAt", new Document("$toLong", "$$NOW"))
+        .append(DATA_VERSION_FIELD, new Document("$toLong", "$$NOW"));
+    // A rebuilt feed replaces the existing one but its data version must still be greater than
+    // the existing version. New feeds start from the current time so that a feed that is deleted
+    // and built again doesn't reuse the versions of the deleted one.
+    Document dataVersion = new Document("$max", Arrays.asList(
+        new Document("$add", Arrays.asList(
+            new Document("$ifNull", Arrays.asList("$" + DATA_VERSION_FIELD, 0L)), 1L)),
+        "$$new." + DATA_VERSION_FIELD));
+    Document replaceKeepingVersion = new Document("$replaceWith", new Document("$mergeObjects",
+        Arrays.asList("$$new", new Document(DATA_VERSION_FIELD, dataVersion))));
+    Document merge = new Document("into", mongoTemplate.getCollectionName(HomeFeed.class))
+        .append("on", "_id")
+        .append("whenMatched", Collections.singletonList(replaceKeepingVersion))
+        .append("whenNotMatched", "insert");
+
+    Aggregation aggregation = Aggregation.newAggregation(
+        context -> new Document("$match", new Document("_id", new Document("$in", storedUsersIds))),
+        context -> new Document("$project", projection),
+        context -> new Document("$project", new Document(AZKAR_TEXT_FIELD, 0)),
+        context -> new Document("$merge", merge));
+    mongoTemplate.aggregate(aggregation, mongoTemplate.getCollectionName(User.class),
+        Document.class);
+  }
+
+  @Override
+  public Optional<HomeFeed> findDataVersion(String userId) {
+    Query query = query(where("id").is(userId));
+    query.fields().include(DATA_VERSION_FIELD);
+    for (ChallengeType challengeType : ChallengeType.values()) {
+      query.fields().include(getChallengesField(challengeType) + ".expiryDate");
+    }
+    return Optional.ofNullable(mongoTemplate.findOne(query, HomeFeed.class));
+  }
+
+  @Override
+  public void incrementDataVersion(Collection<String> usersIds) {
+    if (usersIds.isEmpty()) {
+      return;
+    }
+    // Users without a feed are skipped, their feeds will get a greater version once built.
+    mongoTemplate.updateMulti(query(where("id").in(usersIds)), touch(new Update()),
+        HomeFeed.class);
+  }
+
+  @Override
+  public void addChallenge(Collection<String> usersIds, ChallengeType challengeType,
+      ChallengeBase challenge) {
+    Update update = new Update();
+    update.push(getChallengesField(challengeType))
+        .slice(-HomeFeed.getMaxChallenges(challengeType))
+        .each(toFeedChallenge(challenge));
+    update.inc("challengesCounts." + challengeType.name(), 1)
+        .addToSet("groupsIds", challenge.getGroupId());
+    // Users without a feed are skipped, their feeds will be built from their user documents.
+    mongoTemplate.updateMulti(query(where("id").in(usersIds)), touch(update), HomeFeed.class);
+  }
+
+  @Override
+  public void updateAzkarChallengeSubChallenges(String userId, String challengeId,
+      List<SubChallenge> subChallenges) {
+    Query query = feedChallengeQuery(userId, ChallengeType.AZKAR, where("id").is(challengeId));
+    Update update =
+        new Update().set("azkarChallenges.$.subChallenges", withoutAzkarText(subChallenges));
+    mongoTemplate.updateFirst(query, touch(update), HomeFeed.class);
+  }
+
+  @Override
+  public void finishChallenge(String userId, ChallengeType challengeType, String challengeId) {
+    Query query = feedChallengeQuery(userId, challengeType, where("id").is(challengeId));
+    Update update = new Update().set(getChallengesField(challengeType) + ".$.finished", true);
+    mongoTemplate.updateFirst(query, touch(update), HomeFeed.class);
+  }
+
+  @Override
+  public void finishMemorizationQuestion(String userId, String challengeId, int question) {
+    Query query =
+        feedChallengeQuery(userId, ChallengeType.MEMORIZATION, where("id").is(challengeId));
+    Update update = new Update()
+        .set("memorizationChallenges.$.questions." + question + ".finished", true);
+    mongoTemplate.updateFirst(query, touch(update), HomeFeed.class);
+  }
+
+  // All the users of a group are updated with a single write.
+  @Override
+  public void addUserFinishedToChallenge(Collection<String> usersIds,
+      ChallengeType challengeType, String challengeId, String finishedUserId) {
+    // Array filters are not mapped like queries, so the stored form of the challenge ID is used.
+    Object storedChallengeId = mongoTemplate.getConverter().convertId(challengeId, ObjectId.class);
+    Update update = new Update()
+        .addToSet(getChallengesField(challengeType) + ".$[challenge].usersFinished",
+            finishedUserId)
+        .filterArray(where("challenge._id").is(storedChallengeId));
+    mongoTemplate.updateMulti(query(where("id").in(usersIds)), touch(update), HomeFeed.class);
+  }
+
+  private Optional<UserHome> aggregateHome(String userId) {
+    Object storedUserId = mongoTemplate.getConverter().convertId(userId, ObjectId.class);
+    // Group IDs are saved as strings in challenges but as object IDs (whenever possible) in groups.
+    Document storedGroupsIds = new Document("$map", new Document("input", "$groupsIds")
+        .append("in", new Document("$convert", new Document("input", "$$this")
+            .append("to", "objectId")
+            .append("onError", "$$this")
+            .append("onNull", "$$this"))));
+    Document friendshipLookup =
+        new Document("from", mongoTemplate.getCollectionName(Friendship.class))
+            .append("pipeline", Arrays.asList(
+                new Document("$match", new Document("userId", userId)),
+                new Document("$project", new Document("friends", 1))))
+            .append("as", "friendships");
+    Document groupsLookup = new Document("from", mongoTemplate.getCollectionName(Group.class))
+        .append("localField", "groupsIds")
+        .append("foreignField", "_id")
+        .append("as", "groups");
+
+    Aggregation aggregation = Aggregation.newAggregation(
+        context -> new Document("$match", new Document("_id", storedUserId)),
+        context -> new Document("$addFields", new Document("groupsIds", storedGroupsIds)),
+        context -> new Document("$lookup", friendshipLookup),
+        context -> new Document("$lookup", groupsLookup),
+        context -> new Document("$project", new Document("groupsIds", 0)));
+    return Optional.ofNullable(mongoTemplate.aggregate(aggregation,
+        mongoTemplate.getCollectionName(HomeFeed.class), UserHome.class).getUniqueMappedResult());
+  }
+
+  private static ChallengeBase toFeedChallenge(ChallengeBase challenge) {
+    if (challenge instanceof AzkarChallenge) {
+      AzkarChallenge azkarChallenge = (AzkarChallenge) challenge;
+      return azkarChallenge.toBuilder()
+          .subChallenges(withoutAzkarText(azkarChallenge.getSubChallenges()))
+          .build();
+    }
+    return challenge;
+  }
+
+  private static List<SubChallenge> withoutAzkarText(List<SubChallenge> subChallenges) {
+    return subChallenges.stream()
+        .map(subChallenge -> SubChallenge.builder()
+            .repetitions(subChallenge.getRepetitions())
+            .build())
+        .collect(Collectors.toList());
+  }
+
+  private static Document orEmpty(String fieldPath) {
+    return new Document("$ifNull", Arrays.asList(fieldPath, new ArrayList<>()));
+  }
+
+  private static Query feedChallengeQuery(String userId, ChallengeType challengeType,
+      Criteria challengeCriteria) {
+    return query(
+        where("id").is(userId).and(getChallengesField(challengeType))
+            .elemMatch(challengeCriteria));
+  }
+
+  private static Update touch(Update update) {
+    return update.set("updatedAt", Instant.now().toEpochMilli()).inc(DATA_VERSION_FIELD, 1);
+  }
+}
@@ -0,0 +1,10 @@
+package com.azkar.repos;
+
+import com.azkar.entities.JobCheckpoint;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface JobCheckpointRepo extends MongoRepository<JobCheckpoint, String> {
+
+}
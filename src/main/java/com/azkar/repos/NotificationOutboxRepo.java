@@ -0,0 +1,9 @@
+package com.azkar.repos;
+
+import com.azkar.entities.NotificationOutboxEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface NotificationOutboxRepo extends MongoRepository<NotificationOutboxEntry, String>,
+    NotificationOutboxRepoCustom {
+
+}
@@ -0,0 +1,22 @@
+package com.azkar.repos;
+
+import com.azkar.entities.NotificationOutboxEntry;
+import java.util.Collection;
+import java.util.List;
+
+public interface NotificationOutboxRepoCustom {
+
+  /**
+   * Claims up to {@code maxCount} of the entries due to be sent, the ones due first first. The
+   * claimed entries are not claimed again for {@code leaseMillis} so that other workers don't send
+   * them too. Entries that are not deleted or rescheduled in time, e.g. because the instance
+   * sending them was stopped, are claimed again after that.
+   */
+  List<NotificationOutboxEntry> claimDue(int maxCount, long leaseMillis);
+
+  /**
+   * Saves the {@code attempts} and {@code nextAttemptAt} of all of {@code entries} with a single
+   * write.
+   */
+  void reschedule(Collection<NotificationOutboxEntry> entries);
+}
@@ -0,0 +1,67 @@
+package com.azkar.repos;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.NotificationOutboxEntry;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class NotificationOutboxRepoCustomImpl implements NotificationOutboxRepoCustom {
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Override
+  public List<NotificationOutboxEntry> claimDue(int maxCount, long leaseMillis) {
+    Date now = new Date();
+    Query dueQuery = query(where("nextAttemptAt").lte(now))
+        .with(Sort.by("nextAttemptAt"))
+        .limit(maxCount);
+    dueQuery.fields().include("id");
+    List<String> dueIds = mongoTemplate.find(dueQuery, NotificationOutboxEntry.class).stream()
+        .map(NotificationOutboxEntry::getId)
+        .collect(Collectors.toList());
+    if (dueIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+
+    // Entries claimed by another worker since they were found are no longer due, so they are not
+    // claimed again here.
+    String leaseId = new ObjectId().toString();
+    mongoTemplate.updateMulti(
+        query(where("id").in(dueIds).and("nextAttemptAt").lte(now)),
+        new Update()
+            .set("nextAttemptAt", new Date(now.getTime() + leaseMillis))
+            .set("leaseId", leaseId),
+        NotificationOutboxEntry.class);
+    return mongoTemplate.find(query(where("leaseId").is(leaseId)), NotificationOutboxEntry.class);
+  }
+
+  @Override
+  public void reschedule(Collection<NotificationOutboxEntry> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+    BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkMode.UNORDERED, NotificationOutboxEntry.class);
+    for (NotificationOutboxEntry entry : entries) {
+      bulkOperations.updateOne(query(where("id").is(entry.getId())),
+          new Update()
+              .set("attempts", entry.getAttempts())
+              .set("nextAttemptAt", entry.getNextAttemptAt()));
+    }
+    bulkOperations.execute();
+  }
+}
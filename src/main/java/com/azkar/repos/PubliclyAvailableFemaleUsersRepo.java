@@ -1,6 +1,7 @@
 package com.azkar.repos;
 
 import com.azkar.entities.PubliclyAvailableFemaleUser;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,4 +17,6 @@ public interface PubliclyAvailableFemaleUsersRepo extends
   Long deleteByUserId(String userId);
 
   Page<PubliclyAvailableFemaleUser> findAll(Pageable pageable);
+
+  List<PubliclyAvailableFemaleUser> findByIdLessThan(String id, Pageable pageable);
 }
@@ -1,6 +1,7 @@
 package com.azkar.repos;
 
 import com.azkar.entities.PubliclyAvailableMaleUser;
+import java.util.List;
 import java.util.Optional;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -16,4 +17,6 @@ public interface PubliclyAvailableMaleUsersRepo extends
   Long deleteByUserId(String userId);
 
   Page<PubliclyAvailableMaleUser> findAll(Pageable pageable);
+
+  List<PubliclyAvailableMaleUser> findByIdLessThan(String id, Pageable pageable);
 }
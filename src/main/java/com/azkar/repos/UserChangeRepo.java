@@ -0,0 +1,9 @@
+package com.azkar.repos;
+
+import com.azkar.entities.UserChange;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface UserChangeRepo extends MongoRepository<UserChange, String>, UserChangeRepoCustom {
+
+  void deleteByUserId(String userId);
+}
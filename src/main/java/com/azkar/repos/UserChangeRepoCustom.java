@@ -0,0 +1,37 @@
+package com.azkar.repos;
+
+import com.azkar.entities.UserChange;
+import com.azkar.entities.challenges.ChallengeType;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Writes of the change logs of users, see {@link UserChange}. Every write of something shown to a
+ * user records a change here right after it is done.
+ */
+public interface UserChangeRepoCustom {
+
+  void recordChallengeChange(Collection<String> usersIds, ChallengeType challengeType,
+      String challengeId);
+
+  void recordChallengeRemoval(String userId, ChallengeType challengeType, String challengeId);
+
+  /**
+   * Records that the friendships of {@code usersIds} changed. The data versions of their home
+   * feeds are incremented as well since the friends are shown in the home.
+   */
+  void recordFriendshipChange(Collection<String> usersIds);
+
+  /**
+   * Same as {@link #recordFriendshipChange(Collection)} but for a change of the group with {@code
+   * groupId} which {@code usersIds} are members of.
+   */
+  void recordGroupChange(Collection<String> usersIds, String groupId);
+
+  /**
+   * Returns the changes of the user recorded at or after {@code since} ordered by when they were
+   * recorded.
+   */
+  List<UserChange> findChangesSince(String userId, Date since);
+}
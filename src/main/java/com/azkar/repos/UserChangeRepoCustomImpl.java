@@ -0,0 +1,77 @@
+package com.azkar.repos;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.UserChange;
+import com.azkar.entities.UserChange.Type;
+import com.azkar.entities.challenges.ChallengeType;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+public class UserChangeRepoCustomImpl implements UserChangeRepoCustom {
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @Autowired
+  private HomeFeedRepo homeFeedRepo;
+
+  @Override
+  public void recordChallengeChange(Collection<String> usersIds, ChallengeType challengeType,
+      String challengeId) {
+    record(usersIds, UserChange.builder()
+        .type(Type.CHALLENGE)
+        .challengeType(challengeType)
+        .entityId(challengeId)
+        .build());
+  }
+
+  @Override
+  public void recordChallengeRemoval(String userId, ChallengeType challengeType,
+      String challengeId) {
+    record(Collections.singletonList(userId), UserChange.builder()
+        .type(Type.CHALLENGE_REMOVED)
+        .challengeType(challengeType)
+        .entityId(challengeId)
+        .build());
+  }
+
+  @Override
+  public void recordFriendshipChange(Collection<String> usersIds) {
+    record(usersIds, UserChange.builder().type(Type.FRIENDSHIP).build());
+    homeFeedRepo.incrementDataVersion(usersIds);
+  }
+
+  @Override
+  public void recordGroupChange(Collection<String> usersIds, String groupId) {
+    record(usersIds, UserChange.builder().type(Type.GROUP).entityId(groupId).build());
+    homeFeedRepo.incrementDataVersion(usersIds);
+  }
+
+  @Override
+  public List<UserChange> findChangesSince(String userId, Date since) {
+    return mongoTemplate.find(
+        query(where("userId").is(userId).and("changedAt").gte(since))
+            .with(Sort.by("changedAt")),
+        UserChange.class);
+  }
+
+  // The changes of all the users are inserted with a single write.
+  private void record(Collection<String> usersIds, UserChange change) {
+    if (usersIds.isEmpty()) {
+      return;
+    }
+    Date changedAt = new Date();
+    List<UserChange> changes = usersIds.stream()
+        .map(userId -> change.toBuilder().userId(userId).changedAt(changedAt).build())
+        .collect(Collectors.toList());
+    mongoTemplate.insert(changes, UserChange.class);
+  }
+}
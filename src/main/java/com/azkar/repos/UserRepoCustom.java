@@ -0,0 +1,130 @@
+package com.azkar.repos;
+
+import com.azkar.entities.User;
+import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserChallengesOfType;
+import com.mongodb.bulk.BulkWriteResult;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Targeted partial reads and updates of user documents. Unlike {@code UserRepo.findById} and
+ * {@code UserRepo.save}, none of these operations loads or rewrites the whole user document, so
+ * they are much cheaper for users with many challenges and the updates don't overwrite changes
+ * done concurrently to other fields of the same user.
+ */
+public interface UserRepoCustom {
+
+  /**
+   * Loads only the fields of the user declared in {@code view}, e.g. {@link
+   * com.azkar.entities.views.UserSummary}. The fields of {@code view} must have the same names as
+   * the corresponding fields in {@link com.azkar.entities.User}.
+   */
+  <V> Optional<V> findViewById(String userId, Class<V> view);
+
+  /**
+   * Same as {@link #findViewById(String, Class)} but loads the users with {@code usersIds} with a
+   * single query. Ids of users that don't exist are skipped.
+   */
+  <V> List<V> findViewsByIds(Collection<String> usersIds, Class<V> view);
+
+  /**
+   * Loads the user summary and only the challenges list of {@code challengeType}.
+   */
+  <T extends ChallengeBase> Optional<UserChallengesOfType<T>> findChallengesOfType(String userId,
+      ChallengeType challengeType);
+
+  /**
+   * Loads only the user copies of the challenges with IDs in {@code challengesIds}, of all types.
+   * The challenges are filtered by the database so the other challenges are never sent.
+   */
+  Optional<User> findChallengesByIds(String userId, Collection<String> challengesIds);
+
+  /**
+   * Pushes the user copy of {@code challenge} to every user in {@code usersIds}. Only the most
+   * recent {@link UserRepoCustomImpl#MAX_USER_CHALLENGES_WITH_SAME_TYPE} challenges of every type
+   * in {@link UserRepoCustomImpl#TRIMMED_CHALLENGE_TYPES} are kept. Sabeq is skipped since his
+   * challenges are never materialized.
+   */
+  void addChallenge(Collection<String> usersIds, ChallengeType challengeType,
+      ChallengeBase challenge);
+
+  /**
+   * Removes the user copy of the challenge with ID {@code challengeId}.
+   */
+  void removeChallenge(String userId, ChallengeType challengeType, String challengeId);
+
+  /**
+   * Replaces the sub-challenges (and so the left repetitions) of the user copy of the azkar
+   * challenge with ID {@code challengeId}. If {@code subChallenges} finish the challenge, the copy
+   * is only updated if it is not already finished.
+   *
+   * @return false if the user doesn't have such a challenge or if {@code subChallenges} finish it
+   *     but it is already finished, e.g. by another concurrent request.
+   */
+  boolean updateAzkarChallengeSubChallenges(String userId, String challengeId,
+      List<SubChallenge> subChallenges);
+
+  /**
+   * Marks the user copy of a meaning, reading Quran or custom simple challenge as finished.
+   *
+   * @return false if the user doesn't have such a challenge or if it is already finished, e.g.
+   *     by another concurrent request.
+   */
+  boolean finishChallenge(String userId, ChallengeType challengeType, String challengeId);
+
+  /**
+   * Marks {@code question} (0-based) in the user copy of a memorization challenge as finished.
+   *
+   * @return false if the user doesn't have such a challenge or if the question is already
+   *     finished.
+   */
+  boolean finishMemorizationQuestion(String userId, String challengeId, int question);
+
+  /**
+   * Adds {@code finishedUserId} to the users who finished the challenge with ID {@code
+   * challengeId} in the user copies of all of {@code usersIds} using a single unordered bulk
+   * write. {@code usersIds} must contain at least one user other than Sabeq.
+   */
+  BulkWriteResult addUserFinishedToChallenge(Collection<String> usersIds,
+      ChallengeType challengeType, String challengeId, String finishedUserId);
+
+  void incrementFinishedChallengesCount(String userId, ChallengeType challengeType);
+
+  void setNotificationsToken(String userId, String notificationsToken);
+
+  /**
+   * Removes the notifications token of the user only if it is still {@code notificationsToken},
+   * so that a token that has just been refreshed by the user is not lost.
+   */
+  void unsetNotificationsToken(String userId, String notificationsToken);
+
+  /**
+   * Keeps only the most recent {@code maxChallengesOfEachType} challenges of every one of {@code
+   * challengeTypes} in the user document.
+   */
+  void trimChallenges(String userId, int maxChallengesOfEachType,
+      ChallengeType... challengeTypes);
+
+  /**
+   * Same as {@link #trimChallenges(String, int, ChallengeType...)} but for all of {@code
+   * usersIds} in one write. Only the users having more challenges than the limit are written.
+   *
+   * @return the number of trimmed users.
+   */
+  long trimChallenges(Collection<?> usersIds, int maxChallengesOfEachType,
+      ChallengeType... challengeTypes);
+
+  /**
+   * Removes the challenges of every one of {@code challengeTypes} that expired before {@code
+   * expiryDate} (in seconds since epoch) from the documents of all of {@code usersIds} in one
+   * write.
+   *
+   * @return the number of users whose challenges were removed.
+   */
+  long removeChallengesExpiredBefore(Collection<?> usersIds, long expiryDate,
+      ChallengeType... challengeTypes);
+}
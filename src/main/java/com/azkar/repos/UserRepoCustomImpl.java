@@ -0,0 +1,401 @@
+package com.azkar.repos;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.User;
+import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserChallengesOfType;
+import com.azkar.entities.views.UserSummary;
+import com.mongodb.bulk.BulkWriteResult;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mapping.PropertyHandler;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.BulkOperations.BulkMode;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.mapping.MongoPersistentProperty;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+public class UserRepoCustomImpl implements UserRepoCustom {
+
+  // Older challenges of these types are removed from the user document once a new challenge of
+  // the same type is pushed. These are the same types and limit used by the ChallengesCleanerJob.
+  // Custom simple challenges are never trimmed.
+  public static final int MAX_USER_CHALLENGES_WITH_SAME_TYPE = 30;
+  public static final Set<ChallengeType> TRIMMED_CHALLENGE_TYPES =
+      Collections.unmodifiableSet(EnumSet.of(
+          ChallengeType.AZKAR,
+          ChallengeType.READING_QURAN,
+          ChallengeType.MEANING,
+          ChallengeType.MEMORIZATION));
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  // Every update of the user copies of challenges is also applied to the home feeds of the users.
+  // The updates that may make older challenges visible in the home rebuild the feeds instead.
+  @Autowired
+  private HomeFeedRepo homeFeedRepo;
+
+  // Every update of the user copies of challenges is recorded in the change logs of the users.
+  @Autowired
+  private UserChangeRepo userChangeRepo;
+
+  public static String getChallengesField(ChallengeType challengeType) {
+    switch (challengeType) {
+      case AZKAR:
+        return "azkarChallenges";
+      case MEANING:
+        return "meaningChallenges";
+      case MEMORIZATION:
+        return "memorizationChallenges";
+      case READING_QURAN:
+        return "readingQuranChallenges";
+      case CUSTOM_SIMPLE:
+        return "customSimpleChallenges";
+      default:
+        throw new IllegalArgumentException("Unknown challenge type: " + challengeType);
+    }
+  }
+
+  public static String getFinishedChallengesCountField(ChallengeType challengeType) {
+    switch (challengeType) {
+      case AZKAR:
+        return "finishedAzkarChallengesCount";
+      case MEANING:
+        return "finishedMeaningChallengesCount";
+      case MEMORIZATION:
+        return "finishedMemorizationChallengesCount";
+      case READING_QURAN:
+        return "finishedReadingQuranChallengesCount";
+      case CUSTOM_SIMPLE:
+        return "finishedCustomSimpleChallengesCount";
+      default:
+        throw new IllegalArgumentException("Unknown challenge type: " + challengeType);
+    }
+  }
+
+  @Override
+  public <V> Optional<V> findViewById(String userId, Class<V> view) {
+    Query query = query(where("id").is(userId));
+    includeViewFields(query, view);
+    return Optional.ofNullable(
+        mongoTemplate.findOne(query, view, mongoTemplate.getCollectionName(User.class)));
+  }
+
+  @Override
+  public <V> List<V> findViewsByIds(Collection<String> usersIds, Class<V> view) {
+    if (usersIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    Query query = query(where("id").in(usersIds));
+    includeViewFields(query, view);
+    return mongoTemplate.find(query, view, mongoTemplate.getCollectionName(User.class));
+  }
+
+  private void includeViewFields(Query query, Class<?> view) {
+    mongoTemplate.getConverter().getMappingContext().getRequiredPersistentEntity(view)
+        .doWithProperties((PropertyHandler<MongoPersistentProperty>) property ->
+            query.fields().include(property.getFieldName()));
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T extends ChallengeBase> Optional<UserChallengesOfType<T>> findChallengesOfType(
+      String userId, ChallengeType challengeType) {
+    Query query = query(where("id").is(userId));
+    query.fields()
+        .include("username")
+        .include("firstName")
+        .include("lastName")
+        .include(getChallengesField(challengeType));
+    User user = mongoTemplate.findOne(query, User.class);
+    if (user == null) {
+      return Optional.empty();
+    }
+
+    List<? extends ChallengeBase> challenges;
+    switch (challengeType) {
+      case AZKAR:
+        challenges = user.getAzkarChallenges();
+        break;
+      case MEANING:
+        challenges = user.getMeaningChallenges();
+        break;
+      case MEMORIZATION:
+        challenges = user.getMemorizationChallenges();
+        break;
+      case READING_QURAN:
+        challenges = user.getReadingQuranChallenges();
+        break;
+      case CUSTOM_SIMPLE:
+        challenges = user.getCustomSimpleChallenges();
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown challenge type: " + challengeType);
+    }
+    return Optional.of(UserChallengesOfType.<T>builder()
+        .user(UserSummary.builder()
+            .id(user.getId())
+            .username(user.getUsername())
+            .firstName(user.getFirstName())
+            .lastName(user.getLastName())
+            .build())
+        .challengeType(challengeType)
+        .challenges(challenges == null ? new ArrayList<>() : (List<T>) challenges)
+        .build());
+  }
+
+  @Override
+  public Optional<User> findChallengesByIds(String userId, Collection<String> challengesIds) {
+    Object storedUserId = mongoTemplate.getConverter().convertId(userId, ObjectId.class);
+    List<Object> storedChallengesIds = challengesIds.stream()
+        .map(challengeId -> mongoTemplate.getConverter().convertId(challengeId, ObjectId.class))
+        .collect(Collectors.toList());
+    Document projection = new Document();
+    for (ChallengeType challengeType : ChallengeType.values()) {
+      String challengesField = getChallengesField(challengeType);
+      projection.append(challengesField, new Document("$filter", new Document("input",
+          new Document("$ifNull", Arrays.asList("$" + challengesField, new ArrayList<>())))
+          .append("cond", new Document("$in", Arrays.asList("$$this._id", storedChallengesIds)))));
+    }
+
+    Aggregation aggregation = Aggregation.newAggregation(
+        context -> new Document("$match", new Document("_id", storedUserId)),
+        context -> new Document("$project", projection));
+    return Optional.ofNullable(
+        mongoTemplate.aggregate(aggregation, User.class, User.class).getUniqueMappedResult());
+  }
+
+  @Override
+  public void addChallenge(Collection<String> usersIds, ChallengeType challengeType,
+      ChallengeBase challenge) {
+    Update update = new Update();
+    if (TRIMMED_CHALLENGE_TYPES.contains(challengeType)) {
+      update.push(getChallengesField(challengeType))
+          .slice(-MAX_USER_CHALLENGES_WITH_SAME_TYPE)
+          .each(challenge);
+    } else {
+      update.push(getChallengesField(challengeType), challenge);
+    }
+    List<String> materializedUsersIds = withoutSabeq(usersIds);
+    mongoTemplate.updateMulti(query(where("id").in(materializedUsersIds)), touch(update),
+        User.class);
+    homeFeedRepo.addChallenge(materializedUsersIds, challengeType, challenge);
+    userChangeRepo.recordChallengeChange(materializedUsersIds, challengeType, challenge.getId());
+  }
+
+  @Override
+  public void removeChallenge(String userId, ChallengeType challengeType, String challengeId) {
+    // Embedded challenges IDs are stored the same way as top-level document IDs, i.e. as
+    // ObjectIds whenever possible.
+    Object storedChallengeId = mongoTemplate.getConverter().convertId(challengeId, ObjectId.class);
+    Update update = new Update()
+        .pull(getChallengesField(challengeType), new Document("_id", storedChallengeId));
+    mongoTemplate.updateFirst(query(where("id").is(userId)), touch(update), User.class);
+    homeFeedRepo.rebuild(Collections.singletonList(userId));
+    userChangeRepo.recordChallengeRemoval(userId, challengeType, challengeId);
+  }
+
+  @Override
+  public boolean updateAzkarChallengeSubChallenges(String userId, String challengeId,
+      List<SubChallenge> subChallenges) {
+    Criteria challengeCriteria = where("id").is(challengeId);
+    boolean finishing =
+        subChallenges.stream().allMatch(subChallenge -> subChallenge.getRepetitions() == 0);
+    if (finishing) {
+      challengeCriteria.and("subChallenges").elemMatch(where("repetitions").ne(0));
+    }
+    Query query = userChallengeQuery(userId, ChallengeType.AZKAR, challengeCriteria);
+    Update update = new Update().set("azkarChallenges.$.subChallenges", subChallenges);
+    if (mongoTemplate.updateFirst(query, touch(update), User.class).getMatchedCount() == 0) {
+      return false;
+    }
+    homeFeedRepo.updateAzkarChallengeSubChallenges(userId, challengeId, subChallenges);
+    userChangeRepo.recordChallengeChange(Collections.singletonList(userId), ChallengeType.AZKAR,
+        challengeId);
+    return true;
+  }
+
+  @Override
+  public boolean finishChallenge(String userId, ChallengeType challengeType,
+      String challengeId) {
+    String challengesField = getChallengesField(challengeType);
+    Query query = userChallengeQuery(userId, challengeType,
+        where("id").is(challengeId).and("finished").ne(true));
+    Update update = new Update().set(challengesField + ".$.finished", true);
+    if (mongoTemplate.updateFirst(query, touch(update), User.class).getMatchedCount() == 0) {
+      return false;
+    }
+    homeFeedRepo.finishChallenge(userId, challengeType, challengeId);
+    userChangeRepo.recordChallengeChange(Collections.singletonList(userId), challengeType,
+        challengeId);
+    return true;
+  }
+
+  @Override
+  public boolean finishMemorizationQuestion(String userId, String challengeId, int question) {
+    String questionFinishedField = "questions." + question + ".finished";
+    Query query = userChallengeQuery(userId, ChallengeType.MEMORIZATION,
+        where("id").is(challengeId).and(questionFinishedField).ne(true));
+    Update update = new Update().set("memorizationChallenges.$." + questionFinishedField, true);
+    if (mongoTemplate.updateFirst(query, touch(update), User.class).getMatchedCount() == 0) {
+      return false;
+    }
+    homeFeedRepo.finishMemorizationQuestion(userId, challengeId, question);
+    userChangeRepo.recordChallengeChange(Collections.singletonList(userId),
+        ChallengeType.MEMORIZATION, challengeId);
+    return true;
+  }
+
+  @Override
+  public BulkWriteResult addUserFinishedToChallenge(Collection<String> usersIds,
+      ChallengeType challengeType, String challengeId, String finishedUserId) {
+    // Array filters are not mapped like queries, so the stored form of the challenge ID is used.
+    Object storedChallengeId = mongoTemplate.getConverter().convertId(challengeId, ObjectId.class);
+    Update update = new Update()
+        .addToSet(getChallengesField(challengeType) + ".$[challenge].usersFinished",
+            finishedUserId)
+        .filterArray(where("challenge._id").is(storedChallengeId));
+    touch(update);
+
+    List<String> materializedUsersIds = withoutSabeq(usersIds);
+    BulkOperations bulkOperations =
+        mongoTemplate.bulkOps(BulkMode.UNORDERED, User.class);
+    for (String userId : materializedUsersIds) {
+      bulkOperations.updateOne(query(where("id").is(userId)), update);
+    }
+    BulkWriteResult result = bulkOperations.execute();
+    homeFeedRepo.addUserFinishedToChallenge(materializedUsersIds, challengeType, challengeId,
+        finishedUserId);
+    userChangeRepo.recordChallengeChange(materializedUsersIds, challengeType, challengeId);
+    return result;
+  }
+
+  @Override
+  public void incrementFinishedChallengesCount(String userId, ChallengeType challengeType) {
+    Update update = new Update().inc(getFinishedChallengesCountField(challengeType), 1);
+    mongoTemplate.updateFirst(query(where("id").is(userId)), touch(update), User.class);
+  }
+
+  @Override
+  public void setNotificationsToken(String userId, String notificationsToken) {
+    Update update = new Update().set("notificationsToken", notificationsToken);
+    mongoTemplate.updateFirst(query(where("id").is(userId)), touch(update), User.class);
+  }
+
+  @Override
+  public void unsetNotificationsToken(String userId, String notificationsToken) {
+    Update update = new Update().unset("notificationsToken");
+    mongoTemplate.updateFirst(
+        query(where("id").is(userId).and("notificationsToken").is(notificationsToken)),
+        touch(update),
+        User.class);
+  }
+
+  @Override
+  public void trimChallenges(String userId, int maxChallengesOfEachType,
+      ChallengeType... challengeTypes) {
+    Query query = query(where("id").is(userId)
+        .orOperator(anyChallengesExceedLimit(maxChallengesOfEachType, challengeTypes)));
+    if (mongoTemplate.updateFirst(query,
+        trimChallengesUpdate(maxChallengesOfEachType, challengeTypes), User.class)
+        .getModifiedCount() > 0) {
+      homeFeedRepo.rebuild(Collections.singletonList(userId));
+    }
+  }
+
+  @Override
+  public long trimChallenges(Collection<?> usersIds, int maxChallengesOfEachType,
+      ChallengeType... challengeTypes) {
+    Query query = query(where("id").in(usersIds)
+        .orOperator(anyChallengesExceedLimit(maxChallengesOfEachType, challengeTypes)));
+    long trimmedUsersCount = mongoTemplate.updateMulti(query,
+        trimChallengesUpdate(maxChallengesOfEachType, challengeTypes), User.class)
+        .getModifiedCount();
+    if (trimmedUsersCount > 0) {
+      homeFeedRepo.rebuild(usersIds);
+    }
+    return trimmedUsersCount;
+  }
+
+  @Override
+  public long removeChallengesExpiredBefore(Collection<?> usersIds, long expiryDate,
+      ChallengeType... challengeTypes) {
+    List<Criteria> anyExpired = new ArrayList<>();
+    Update update = new Update();
+    for (ChallengeType challengeType : challengeTypes) {
+      String challengesField = getChallengesField(challengeType);
+      anyExpired.add(where(challengesField + ".expiryDate").lt(expiryDate));
+      update.pull(challengesField, new Document("expiryDate", new Document("$lt", expiryDate)));
+    }
+    Query query = query(where("id").in(usersIds)
+        .orOperator(anyExpired.toArray(new Criteria[0])));
+    long modifiedUsersCount =
+        mongoTemplate.updateMulti(query, touch(update), User.class).getModifiedCount();
+    if (modifiedUsersCount > 0) {
+      homeFeedRepo.rebuild(usersIds);
+    }
+    return modifiedUsersCount;
+  }
+
+  // Only users with at least one list having more than maxChallengesOfEachType elements match, so
+  // users that don't need trimming are not written.
+  private static Criteria[] anyChallengesExceedLimit(int maxChallengesOfEachType,
+      ChallengeType... challengeTypes) {
+    List<Criteria> anyExceedsLimit = new ArrayList<>();
+    for (ChallengeType challengeType : challengeTypes) {
+      anyExceedsLimit.add(
+          where(getChallengesField(challengeType) + "." + maxChallengesOfEachType).exists(true));
+    }
+    return anyExceedsLimit.toArray(new Criteria[0]);
+  }
+
+  private static Update trimChallengesUpdate(int maxChallengesOfEachType,
+      ChallengeType... challengeTypes) {
+    Update update = new Update();
+    for (ChallengeType challengeType : challengeTypes) {
+      update.push(getChallengesField(challengeType)).slice(-maxChallengesOfEachType).each();
+    }
+    return touch(update);
+  }
+
+  // Sabeq is a virtual participant in challenges, so his copies of challenges are never
+  // materialized. See SabeqService.
+  private static List<String> withoutSabeq(Collection<String> usersIds) {
+    List<String> filteredUsersIds = new ArrayList<>(usersIds);
+    filteredUsersIds.remove(User.SABEQ_ID);
+    return filteredUsersIds;
+  }
+
+  private static Query userChallengeQuery(String userId, ChallengeType challengeType,
+      Criteria challengeCriteria) {
+    return query(
+        where("id").is(userId).and(getChallengesField(challengeType))
+            .elemMatch(challengeCriteria));
+  }
+
+  // Partial updates don't go through the auditing handler so the modification time is set here.
+  // The version is incremented so that read-modify-write operations that loaded the document
+  // before this update fail instead of overwriting it.
+  private static Update touch(Update update) {
+    return update.set("updatedAt", Instant.now().toEpochMilli()).inc("version", 1);
+  }
+}
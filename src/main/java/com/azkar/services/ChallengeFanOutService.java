@@ -0,0 +1,67 @@
+package com.azkar.services;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.repos.GroupRepo;
+import com.azkar.repos.UserRepo;
+import com.mongodb.bulk.BulkWriteResult;
+import java.time.Instant;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+/**
+ * Propagates changes of a challenge to the copies of the challenge embedded in the documents of
+ * all the challenge group members. Every fan-out is a single bulk write regardless of the group
+ * size.
+ */
+@Service
+public class ChallengeFanOutService {
+
+  private static final Logger logger = LoggerFactory.getLogger(ChallengeFanOutService.class);
+
+  @Autowired
+  private GroupRepo groupRepo;
+  @Autowired
+  private UserRepo userRepo;
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  /**
+   * Adds {@code finishedUserId} to the users who finished the original copy of {@code challenge}
+   * with a single {@code $addToSet}, so that users finishing the same challenge at the same time
+   * don't overwrite each other's finishes.
+   */
+  public void addUserFinished(ChallengeBase challenge, String finishedUserId) {
+    mongoTemplate.updateFirst(query(where("_id").is(challenge.getId())),
+        new Update()
+            .addToSet("usersFinished", finishedUserId)
+            .set("modifiedAt", Instant.now().toEpochMilli()),
+        challenge.getClass());
+    if (!challenge.getUsersFinished().contains(finishedUserId)) {
+      challenge.getUsersFinished().add(finishedUserId);
+    }
+  }
+
+  /**
+   * Adds {@code finishedUserId} to the users who finished {@code challenge} in the copies of all
+   * the group members.
+   */
+  public BulkWriteResult fanOutUserFinished(ChallengeType challengeType, ChallengeBase challenge,
+      String finishedUserId) {
+    List<String> groupMembers = groupRepo.findById(challenge.getGroupId()).get().getUsersIds();
+    BulkWriteResult result = userRepo.addUserFinishedToChallenge(groupMembers, challengeType,
+        challenge.getId(), finishedUserId);
+    logger.info("Fan-out of user {} finishing {} challenge {} to {} group members: "
+            + "matched {}, modified {}", finishedUserId, challengeType, challenge.getId(),
+        groupMembers.size(), result.getMatchedCount(), result.getModifiedCount());
+    return result;
+  }
+}
@@ -1,8 +1,11 @@
 package com.azkar.services;
 
 import com.azkar.configs.AsyncConfig;
-import com.azkar.entities.User;
+import com.azkar.entities.challenges.ChallengeType;
+import com.azkar.entities.views.UserHome;
 import com.azkar.repos.UserRepo;
+import java.util.Arrays;
+import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -15,46 +18,33 @@ public class ChallengesCleanerService {
   private static final Logger logger = LoggerFactory.getLogger(ChallengesCleanerService.class);
 
   private static final int MAX_USER_CHALLENGES_WITH_SAME_TYPE = 10;
+  private static final ChallengeType[] TRIMMED_CHALLENGE_TYPES = {
+      ChallengeType.AZKAR,
+      ChallengeType.READING_QURAN,
+      ChallengeType.MEANING,
+      ChallengeType.MEMORIZATION};
 
   @Autowired
   private UserRepo userRepo;
 
   @Async(AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
-  public void cleanOldUserChallengesAsync(User user) {
-
-    logger.info("[Old Challenges Deletion] Starting for user: {}. Challenges "
-            + "counts before deletion: "
-            + "(azkar: {}, reading: {}, meaning: {}, memorization: {})",
-        user.getUsername(),
-        user.getAzkarChallenges().size(),
-        user.getReadingQuranChallenges().size(),
-        user.getMeaningChallenges().size(),
-        user.getMemorizationChallenges().size());
-
-    user.setAzkarChallenges(user.getAzkarChallenges().subList(
-        Math.max(0, user.getAzkarChallenges().size() - MAX_USER_CHALLENGES_WITH_SAME_TYPE),
-        user.getAzkarChallenges().size()));
-
-    user.setReadingQuranChallenges(user.getReadingQuranChallenges().subList(
-        Math.max(0, user.getReadingQuranChallenges().size() - MAX_USER_CHALLENGES_WITH_SAME_TYPE),
-        user.getReadingQuranChallenges().size()));
-
-    user.setMeaningChallenges(user.getMeaningChallenges().subList(
-        Math.max(0, user.getMeaningChallenges().size() - MAX_USER_CHALLENGES_WITH_SAME_TYPE),
-        user.getMeaningChallenges().size()));
-
-    user.setMemorizationChallenges(user.getMemorizationChallenges().subList(
-        Math.max(0, user.getMemorizationChallenges().size() - MAX_USER_CHALLENGES_WITH_SAME_TYPE),
-        user.getMemorizationChallenges().size()));
-    userRepo.save(user);
-
-    logger.info("[Old Challenges Deletion] finished for user: {}. Challenges "
-            + "counts after deletion: "
-            + "(azkar: {}, reading: {}, meaning: {}, memorization: {})",
-        user.getUsername(),
-        user.getAzkarChallenges().size(),
-        user.getReadingQuranChallenges().size(),
-        user.getMeaningChallenges().size(),
-        user.getMemorizationChallenges().size());
+  public void cleanOldUserChallengesAsync(UserHome userHome) {
+    Map<ChallengeType, Integer> challengesCounts = userHome.getChallengesCounts();
+    boolean anyExceedsLimit = Arrays.stream(TRIMMED_CHALLENGE_TYPES).anyMatch(challengeType ->
+        challengesCounts.getOrDefault(challengeType, 0) > MAX_USER_CHALLENGES_WITH_SAME_TYPE);
+    // The counts are loaded with the home of the user, so the user is only written if needed.
+    if (!anyExceedsLimit) {
+      return;
+    }
+
+    logger.info("[Old Challenges Deletion] Starting for user: {}. Challenges counts before "
+        + "deletion: {}", userHome.getId(), challengesCounts);
+
+    // Only the challenges lists are trimmed in the database so that changes done to the user
+    // concurrently (e.g. finishing a challenge) are not overwritten.
+    userRepo.trimChallenges(userHome.getId(), MAX_USER_CHALLENGES_WITH_SAME_TYPE,
+        TRIMMED_CHALLENGE_TYPES);
+
+    logger.info("[Old Challenges Deletion] finished for user: {}", userHome.getId());
   }
 }
@@ -0,0 +1,114 @@
+package com.azkar.services;
+
+import com.azkar.entities.challenges.AzkarChallenge;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.entities.challenges.CustomSimpleChallenge;
+import com.azkar.entities.challenges.GlobalChallenge;
+import com.azkar.entities.challenges.MeaningChallenge;
+import com.azkar.entities.challenges.MemorizationChallenge;
+import com.azkar.entities.challenges.ReadingQuranChallenge;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertEvent;
+import org.springframework.stereotype.Service;
+
+/**
+ * Deletes challenges some time after they expire. Every challenge is given an {@code expireAt}
+ * date that is {@code challenges-retention-grace-period-days} after its expiry date, and a TTL
+ * index on that field lets the database delete the challenge once that date passes. {@link
+ * com.azkar.crons.ChallengesArchiverJob} can copy them to archive collections before they are
+ * deleted.
+ */
+@Service
+public class ChallengesRetentionService extends AbstractMongoEventListener<ChallengeBase> {
+
+  public static final String EXPIRE_AT_FIELD = "expireAt";
+  public static final String EXPIRE_AT_INDEX_NAME = "expireAt_ttl_index";
+  // Global challenges are not included since they are shared by all users.
+  public static final List<Class<? extends ChallengeBase>> RETAINED_CHALLENGE_CLASSES =
+      Collections.unmodifiableList(Arrays.asList(
+          AzkarChallenge.class,
+          MeaningChallenge.class,
+          ReadingQuranChallenge.class,
+          MemorizationChallenge.class,
+          CustomSimpleChallenge.class));
+
+  private static final Logger logger = LoggerFactory.getLogger(ChallengesRetentionService.class);
+
+  @Value("${challenges-retention-enabled}")
+  public boolean enabled;
+
+  @Value("${challenges-retention-grace-period-days}")
+  public long gracePeriodDays;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void ensureTtlIndexes() {
+    for (Class<? extends ChallengeBase> challengeClass : RETAINED_CHALLENGE_CLASSES) {
+      ensureTtlIndex(mongoTemplate.indexOps(challengeClass));
+    }
+    logger.info("Challenges retention is {} with a grace period of {} days",
+        enabled ? "enabled" : "disabled", gracePeriodDays);
+  }
+
+  /**
+   * Returns when a challenge expiring at {@code expiryDate} (in seconds since epoch) should be
+   * deleted, or null if it should never be deleted.
+   */
+  public Date getExpireAt(long expiryDate) {
+    if (!enabled) {
+      return null;
+    }
+    return Date.from(Instant.ofEpochSecond(expiryDate).plus(Duration.ofDays(gracePeriodDays)));
+  }
+
+  /**
+   * Returns the expiry date (in seconds since epoch) before which challenges are no longer kept.
+   */
+  public long getOldestRetainedExpiryDate() {
+    return Instant.now().minus(Duration.ofDays(gracePeriodDays)).getEpochSecond();
+  }
+
+  // All the challenges saved by the application pass by here, so their expireAt is always in sync
+  // with their expiry date.
+  @Override
+  public void onBeforeConvert(BeforeConvertEvent<ChallengeBase> event) {
+    ChallengeBase challenge = event.getSource();
+    if (!(challenge instanceof GlobalChallenge)) {
+      challenge.setExpireAt(getExpireAt(challenge.getExpiryDate()));
+    }
+  }
+
+  // The index is created here and not by annotating the field since challenges are also embedded
+  // in user documents, where a TTL index would delete the whole users. It is also dropped when the
+  // retention is disabled so that the challenges which already have an expireAt are kept.
+  private void ensureTtlIndex(IndexOperations indexOperations) {
+    if (enabled) {
+      indexOperations.ensureIndex(new Index().on(EXPIRE_AT_FIELD, Direction.ASC)
+          .named(EXPIRE_AT_INDEX_NAME).expire(0));
+      return;
+    }
+    boolean indexExists = indexOperations.getIndexInfo().stream()
+        .anyMatch(indexInfo -> EXPIRE_AT_INDEX_NAME.equals(indexInfo.getName()));
+    if (indexExists) {
+      indexOperations.dropIndex(EXPIRE_AT_INDEX_NAME);
+    }
+  }
+}
@@ -2,24 +2,28 @@ package com.azkar.services;
 
 import com.azkar.configs.AsyncConfig;
 import com.azkar.entities.Group;
+import com.azkar.entities.HomeFeed;
 import com.azkar.entities.User;
 import com.azkar.entities.Zekr;
 import com.azkar.entities.challenges.AzkarChallenge;
 import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
+import com.azkar.entities.challenges.ChallengeType;
 import com.azkar.entities.challenges.CustomSimpleChallenge;
 import com.azkar.entities.challenges.MeaningChallenge;
 import com.azkar.entities.challenges.MemorizationChallenge;
 import com.azkar.entities.challenges.ReadingQuranChallenge;
+import com.azkar.entities.views.UserHome;
+import com.azkar.entities.views.UserSummary;
 import com.azkar.payload.challengecontroller.responses.ReturnedChallenge;
 import com.azkar.payload.utils.FeaturesVersions;
 import com.azkar.payload.utils.VersionComparator;
 import com.azkar.repos.GroupRepo;
-import com.azkar.repos.UserRepo;
 import com.google.common.collect.ImmutableList;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,9 +33,6 @@ import org.springframework.stereotype.Service;
 @Service
 public class ChallengesService {
 
-  @Autowired
-  UserRepo userRepo;
-
   @Autowired
   GroupRepo groupRepo;
 
@@ -40,25 +41,55 @@ public class ChallengesService {
 
   private static final Logger logger = LoggerFactory.getLogger(ChallengesService.class);
 
-  // Increasing this results in significant amount of delays in GET apiHome requests because all
-  // the azkar text will be sent by the server to the client.
-  private static final int MAX_RETURNED_AZKAR_CHALLENGES = 5;
-  private static final int MAX_RETURNED_READING_QURAN_CHALLENGES = 5;
-  private static final int MAX_RETURNED_MEANING_CHALLENGES = 5;
-  private static final int MAX_RETURNED_MEMORIZATION_CHALLENGES = 5;
-  private static final int MAX_RETURNED_CUSTOM_SIMPLE_CHALLENGES = 10;
+  // The home feeds keep only the challenges that are returned.
+  private static final int MAX_RETURNED_AZKAR_CHALLENGES =
+      HomeFeed.getMaxChallenges(ChallengeType.AZKAR);
+  private static final int MAX_RETURNED_READING_QURAN_CHALLENGES =
+      HomeFeed.getMaxChallenges(ChallengeType.READING_QURAN);
+  private static final int MAX_RETURNED_MEANING_CHALLENGES =
+      HomeFeed.getMaxChallenges(ChallengeType.MEANING);
+  private static final int MAX_RETURNED_MEMORIZATION_CHALLENGES =
+      HomeFeed.getMaxChallenges(ChallengeType.MEMORIZATION);
+  private static final int MAX_RETURNED_CUSTOM_SIMPLE_CHALLENGES =
+      HomeFeed.getMaxChallenges(ChallengeType.CUSTOM_SIMPLE);
 
 
   @Async(value = AsyncConfig.CONTROLLERS_TASK_EXECUTOR)
   public CompletableFuture<List<ReturnedChallenge>> getAllChallenges(String apiVersion, User user) {
-    List<AzkarChallenge> allUserAzkarChallenges = user.getAzkarChallenges();
-    List<ReadingQuranChallenge> allUserReadingQuranChallenges =
-        user.getReadingQuranChallenges();
-    List<MeaningChallenge> allUserMeaningChallenges =
-        user.getMeaningChallenges();
-    List<MemorizationChallenge> allUserMemorizationChallenges = user.getMemorizationChallenges();
-    List<CustomSimpleChallenge> allUserCustomSimpleChallenges = user.getCustomSimpleChallenges();
+    return CompletableFuture.completedFuture(getChallenges(apiVersion, user));
+  }
+
+  /**
+   * Same as {@link #getAllChallenges(String, User)} but on the calling thread.
+   */
+  public List<ReturnedChallenge> getChallenges(String apiVersion, User user) {
+    return toReturnedChallenges(apiVersion,
+        user.getAzkarChallenges(),
+        user.getMeaningChallenges(),
+        user.getReadingQuranChallenges(),
+        user.getMemorizationChallenges(),
+        user.getCustomSimpleChallenges());
+  }
+
+  /**
+   * Returns the same challenges as {@link #getAllChallenges(String, User)} but from the home feed
+   * of the user.
+   */
+  public List<ReturnedChallenge> getAllChallenges(String apiVersion, UserHome userHome) {
+    return toReturnedChallenges(apiVersion,
+        userHome.getAzkarChallenges(),
+        userHome.getMeaningChallenges(),
+        userHome.getReadingQuranChallenges(),
+        userHome.getMemorizationChallenges(),
+        userHome.getCustomSimpleChallenges());
+  }
 
+  private List<ReturnedChallenge> toReturnedChallenges(String apiVersion,
+      List<AzkarChallenge> allUserAzkarChallenges,
+      List<MeaningChallenge> allUserMeaningChallenges,
+      List<ReadingQuranChallenge> allUserReadingQuranChallenges,
+      List<MemorizationChallenge> allUserMemorizationChallenges,
+      List<CustomSimpleChallenge> allUserCustomSimpleChallenges) {
     List<ReturnedChallenge> challenges = new ArrayList<>();
 
     for (int i = 0; i < Math.min(MAX_RETURNED_AZKAR_CHALLENGES, allUserAzkarChallenges.size());
@@ -74,9 +105,7 @@ public class ChallengesService {
           .build());
     }
 
-    if (apiVersion != null
-        && VersionComparator.compare(apiVersion, FeaturesVersions.READING_QURAN_CHALLENGE_VERSION)
-        >= 0) {
+    if (isSupported(apiVersion, FeaturesVersions.READING_QURAN_CHALLENGE_VERSION)) {
       for (int i = 0;
           i < Math.min(MAX_RETURNED_READING_QURAN_CHALLENGES, allUserReadingQuranChallenges.size());
           i++) {
@@ -86,9 +115,7 @@ public class ChallengesService {
       }
     }
 
-    if (apiVersion != null
-        && VersionComparator.compare(apiVersion, FeaturesVersions.MEMORIZATION_CHALLENGE_VERSION)
-        >= 0) {
+    if (isSupported(apiVersion, FeaturesVersions.MEMORIZATION_CHALLENGE_VERSION)) {
       for (int i = 0;
           i < Math.min(MAX_RETURNED_MEMORIZATION_CHALLENGES, allUserMemorizationChallenges.size());
           i++) {
@@ -98,9 +125,7 @@ public class ChallengesService {
       }
     }
 
-    if (apiVersion != null
-        && VersionComparator.compare(apiVersion, FeaturesVersions.CUSTOM_SIMPLE_CHALLENGE_VERSION)
-        >= 0) {
+    if (isSupported(apiVersion, FeaturesVersions.CUSTOM_SIMPLE_CHALLENGE_VERSION)) {
       for (int i = 0;
           i < Math.min(MAX_RETURNED_CUSTOM_SIMPLE_CHALLENGES, allUserCustomSimpleChallenges.size());
           i++) {
@@ -111,130 +136,119 @@ public class ChallengesService {
     }
 
     challenges.sort(new ChallengesSorter());
-    return CompletableFuture.completedFuture(challenges);
+    return challenges;
+  }
+
+  private static boolean isSupported(String apiVersion, String featureVersion) {
+    return apiVersion != null && VersionComparator.compare(apiVersion, featureVersion) >= 0;
   }
 
   @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
-  public void sendNotificationOnFinishedAzkarChallenge(User userFinishedChallenge,
+  public void sendNotificationOnFinishedAzkarChallenge(UserSummary userFinishedChallenge,
       AzkarChallenge challenge) {
     logger.info("Sending notifications for user's {} friends on finished azkar challenge",
         userFinishedChallenge.getUsername());
 
     Group group = groupRepo.findById(challenge.getGroupId()).get();
-    group.getUsersIds().stream().forEach(userId -> {
-      if (!userId.equals(userFinishedChallenge.getId())) {
-
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += userFinishedChallenge.getFirstName();
-        body += " ";
-        body += userFinishedChallenge.getLastName();
-        body += " (";
-
-        body += challenge.getName();
-        body += ")";
-        notificationsService
-            .sendNotificationToUser(userRepo.findById(userId).get(), "صديق لك أنهى تحدياً",
-                body);
-      }
-    });
+    List<String> otherMembersIds = group.getUsersIds().stream()
+        .filter(userId -> !userId.equals(userFinishedChallenge.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += userFinishedChallenge.getFirstName();
+    body += " ";
+    body += userFinishedChallenge.getLastName();
+    body += " (";
+
+    body += challenge.getName();
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "صديق لك أنهى تحدياً", body);
   }
 
   @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
-  public void sendNotificationOnFinishedMeaningChallenge(User userFinishedChallenge,
+  public void sendNotificationOnFinishedMeaningChallenge(UserSummary userFinishedChallenge,
       MeaningChallenge challenge) {
     Group group = groupRepo.findById(challenge.getGroupId()).get();
-    group.getUsersIds().stream().forEach(userId -> {
-      if (!userId.equals(userFinishedChallenge.getId())) {
-
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += userFinishedChallenge.getFirstName();
-        body += " ";
-        body += userFinishedChallenge.getLastName();
-        body += " (";
-
-        body += "معاني كلمات القرآن";
-        body += ")";
-        notificationsService
-            .sendNotificationToUser(userRepo.findById(userId).get(), "صديق لك أنهى تحدياً",
-                body);
-      }
-    });
+    List<String> otherMembersIds = group.getUsersIds().stream()
+        .filter(userId -> !userId.equals(userFinishedChallenge.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += userFinishedChallenge.getFirstName();
+    body += " ";
+    body += userFinishedChallenge.getLastName();
+    body += " (";
+
+    body += "معاني كلمات القرآن";
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "صديق لك أنهى تحدياً", body);
   }
 
   @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
-  public void sendNotificationOnFinishedReadingQuranChallenge(User userFinishedChallenge,
+  public void sendNotificationOnFinishedReadingQuranChallenge(UserSummary userFinishedChallenge,
       ReadingQuranChallenge challenge) {
     Group group = groupRepo.findById(challenge.getGroupId()).get();
-    group.getUsersIds().stream().forEach(userId -> {
-      if (!userId.equals(userFinishedChallenge.getId())) {
-
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += userFinishedChallenge.getFirstName();
-        body += " ";
-        body += userFinishedChallenge.getLastName();
-        body += " (";
-
-        body += "قراءة قرآن";
-        body += ")";
-        notificationsService
-            .sendNotificationToUser(userRepo.findById(userId).get(), "صديق لك أنهى تحدياً",
-                body);
-      }
-    });
+    List<String> otherMembersIds = group.getUsersIds().stream()
+        .filter(userId -> !userId.equals(userFinishedChallenge.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += userFinishedChallenge.getFirstName();
+    body += " ";
+    body += userFinishedChallenge.getLastName();
+    body += " (";
+
+    body += "قراءة قرآن";
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "صديق لك أنهى تحدياً", body);
   }
 
   @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
-  public void sendNotificationOnFinishedCustomSimpleChallenge(User userFinishedChallenge,
+  public void sendNotificationOnFinishedCustomSimpleChallenge(UserSummary userFinishedChallenge,
       CustomSimpleChallenge challenge) {
     Group group = groupRepo.findById(challenge.getGroupId()).get();
-    group.getUsersIds().stream().forEach(userId -> {
-      if (!userId.equals(userFinishedChallenge.getId())) {
-
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += userFinishedChallenge.getFirstName();
-        body += " ";
-        body += userFinishedChallenge.getLastName();
-        body += " (";
-
-        body += challenge.getDescription();
-        body += ")";
-        notificationsService
-            .sendNotificationToUser(userRepo.findById(userId).get(), "صديق لك أنهى تحدياً",
-                body);
-      }
-    });
+    List<String> otherMembersIds = group.getUsersIds().stream()
+        .filter(userId -> !userId.equals(userFinishedChallenge.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += userFinishedChallenge.getFirstName();
+    body += " ";
+    body += userFinishedChallenge.getLastName();
+    body += " (";
+
+    body += challenge.getDescription();
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "صديق لك أنهى تحدياً", body);
   }
 
   @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
-  public void sendNotificationOnFinishedMemorizationChallenge(User userFinishedChallenge,
+  public void sendNotificationOnFinishedMemorizationChallenge(UserSummary userFinishedChallenge,
       MemorizationChallenge challenge) {
     Group group = groupRepo.findById(challenge.getGroupId()).get();
-    group.getUsersIds().stream().forEach(userId -> {
-      if (!userId.equals(userFinishedChallenge.getId())) {
-
-        // Fire emoji 🔥
-        String body = "\uD83D\uDD25";
-        body += " ";
-        body += userFinishedChallenge.getFirstName();
-        body += " ";
-        body += userFinishedChallenge.getLastName();
-        body += " (";
-
-        body += "اختبار حفظ قرآن";
-        body += ")";
-        notificationsService
-            .sendNotificationToUser(userRepo.findById(userId).get(), "صديق لك أنهى تحدياً",
-                body);
-      }
-    });
+    List<String> otherMembersIds = group.getUsersIds().stream()
+        .filter(userId -> !userId.equals(userFinishedChallenge.getId()))
+        .collect(Collectors.toList());
+
+    // Fire emoji 🔥
+    String body = "\uD83D\uDD25";
+    body += " ";
+    body += userFinishedChallenge.getFirstName();
+    body += " ";
+    body += userFinishedChallenge.getLastName();
+    body += " (";
+
+    body += "اختبار حفظ قرآن";
+    body += ")";
+    notificationsService.sendNotificationToUsers(otherMembersIds, "صديق لك أنهى تحدياً", body);
   }
 
   private static class ChallengesSorter implements Comparator<ReturnedChallenge> {
@@ -7,8 +7,11 @@ import com.azkar.entities.User;
 import com.azkar.payload.utils.FeaturesVersions;
 import com.azkar.payload.utils.VersionComparator;
 import com.azkar.repos.FriendshipRepo;
+import com.azkar.repos.UserChangeRepo;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -23,6 +26,10 @@ public class FriendshipService {
 
   @Autowired
   FriendshipRepo friendshipRepo;
+  @Autowired
+  OptimisticLockingRetrier optimisticLockingRetrier;
+  @Autowired
+  UserChangeRepo userChangeRepo;
 
   @Async(value = AsyncConfig.CONTROLLERS_TASK_EXECUTOR)
   public CompletableFuture<List<Friend>> getFriendsLeaderboard(String apiVersion, User user) {
@@ -30,12 +37,49 @@ public class FriendshipService {
     Friendship friendship =
         friendshipRepo.findByUserId(user.getId());
 
+    return CompletableFuture.completedFuture(getFriendsLeaderboard(apiVersion, friendship));
+  }
+
+  /**
+   * Returns the friends in {@code friendship} that can be shown by clients using {@code
+   * apiVersion}.
+   */
+  public static List<Friend> getFriendsLeaderboard(String apiVersion, Friendship friendship) {
     List<Friend> friends = friendship.getFriends();
     if (apiVersion == null
         || VersionComparator.compare(apiVersion, FeaturesVersions.SABEQ_ADDITION_VERSION) < 0) {
       friends = friends.stream().filter(friend -> !friend.getUserId().equals(User.SABEQ_ID))
           .collect(Collectors.toList());
     }
-    return CompletableFuture.completedFuture(friends);
+    return friends;
+  }
+
+  /**
+   * Applies {@code modifier} to the latest version of the friendship of {@code userId} and saves
+   * it. {@code modifier} may be applied more than once if the friendship is modified concurrently,
+   * each time to a newly loaded friendship.
+   */
+  public void updateFriendship(String userId, Consumer<Friendship> modifier) {
+    optimisticLockingRetrier.run(() -> {
+      Friendship friendship = friendshipRepo.findByUserId(userId);
+      modifier.accept(friendship);
+      friendshipRepo.save(friendship);
+    });
+    userChangeRepo.recordFriendshipChange(Collections.singletonList(userId));
+  }
+
+  /**
+   * Adds {@code friend} to {@code friendship} unless the friendship already has an entry for the
+   * same user.
+   */
+  public static void addFriendIfAbsent(Friendship friendship, Friend friend) {
+    if (friendship.getFriends().stream()
+        .noneMatch(existingFriend -> existingFriend.getUserId().equals(friend.getUserId()))) {
+      friendship.getFriends().add(friend);
+    }
+  }
+
+  public static void removeFriend(Friendship friendship, String friendId) {
+    friendship.getFriends().removeIf(friend -> friend.getUserId().equals(friendId));
   }
 }
@@ -1,7 +1,9 @@
 package com.azkar.services;
 
 import com.azkar.entities.Group;
+import com.azkar.entities.GroupChallenge;
 import com.azkar.entities.User;
+import com.azkar.repos.GroupChallengeRepo;
 import com.azkar.repos.GroupRepo;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -16,6 +18,13 @@ public class GroupsService {
 
   @Autowired
   GroupRepo groupRepo;
+  @Autowired
+  GroupChallengeRepo groupChallengeRepo;
+
+  public void addChallenge(String groupId, String challengeId) {
+    groupChallengeRepo.insert(
+        GroupChallenge.builder().groupId(groupId).challengeId(challengeId).build());
+  }
 
   public CompletableFuture<List<Group>> getGroups(User user) {
     // Group IDs in use are the groups in which one of the user challenges belong to. Note that
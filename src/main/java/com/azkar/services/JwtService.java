@@ -18,6 +18,7 @@ public class JwtService {
 
   private static final long TOKEN_TIMEOUT_IN_MILLIS = TimeUnit.DAYS.toMillis(7);
   private static final String BEARER_TOKEN_PREFIX = "Bearer ";
+  private static final String USERNAME_CLAIM = "username";
 
   @Value("${app.jwtSecret}")
   String jwtSecret;
@@ -25,6 +26,7 @@ public class JwtService {
   public String generateToken(User user) throws UnsupportedEncodingException {
     return JWT.create()
         .withSubject(user.getId())
+        .withClaim(USERNAME_CLAIM, user.getUsername())
         .withExpiresAt(new Date(System.currentTimeMillis() + TOKEN_TIMEOUT_IN_MILLIS))
         .sign(Algorithm.HMAC512(jwtSecret));
   }
@@ -44,4 +46,12 @@ public class JwtService {
   public DecodedJWT decode(String token) throws UnsupportedEncodingException {
     return JWT.decode(token);
   }
+
+  /**
+   * Returns the username embedded in the token, or null for tokens generated before the username
+   * was added to the token claims.
+   */
+  public String getUsername(DecodedJWT decodedJwt) {
+    return decodedJwt.getClaim(USERNAME_CLAIM).asString();
+  }
 }
@@ -1,24 +1,17 @@
 package com.azkar.services;
 
-import com.azkar.configs.AsyncConfig;
 import com.azkar.entities.User;
-import com.azkar.repos.UserRepo;
-import com.google.auth.oauth2.GoogleCredentials;
-import com.google.firebase.FirebaseApp;
-import com.google.firebase.FirebaseOptions;
-import com.google.firebase.messaging.ApnsConfig;
-import com.google.firebase.messaging.Aps;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.Message;
-import com.google.firebase.messaging.MessagingErrorCode;
-import com.google.firebase.messaging.Notification;
-import java.io.IOException;
-import javax.annotation.PostConstruct;
+import com.azkar.services.notifications.NotificationDispatcher;
+import com.azkar.services.notifications.NotificationTargetsCache;
+import com.azkar.services.notifications.PushNotification;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -27,54 +20,54 @@ public class NotificationsService {
   private static final Logger logger = LoggerFactory.getLogger(NotificationsService.class);
 
   @Autowired
-  private UserRepo userRepo;
+  private NotificationDispatcher notificationDispatcher;
 
-  @PostConstruct
-  public void initialize() {
-    FirebaseOptions options = null;
-    try {
-      options = FirebaseOptions.builder()
-          .setCredentials(GoogleCredentials.getApplicationDefault())
-          .build();
-      FirebaseApp.initializeApp(options);
-    } catch (IOException e) {
-      logger.error("Could not initialize Firebase app correctly.", e);
-    }
-  }
+  @Autowired
+  private NotificationTargetsCache notificationTargetsCache;
 
-  @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
+  // The notification is only written to the outbox, so this never waits for it to be sent. See
+  // NotificationDispatcher.
   public void sendNotificationToUser(User user, String title, String body) {
-    if (user.getNotificationsToken() == null || user.getNotificationsToken().isEmpty()) {
-      logger.warn(String.format("Token not found for user: %s", user.getId()));
-      return;
-    }
-
-    Message message = Message.builder()
-        .setToken(user.getNotificationsToken())
-        .setNotification(
-            Notification.builder().setTitle(title).setBody(body).build())
-        .setApnsConfig(
-            ApnsConfig.builder()
-                .setAps(
-                    Aps.builder()
-                        .setSound("default")
-                        .build()
-                )
-                .build())
-        .build();
+    dispatch(Collections.singletonList(toPushNotification(user.getId(),
+        user.getNotificationsToken(), title, body)), title);
+  }
 
-    try {
-      FirebaseMessaging.getInstance().send(message);
-    } catch (FirebaseMessagingException e) {
-      logger.warn(
-          String.format("Failed to send a notification to user: %s with error code: %s, with "
-                  + "title: %s, and body: %s",
-              user.getId(), e.getMessagingErrorCode(), title, body), e);
+  // Looks up only the notifications tokens of the users, see NotificationTargetsCache. Use it
+  // instead of loading the users just to notify them. All the notifications are written to the
+  // outbox with a single write.
+  public void sendNotificationToUsers(Collection<String> usersIds, String title, String body) {
+    dispatch(notificationTargetsCache.getAll(usersIds).stream()
+        .map(target -> toPushNotification(target.getId(), target.getNotificationsToken(), title,
+            body))
+        .collect(Collectors.toList()), title);
+  }
 
-      if (e.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED) {
-        user.setNotificationsToken(null);
-        userRepo.save(user);
+  private void dispatch(List<PushNotification> notifications, String title) {
+    List<PushNotification> notificationsWithTokens = new ArrayList<>();
+    for (PushNotification notification : notifications) {
+      if (notification.getToken() == null || notification.getToken().isEmpty()) {
+        logger.warn(String.format("Token not found for user: %s", notification.getUserId()));
+      } else {
+        notificationsWithTokens.add(notification);
       }
     }
+
+    // Failing to notify should not fail the request that triggered the notification.
+    try {
+      notificationDispatcher.dispatch(notificationsWithTokens);
+    } catch (RuntimeException e) {
+      logger.error(String.format("Failed to write %d notifications with title: %s to the outbox",
+          notificationsWithTokens.size(), title), e);
+    }
+  }
+
+  private static PushNotification toPushNotification(String userId, String token, String title,
+      String body) {
+    return PushNotification.builder()
+        .userId(userId)
+        .token(token)
+        .title(title)
+        .body(body)
+        .build();
   }
 }
@@ -0,0 +1,60 @@
+package com.azkar.services;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+/**
+ * Retries read-modify-write operations on versioned documents (e.g. {@link
+ * com.azkar.entities.User} and {@link com.azkar.entities.Friendship}) that fail because the
+ * document was modified concurrently. Every attempt should load the latest version of the
+ * documents it modifies so that the concurrent modification is not overwritten.
+ */
+@Service
+public class OptimisticLockingRetrier {
+
+  private static final Logger logger = LoggerFactory.getLogger(OptimisticLockingRetrier.class);
+
+  private static final int MAX_ATTEMPTS = 5;
+  private static final long BASE_BACKOFF_MILLIS = 5;
+  private static final long MAX_BACKOFF_MILLIS = 100;
+
+  public void run(Runnable attempt) {
+    get(() -> {
+      attempt.run();
+      return null;
+    });
+  }
+
+  public <T> T get(Supplier<T> attempt) {
+    for (int attemptNumber = 1; ; attemptNumber++) {
+      try {
+        return attempt.get();
+      } catch (OptimisticLockingFailureException e) {
+        if (attemptNumber == MAX_ATTEMPTS) {
+          logger.warn("Giving up after {} conflicting attempts", attemptNumber);
+          throw e;
+        }
+        if (!backOff(attemptNumber)) {
+          throw e;
+        }
+      }
+    }
+  }
+
+  // The backoff is chosen randomly so that the requests that conflicted once don't conflict again
+  // on their next attempts. Returns false if the thread was interrupted while backing off.
+  private static boolean backOff(int attemptNumber) {
+    long maxBackoffMillis = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << attemptNumber);
+    try {
+      Thread.sleep(ThreadLocalRandom.current().nextLong(maxBackoffMillis + 1));
+      return true;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+}
@@ -0,0 +1,31 @@
+package com.azkar.services;
+
+import com.azkar.entities.User;
+import com.azkar.entities.views.UserSummary;
+import com.azkar.repos.UserRepo;
+import java.util.Optional;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sabeq is a virtual participant: every user is his friend and he is a member of a group with
+ * every user, but nothing is ever written to his user or friendship documents, so his challenges
+ * are never materialized in his user document.
+ */
+@Service
+public class SabeqService {
+
+  @Autowired
+  private UserRepo userRepo;
+
+  // Sabeq's name and username never change so they are loaded only once.
+  private volatile UserSummary sabeq;
+
+  public Optional<UserSummary> getSabeq() {
+    if (sabeq == null) {
+      userRepo.findViewById(User.SABEQ_ID, UserSummary.class)
+          .ifPresent(loadedSabeq -> sabeq = loadedSabeq);
+    }
+    return Optional.ofNullable(sabeq);
+  }
+}
@@ -0,0 +1,125 @@
+package com.azkar.services;
+
+import com.azkar.entities.Friendship;
+import com.azkar.entities.User;
+import com.azkar.entities.UserChange;
+import com.azkar.entities.challenges.ChallengeBase;
+import com.azkar.payload.synccontroller.SyncResponse.Body;
+import com.azkar.repos.FriendshipRepo;
+import com.azkar.repos.GroupRepo;
+import com.azkar.repos.UserChangeRepo;
+import com.azkar.repos.UserRepo;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Returns only what changed for a user since the last sync of a client, using the change log of
+ * the user, see {@link UserChange}. The watermark given to clients is the time of their last sync
+ * in milliseconds since epoch, but clients should treat it as an opaque token.
+ */
+@Service
+public class SyncService {
+
+  // A change is timestamped just before it is inserted and possibly by another server, so every
+  // sync reads the changes recorded shortly before its watermark again. Changes returned twice are
+  // harmless since the current state of what changed is what is returned.
+  private static final Duration WATERMARK_OVERLAP = Duration.ofSeconds(10);
+
+  @Autowired
+  UserChangeRepo userChangeRepo;
+  @Autowired
+  UserRepo userRepo;
+  @Autowired
+  FriendshipRepo friendshipRepo;
+  @Autowired
+  GroupRepo groupRepo;
+  @Autowired
+  ChallengesService challengesService;
+
+  public Body sync(String userId, String apiVersion, String since) {
+    Instant now = Instant.now();
+    String watermark = String.valueOf(now.toEpochMilli());
+    Optional<Instant> lastSync = parseWatermark(since);
+    if (!lastSync.isPresent()
+        || lastSync.get().isBefore(now.minusSeconds(UserChange.RETENTION_SECONDS))) {
+      return Body.builder().watermark(watermark).fullSyncRequired(true).build();
+    }
+
+    Set<String> changedChallengesIds = new LinkedHashSet<>();
+    Set<String> removedChallengesIds = new LinkedHashSet<>();
+    Set<String> changedGroupsIds = new LinkedHashSet<>();
+    boolean friendshipChanged = false;
+    for (UserChange change : userChangeRepo.findChangesSince(userId,
+        Date.from(lastSync.get().minus(WATERMARK_OVERLAP)))) {
+      switch (change.getType()) {
+        case CHALLENGE:
+          changedChallengesIds.add(change.getEntityId());
+          removedChallengesIds.remove(change.getEntityId());
+          break;
+        case CHALLENGE_REMOVED:
+          removedChallengesIds.add(change.getEntityId());
+          changedChallengesIds.remove(change.getEntityId());
+          break;
+        case FRIENDSHIP:
+          friendshipChanged = true;
+          break;
+        case GROUP:
+          changedGroupsIds.add(change.getEntityId());
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown change type: " + change.getType());
+      }
+    }
+
+    Body.BodyBuilder body = Body.builder()
+        .watermark(watermark)
+        .challenges(new ArrayList<>())
+        .removedChallengesIds(new ArrayList<>(removedChallengesIds))
+        .groups(new ArrayList<>());
+    if (!changedChallengesIds.isEmpty()) {
+      Optional<User> user = userRepo.findChallengesByIds(userId, changedChallengesIds);
+      if (user.isPresent()) {
+        body.challenges(challengesService.getChallenges(apiVersion, user.get()));
+        getChallenges(user.get()).map(ChallengeBase::getGroupId).filter(Objects::nonNull)
+            .forEach(changedGroupsIds::add);
+      }
+    }
+    if (friendshipChanged) {
+      Friendship friendship = friendshipRepo.findByUserId(userId);
+      body.friends(friendship == null ? new ArrayList<>()
+          : FriendshipService.getFriendsLeaderboard(apiVersion, friendship));
+    }
+    if (!changedGroupsIds.isEmpty()) {
+      body.groups(groupRepo.findAllById(changedGroupsIds));
+    }
+    return body.build();
+  }
+
+  private static Optional<Instant> parseWatermark(String watermark) {
+    if (watermark == null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(Instant.ofEpochMilli(Long.parseLong(watermark)));
+    } catch (NumberFormatException e) {
+      return Optional.empty();
+    }
+  }
+
+  private static Stream<ChallengeBase> getChallenges(User user) {
+    return Stream.<List<? extends ChallengeBase>>of(user.getAzkarChallenges(),
+            user.getMeaningChallenges(), user.getReadingQuranChallenges(),
+            user.getMemorizationChallenges(), user.getCustomSimpleChallenges())
+        .<ChallengeBase>flatMap(List::stream);
+  }
+}
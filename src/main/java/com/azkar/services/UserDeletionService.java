@@ -0,0 +1,102 @@
+package com.azkar.services;
+
+import com.azkar.configs.AsyncConfig;
+import com.azkar.entities.Friendship;
+import com.azkar.entities.Friendship.Friend;
+import com.azkar.entities.Group;
+import com.azkar.repos.FriendshipRepo;
+import com.azkar.repos.GroupRepo;
+import com.azkar.repos.HomeFeedRepo;
+import com.azkar.repos.PubliclyAvailableFemaleUsersRepo;
+import com.azkar.repos.PubliclyAvailableMaleUsersRepo;
+import com.azkar.repos.UserChangeRepo;
+import com.azkar.repos.UserRepo;
+import com.azkar.services.notifications.NotificationTargetsCache;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Deletes users and everything that references them. Only the user and what is needed to stop
+ * them from being used is deleted while deleting the user, and the rest, including removing them
+ * from the friendships and groups of other users, is done in the background by {@link
+ * #cleanUpDeletedUser(String)}.
+ */
+@Service
+public class UserDeletionService {
+
+  private static final Logger logger = LoggerFactory.getLogger(UserDeletionService.class);
+
+  @Autowired
+  private UserRepo userRepo;
+  @Autowired
+  private FriendshipRepo friendshipRepo;
+  @Autowired
+  private GroupRepo groupRepo;
+  @Autowired
+  private PubliclyAvailableMaleUsersRepo publiclyAvailableMaleUsersRepo;
+  @Autowired
+  private PubliclyAvailableFemaleUsersRepo publiclyAvailableFemaleUsersRepo;
+  @Autowired
+  private HomeFeedRepo homeFeedRepo;
+  @Autowired
+  private UserChangeRepo userChangeRepo;
+  @Autowired
+  private NotificationTargetsCache notificationTargetsCache;
+
+  public void deleteUser(String userId) {
+    userRepo.deleteById(userId);
+    homeFeedRepo.deleteById(userId);
+    notificationTargetsCache.invalidate(userId);
+  }
+
+  /**
+   * Removes everything that references a deleted user. Until this is done, other users may still
+   * see the deleted user in their friendships and groups.
+   */
+  @Async(value = AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
+  public void cleanUpDeletedUser(String userId) {
+    deleteFriendships(userId);
+    removeFromGroups(userId);
+
+    publiclyAvailableMaleUsersRepo.deleteByUserId(userId);
+    publiclyAvailableFemaleUsersRepo.deleteByUserId(userId);
+    userChangeRepo.deleteByUserId(userId);
+  }
+
+  private void removeFromGroups(String userId) {
+    // The groups are shown in the homes of their members, so the members are found before the
+    // user is removed from the groups.
+    List<Group> groups = groupRepo.findByUsersIdsContaining(userId);
+
+    long modifiedGroupsCount = groupRepo.removeUserFromAllGroups(userId);
+    logger.info("Removed user with ID {} from {} groups", userId, modifiedGroupsCount);
+
+    for (Group group : groups) {
+      List<String> remainingMembersIds = group.getUsersIds().stream()
+          .filter(memberId -> !memberId.equals(userId))
+          .collect(Collectors.toList());
+      userChangeRepo.recordGroupChange(remainingMembersIds, group.getId());
+    }
+  }
+
+  private void deleteFriendships(String userId) {
+    Friendship friendship = friendshipRepo.findByUserId(userId);
+    if (friendship != null) {
+      List<String> friendsIds = friendship.getFriends().stream()
+          .map(Friend::getUserId)
+          .collect(Collectors.toList());
+      long modifiedFriendshipsCount =
+          friendshipRepo.removeFriendFromFriendships(userId, friendsIds);
+      // Friends with pending requests and Sabeq don't have the user in their friendships.
+      logger.info("Removed user with ID {} from {} friendships of {} friends", userId,
+          modifiedFriendshipsCount, friendsIds.size());
+    }
+
+    friendshipRepo.deleteByUserId(userId);
+  }
+}
@@ -7,13 +7,13 @@ import com.azkar.entities.Friendship;
 import com.azkar.entities.Friendship.Friend;
 import com.azkar.entities.Group;
 import com.azkar.entities.User;
-import com.azkar.entities.User.UserGroup;
 import com.azkar.entities.Zekr;
 import com.azkar.entities.challenges.AzkarChallenge;
 import com.azkar.entities.challenges.AzkarChallenge.SubChallenge;
 import com.azkar.entities.challenges.MeaningChallenge;
 import com.azkar.entities.challenges.ReadingQuranChallenge;
 import com.azkar.entities.challenges.ReadingQuranChallenge.SurahSubChallenge;
+import com.azkar.entities.views.UserSummary;
 import com.azkar.repos.AzkarChallengeRepo;
 import com.azkar.repos.FriendshipRepo;
 import com.azkar.repos.GroupRepo;
@@ -24,16 +24,26 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Optional;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.bson.types.ObjectId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
 @Service
 public class UserService {
 
+  private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+
   private static final String ENGLISH_CHARS_STRING_REGEX = "^[a-zA-Z]*$";
+  // Candidates that are probably taken are skipped at most this number of times, after which the
+  // unique index decides whether the candidate is taken.
+  private static final int MAX_USERNAME_CANDIDATES = 10;
+  private static final int MAX_USERNAME_INSERTION_ATTEMPTS = 5;
   @Autowired
   private UserRepo userRepo;
   @Autowired
@@ -41,6 +51,8 @@ public class UserService {
   @Autowired
   private GroupRepo groupRepo;
   @Autowired
+  private GroupsService groupsService;
+  @Autowired
   private AzkarChallengeRepo azkarChallengeRepo;
   @Autowired
   private MeaningChallengeRepo meaningChallengeRepo;
@@ -48,6 +60,12 @@ public class UserService {
   private ReadingQuranChallengeRepo readingQuranChallengeRepo;
   @Autowired
   private TafseerCacher tafseerCacher;
+  @Autowired
+  private SabeqService sabeqService;
+  @Autowired
+  private UsernameRegistry usernameRegistry;
+  @Autowired
+  private OptimisticLockingRetrier optimisticLockingRetrier;
 
   public User loadUserById(String id) {
     Optional<User> user = userRepo.findById(id);
@@ -57,6 +75,18 @@ public class UserService {
     return null;
   }
 
+  /**
+   * Applies {@code modifier} to the latest version of the user with {@code userId} and saves it.
+   * {@code modifier} may be applied more than once if the user is modified concurrently, each time
+   * to a newly loaded user.
+   */
+  public User updateUser(String userId, Consumer<User> modifier) {
+    return optimisticLockingRetrier.get(() -> {
+      User user = userRepo.findById(userId).get();
+      modifier.accept(user);
+      return userRepo.save(user);
+    });
+  }
 
   public User buildNewUser(String email, String firstName, String lastName) {
     return buildNewUser(email, firstName, lastName == null ? "" : lastName, /*encodedPassword=*/
@@ -79,15 +109,40 @@ public class UserService {
     with a new user.
   */
   public User addNewUser(User user) {
-    userRepo.save(user);
+    insertUser(user);
     Group userAndSabeqGroup = addSabeqAsFriend(user);
     addStartingChallengesWithSabeq(user, userAndSabeqGroup);
+    // The starting challenges are added to the user in memory so that the user document is
+    // written only once more. No one else can be modifying the user yet, so the in-memory copy is
+    // still the latest version of the user. Sabeq is a virtual user, so none of his documents are
+    // loaded or written here and the number of writes doesn't depend on the number of users.
+    userRepo.save(user);
     return user;
   }
 
+  // The generated username is checked only against the in-memory registry, so the insertion is
+  // retried with a new username if the unique index finds out that it is taken.
+  private void insertUser(User user) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        userRepo.save(user);
+        usernameRegistry.add(user.getUsername());
+        return;
+      } catch (DuplicateKeyException e) {
+        if (attempt == MAX_USERNAME_INSERTION_ATTEMPTS || e.getMessage() == null
+            || !e.getMessage().contains(UsernameRegistry.USERNAME_INDEX_NAME)) {
+          throw e;
+        }
+        logger.info("Username {} is already taken, generating another one", user.getUsername());
+        usernameRegistry.add(user.getUsername());
+        user.setUsername(generateUsername(user.getFirstName(), user.getLastName()));
+      }
+    }
+  }
+
   private Group addSabeqAsFriend(User user) {
     Friendship friendship = Friendship.builder().userId(user.getId()).build();
-    User sabeq = userRepo.findById(User.SABEQ_ID).get();
+    UserSummary sabeq = sabeqService.getSabeq().get();
 
     // Create Group
     Group binaryGroup = Group.builder()
@@ -108,29 +163,8 @@ public class UserService {
     friendship.getFriends().add(sabeqAsFriend);
     friendshipRepo.save(friendship);
 
-    // Add user to sabeq friends
-    Friend userAsSabeqFriend = Friend.builder()
-        .userId(user.getId())
-        .username(user.getUsername())
-        .firstName(user.getFirstName())
-        .lastName(user.getLastName())
-        .isPending(false)
-        .groupId(binaryGroup.getId())
-        .build();
-    Friendship sabeqFriendship = friendshipRepo.findByUserId(User.SABEQ_ID);
-    sabeqFriendship.getFriends().add(userAsSabeqFriend);
-    friendshipRepo.save(friendship);
-
-    // Add user group
-    UserGroup userGroup = UserGroup.builder()
-        .totalScore(0)
-        .monthScore(0)
-        .invitingUserId(sabeq.getId())
-        .groupId(binaryGroup.getId())
-        .groupName("")
-        .build();
-    userRepo.save(user);
-
+    // Note: The user is not added to sabeq friends since every user is implicitly a friend of
+    // sabeq.
     return binaryGroup;
   }
 
@@ -158,14 +192,9 @@ public class UserService {
         .expiryDate(Instant.now().getEpochSecond() + /*hours=*/12 * 60 * 60)
         .build();
 
-    userAndSabeqGroup.getChallengesIds().add(challenge.getId());
+    groupsService.addChallenge(userAndSabeqGroup.getId(), challenge.getId());
 
-    User sabeq = userRepo.findById(User.SABEQ_ID).get();
     user.getAzkarChallenges().add(challenge);
-    sabeq.getAzkarChallenges().add(challenge);
-
-    userRepo.save(user);
-    userRepo.save(sabeq);
     azkarChallengeRepo.save(challenge);
   }
 
@@ -182,14 +211,9 @@ public class UserService {
         .expiryDate(Instant.now().getEpochSecond() + /*hours=*/12 * 60 * 60)
         .build();
 
-    userAndSabeqGroup.getChallengesIds().add(challenge.getId());
+    groupsService.addChallenge(userAndSabeqGroup.getId(), challenge.getId());
 
-    User sabeq = userRepo.findById(User.SABEQ_ID).get();
     user.getMeaningChallenges().add(challenge);
-    sabeq.getMeaningChallenges().add(challenge);
-
-    userRepo.save(user);
-    userRepo.save(sabeq);
     meaningChallengeRepo.save(challenge);
   }
 
@@ -210,14 +234,9 @@ public class UserService {
         .expiryDate(Instant.now().getEpochSecond() + /*hours=*/12 * 60 * 60)
         .build();
 
-    userAndSabeqGroup.getChallengesIds().add(challenge.getId());
+    groupsService.addChallenge(userAndSabeqGroup.getId(), challenge.getId());
 
-    User sabeq = userRepo.findById(User.SABEQ_ID).get();
     user.getReadingQuranChallenges().add(challenge);
-    sabeq.getReadingQuranChallenges().add(challenge);
-
-    userRepo.save(user);
-    userRepo.save(sabeq);
     readingQuranChallengeRepo.save(challenge);
   }
 
@@ -230,7 +249,9 @@ public class UserService {
     firstName = firstName.toLowerCase();
     lastName = lastName.toLowerCase();
 
-    while (true) {
+    String username;
+    int candidatesCount = 0;
+    do {
       boolean nameCanBePrefix = firstName.matches(ENGLISH_CHARS_STRING_REGEX) && lastName
           .matches(ENGLISH_CHARS_STRING_REGEX);
       String usernamePrefix = "";
@@ -241,18 +262,17 @@ public class UserService {
       } else {
         randomUsernameSuffix = generateRandomString(8);
       }
-      if (!userRepo.findByUsername(usernamePrefix + randomUsernameSuffix).isPresent()) {
-        return usernamePrefix + randomUsernameSuffix;
-      }
-    }
+      username = usernamePrefix + randomUsernameSuffix;
+      candidatesCount++;
+    } while (usernameRegistry.mightBeTaken(username)
+        && candidatesCount < MAX_USERNAME_CANDIDATES);
+    return username;
   }
 
   private String generateRandomString(int length) {
     int minLimit = ('a');
     int maxLimit = ('z');
-    Random random = new Random();
-
-    return random.ints(minLimit, maxLimit + 1)
+    return ThreadLocalRandom.current().ints(minLimit, maxLimit + 1)
         .limit(length)
         .collect(StringBuilder::new, StringBuilder::appendCodePoint, StringBuilder::append)
         .toString();
@@ -0,0 +1,131 @@
+package com.azkar.services;
+
+import static org.springframework.data.mongodb.core.query.Criteria.where;
+import static org.springframework.data.mongodb.core.query.Query.query;
+
+import com.azkar.configs.AsyncConfig;
+import com.azkar.entities.User;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+import com.mongodb.client.MongoCollection;
+import java.nio.charset.StandardCharsets;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+/**
+ * Keeps track of the taken usernames so that new usernames can be generated without querying the
+ * database. The unique index on {@code username} is the source of truth and the in-memory Bloom
+ * filter is only used to skip candidates that are probably taken.
+ *
+ * <p>The filter is loaded in the background after startup from the unique index only, without
+ * reading the user documents. Until then, taken candidates are only rejected by the index. If the
+ * users collection still has the old non-unique index on usernames, nothing is loaded and the
+ * candidates are checked in the database until {@link com.azkar.crons.UniqueUsernameIndexJob} is
+ * run.
+ */
+@Service
+public class UsernameRegistry {
+
+  public static final String USERNAME_INDEX_NAME = "username_index";
+
+  private static final Logger logger = LoggerFactory.getLogger(UsernameRegistry.class);
+
+  private static final String USERNAME_FIELD = "username";
+
+  private static final long MIN_EXPECTED_USERNAMES = 1_000_000;
+  private static final double FALSE_POSITIVE_PROBABILITY = 0.001;
+
+  @Autowired
+  private MongoTemplate mongoTemplate;
+
+  private volatile BloomFilter<String> takenUsernames = newFilter(MIN_EXPECTED_USERNAMES);
+  private volatile boolean usernamesUnique = true;
+
+  @Async(AsyncConfig.POST_CONTROLLERS_TASK_EXECUTOR)
+  @EventListener(ApplicationReadyEvent.class)
+  public void initialize() {
+    IndexOperations indexOperations = mongoTemplate.indexOps(User.class);
+    if (!hasUniqueUsernameIndex(indexOperations)) {
+      if (hasUsernameIndex(indexOperations)) {
+        usernamesUnique = false;
+        logger.warn("The index on usernames is not unique, so usernames are checked in the "
+            + "database until the unique username index job is run");
+        return;
+      }
+      // Only new databases have no index on usernames at all.
+      indexOperations.ensureIndex(newUniqueUsernameIndex());
+    }
+    rebuild();
+  }
+
+  // Sparse since some old users don't have usernames.
+  public static Index newUniqueUsernameIndex() {
+    return new Index().on(USERNAME_FIELD, Direction.ASC).named(USERNAME_INDEX_NAME).unique()
+        .sparse();
+  }
+
+  public static boolean hasUsernameIndex(IndexOperations indexOperations) {
+    return indexOperations.getIndexInfo().stream()
+        .anyMatch(indexInfo -> USERNAME_INDEX_NAME.equals(indexInfo.getName()));
+  }
+
+  public static boolean hasUniqueUsernameIndex(IndexOperations indexOperations) {
+    return indexOperations.getIndexInfo().stream()
+        .anyMatch(indexInfo -> USERNAME_INDEX_NAME.equals(indexInfo.getName())
+            && indexInfo.isUnique());
+  }
+
+  /**
+   * Returns false only if {@code username} is definitely not taken by any user.
+   */
+  public boolean mightBeTaken(String username) {
+    if (!usernamesUnique) {
+      return mongoTemplate.exists(query(where(USERNAME_FIELD).is(username)), User.class);
+    }
+    return takenUsernames.mightContain(username);
+  }
+
+  public void add(String username) {
+    if (username != null) {
+      takenUsernames.put(username);
+    }
+  }
+
+  /**
+   * Rebuilds the filter from the usernames of all the users. A username taken while rebuilding may
+   * be missed by the new filter, which is fine since the unique index still rejects it.
+   */
+  public void rebuild() {
+    long startTimeMillis = System.currentTimeMillis();
+    MongoCollection<Document> usersCollection =
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(User.class));
+    long usersCount = usersCollection.estimatedDocumentCount();
+    BloomFilter<String> rebuiltUsernames =
+        newFilter(Math.max(MIN_EXPECTED_USERNAMES, 2 * usersCount));
+    // Only the username is projected and the index is hinted, so that the query is covered by
+    // the index and no user document is read.
+    usersCollection
+        .find(new Document(USERNAME_FIELD, new Document("$ne", null)))
+        .projection(new Document(USERNAME_FIELD, 1).append("_id", 0))
+        .hintString(USERNAME_INDEX_NAME)
+        .forEach(user -> rebuiltUsernames.put(user.getString(USERNAME_FIELD)));
+    takenUsernames = rebuiltUsernames;
+    logger.info("Loaded the usernames of about {} users in {} ms", usersCount,
+        System.currentTimeMillis() - startTimeMillis);
+  }
+
+  private static BloomFilter<String> newFilter(long expectedUsernames) {
+    return BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), expectedUsernames,
+        FALSE_POSITIVE_PROBABILITY);
+  }
+}
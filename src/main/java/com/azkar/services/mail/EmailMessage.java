@@ -0,0 +1,15 @@
+package com.azkar.services.mail;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+@AllArgsConstructor
+public class EmailMessage {
+
+  private final String to;
+  private final String subject;
+  private final String html;
+}
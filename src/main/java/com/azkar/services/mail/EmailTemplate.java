@@ -0,0 +1,66 @@
+package com.azkar.services.mail;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.io.IOUtils;
+import org.springframework.core.io.ClassPathResource;
+
+/**
+ * An email template split once around its placeholders, so that rendering it only concatenates
+ * the parts instead of searching the whole template for every placeholder on every email.
+ */
+public class EmailTemplate {
+
+  // The text before every placeholder, then the text after the last one.
+  private final List<String> texts = new ArrayList<>();
+  private final List<String> placeholders = new ArrayList<>();
+  private final int length;
+
+  private EmailTemplate(String template, String... placeholderNames) {
+    int start = 0;
+    while (true) {
+      int placeholderStart = -1;
+      String placeholder = null;
+      for (String placeholderName : placeholderNames) {
+        int index = template.indexOf(placeholderName, start);
+        if (index != -1 && (placeholderStart == -1 || index < placeholderStart)) {
+          placeholderStart = index;
+          placeholder = placeholderName;
+        }
+      }
+      if (placeholder == null) {
+        break;
+      }
+      texts.add(template.substring(start, placeholderStart));
+      placeholders.add(placeholder);
+      start = placeholderStart + placeholder.length();
+    }
+    texts.add(template.substring(start));
+    length = template.length();
+  }
+
+  /**
+   * Loads the template at {@code path} in the classpath. Every occurrence of any of {@code
+   * placeholderNames} in it is replaced when rendering it.
+   */
+  public static EmailTemplate load(String path, String... placeholderNames) throws IOException {
+    String template = IOUtils.toString(new InputStreamReader(
+        new ClassPathResource(path).getInputStream(), StandardCharsets.UTF_8));
+    return new EmailTemplate(template, placeholderNames);
+  }
+
+  /**
+   * Returns the template with every placeholder replaced by its value in {@code values}.
+   */
+  public String render(Map<String, String> values) {
+    StringBuilder rendered = new StringBuilder(length);
+    for (int i = 0; i < placeholders.size(); i++) {
+      rendered.append(texts.get(i)).append(values.get(placeholders.get(i)));
+    }
+    return rendered.append(texts.get(texts.size() - 1)).toString();
+  }
+}
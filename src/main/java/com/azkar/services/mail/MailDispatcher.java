@@ -0,0 +1,199 @@
+package com.azkar.services.mail;
+
+import com.sun.mail.smtp.SMTPSendFailedException;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.SendFailedException;
+import javax.mail.Transport;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+/**
+ * Queues emails and sends them in the background with {@code mail-sender-threads} threads over
+ * the connections of {@link SmtpTransportPool}, so that requests never wait for the SMTP server.
+ * Emails that failed to be sent, e.g. because the SMTP server was unreachable, are retried with
+ * exponential backoff up to {@code mail-max-attempts} times.
+ *
+ * <p>At most {@code mail-queue-capacity} emails wait to be sent at the same time. Emails queued
+ * while it is full are dropped so that the request threads never wait for the queue.
+ */
+@Service
+public class MailDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(MailDispatcher.class);
+  private static final String SENDER_THREAD_NAME_PREFIX = "mail-sender-";
+  // The time given to the queued emails to be sent when the application stops.
+  private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+  @Value("${mail-sender-threads}")
+  public int senderThreads;
+
+  @Value("${mail-queue-capacity}")
+  public int queueCapacity;
+
+  @Value("${mail-max-attempts}")
+  public int maxAttempts;
+
+  @Value("${mail-retry-initial-delay-millis}")
+  public long retryInitialDelayMillis;
+
+  @Autowired
+  private JavaMailSenderImpl javaMailSender;
+
+  @Autowired
+  private SmtpTransportPool smtpTransportPool;
+
+  private ScheduledThreadPoolExecutor executor;
+  // The emails that are either waiting to be sent or to be retried.
+  private final AtomicInteger queuedCount = new AtomicInteger();
+  private final AtomicLong sentCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  @PostConstruct
+  public void initialize() {
+    executor = new ScheduledThreadPoolExecutor(senderThreads,
+        new CustomizableThreadFactory(SENDER_THREAD_NAME_PREFIX));
+    // Retries that are not due yet when the application stops are dropped.
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+  }
+
+  /**
+   * Queues {@code message} to be sent in the background. Returns false if it was dropped because
+   * the queue is full.
+   */
+  public boolean dispatch(EmailMessage message) {
+    if (queuedCount.incrementAndGet() > queueCapacity) {
+      drop(message, "the queue is full");
+      return false;
+    }
+
+    MimeMessage mimeMessage;
+    try {
+      mimeMessage = toMimeMessage(message);
+    } catch (MessagingException | UnsupportedEncodingException e) {
+      logger.error("Failed to create the email to {}", message.getTo(), e);
+      drop(message, "it could not be created");
+      return false;
+    }
+
+    try {
+      executor.execute(() -> send(message, mimeMessage, 1));
+    } catch (RejectedExecutionException e) {
+      drop(message, "the application is stopping");
+      return false;
+    }
+    return true;
+  }
+
+  public long getSentCount() {
+    return sentCount.get();
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    executor.shutdown();
+    if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+      logger.warn("Stopped before {} queued emails were sent", queuedCount.get());
+    }
+  }
+
+  private void send(EmailMessage message, MimeMessage mimeMessage, int attempt) {
+    Transport transport = null;
+    try {
+      transport = smtpTransportPool.borrow();
+      transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+      smtpTransportPool.release(transport);
+      queuedCount.decrementAndGet();
+      sentCount.incrementAndGet();
+      return;
+    } catch (SendFailedException e) {
+      // The server refused the email but the connection itself is still fine.
+      smtpTransportPool.release(transport);
+      if (!isTransientRefusal(e)) {
+        logger.warn("The email to {} was refused", message.getTo(), e);
+        drop(message, "it was refused");
+        return;
+      }
+      logger.warn("The email to {} was refused temporarily", message.getTo(), e);
+    } catch (MessagingException e) {
+      if (transport != null) {
+        smtpTransportPool.invalidate(transport);
+      }
+      logger.warn("Failed to send the email to {}", message.getTo(), e);
+    } catch (RuntimeException e) {
+      // Unexpected failures are not retried since they would most likely fail the same way, but
+      // the email still leaves the queue so that it doesn't take a place in it forever.
+      if (transport != null) {
+        smtpTransportPool.invalidate(transport);
+      }
+      logger.error("Failed to send the email to {}", message.getTo(), e);
+      drop(message, "sending it failed unexpectedly");
+      return;
+    }
+
+    if (attempt >= maxAttempts) {
+      drop(message, String.format("it failed %d times", attempt));
+      return;
+    }
+    retry(message, mimeMessage, attempt);
+  }
+
+  // Refusals with a 4xx reply, e.g. because of rate limiting, may succeed later. Sending an email
+  // refused with a 5xx reply, e.g. because the recipient doesn't exist, fails the same way again.
+  private static boolean isTransientRefusal(SendFailedException e) {
+    return e instanceof SMTPSendFailedException
+        && ((SMTPSendFailedException) e).getReturnCode() / 100 == 4;
+  }
+
+  private void retry(EmailMessage message, MimeMessage mimeMessage, int failedAttempt) {
+    // Doubles after every failed attempt.
+    long delayMillis = retryInitialDelayMillis << Math.min(failedAttempt - 1, 30);
+    try {
+      executor.schedule(() -> send(message, mimeMessage, failedAttempt + 1), delayMillis,
+          TimeUnit.MILLISECONDS);
+    } catch (RejectedExecutionException e) {
+      drop(message, "the application is stopping");
+    }
+  }
+
+  private void drop(EmailMessage message, String reason) {
+    queuedCount.decrementAndGet();
+    logger.warn("Dropped the email to {} since {}, {} dropped so far", message.getTo(), reason,
+        droppedCount.incrementAndGet());
+  }
+
+  private MimeMessage toMimeMessage(EmailMessage message)
+      throws MessagingException, UnsupportedEncodingException {
+    MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+    MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
+    // This should be disregarded by new Mime clients.
+    InternetAddress fromAddress = new InternetAddress("azkar_email_name@azkaremaildomain.com",
+        "تنافسوا");
+    helper.setFrom(fromAddress);
+    helper.setSubject(message.getSubject());
+    helper.setText(message.getHtml(), /* html= */ true);
+    helper.setTo(message.getTo());
+    // Sending over a transport directly doesn't save the headers like JavaMailSender does.
+    mimeMessage.saveChanges();
+    return mimeMessage;
+  }
+}
@@ -0,0 +1,78 @@
+package com.azkar.services.mail;
+
+import com.azkar.payload.ResponseBase.Status;
+import com.azkar.payload.exceptions.ServiceUnavailableException;
+import com.google.common.collect.ImmutableMap;
+import java.io.IOException;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Service;
+
+/**
+ * Builds the emails sent to users from templates compiled once at startup, and queues them to be
+ * sent by {@link MailDispatcher}. If an email can't be queued, a {@link
+ * ServiceUnavailableException} is thrown so that the client is told to retry instead of waiting
+ * for an email that will never arrive.
+ */
+@Service
+@Lazy(value = false)
+public class MailService {
+
+  private static final String RESET_PASSWORD_EMAIL_TEMPLATE_PATH =
+      "emailTemplates/reset_password_email.html";
+  // Use VERIFY_EMAIL_V2_TEMPLATE_PATH instead.
+  @Deprecated
+  private static final String VERIFY_EMAIL_TEMPLATE_PATH = "emailTemplates/verify_email.html";
+  private static final String VERIFY_EMAIL_V2_TEMPLATE_PATH = "emailTemplates/verify_email_v2.html";
+
+  private static final String VERIFY_EMAIL_SUBJECT = "تأكيد البريد الإلكتروني";
+  private static final String RESET_PASSWORD_SUBJECT = "إعادة ضبط كلمة المرور";
+
+  @Autowired
+  private MailDispatcher mailDispatcher;
+
+  private EmailTemplate verifyEmailTemplate;
+  private EmailTemplate verifyEmailV2Template;
+  private EmailTemplate resetPasswordEmailTemplate;
+
+  @PostConstruct
+  public void compileTemplates() throws IOException {
+    verifyEmailTemplate = EmailTemplate.load(VERIFY_EMAIL_TEMPLATE_PATH, "PIN");
+    verifyEmailV2Template = EmailTemplate.load(VERIFY_EMAIL_V2_TEMPLATE_PATH, "URL");
+    resetPasswordEmailTemplate =
+        EmailTemplate.load(RESET_PASSWORD_EMAIL_TEMPLATE_PATH, "URL", "RANDOM");
+  }
+
+  // Use sendVerificationEmailV2 instead.
+  @Deprecated
+  public void sendVerificationEmail(String email, int pin) {
+    send(email, VERIFY_EMAIL_SUBJECT,
+        verifyEmailTemplate.render(ImmutableMap.of("PIN", String.valueOf(pin))));
+  }
+
+  public void sendVerificationEmailV2(String email, String token) {
+    String url = String.format("https://www.tanafaso.com/verify/email/v2?token=%s", token);
+    send(email, VERIFY_EMAIL_SUBJECT, verifyEmailV2Template.render(ImmutableMap.of("URL", url)));
+  }
+
+  public void sendResetPasswordEmail(String email, String token) {
+    String url = String.format("https://www.tanafaso.com/update_password?token=%s", token);
+    // adding a random number at the end to make sure that gmail does not collapse the email ending.
+    send(email, RESET_PASSWORD_SUBJECT, resetPasswordEmailTemplate.render(ImmutableMap.of(
+        "URL", url,
+        "RANDOM", RandomStringUtils.randomNumeric(2))));
+  }
+
+  private void send(String email, String subject, String html) {
+    boolean queued = mailDispatcher.dispatch(EmailMessage.builder()
+        .to(email)
+        .subject(subject)
+        .html(html)
+        .build());
+    if (!queued) {
+      throw new ServiceUnavailableException(new Status(Status.SERVER_BUSY_ERROR));
+    }
+  }
+}
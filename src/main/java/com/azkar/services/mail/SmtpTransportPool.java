@@ -0,0 +1,74 @@
+package com.azkar.services.mail;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import javax.annotation.PreDestroy;
+import javax.mail.MessagingException;
+import javax.mail.Transport;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps the SMTP connections open between emails. {@link JavaMailSenderImpl} connects, starts TLS
+ * and authenticates again for every email, which takes several round trips to the SMTP server.
+ * Every connection is used by one thread at a time, so there are at most as many connections as
+ * threads sending emails.
+ */
+@Component
+public class SmtpTransportPool {
+
+  private static final Logger logger = LoggerFactory.getLogger(SmtpTransportPool.class);
+
+  @Autowired
+  private JavaMailSenderImpl javaMailSender;
+
+  private final BlockingQueue<Transport> idleTransports = new LinkedBlockingQueue<>();
+
+  /**
+   * Returns a connected transport, reusing an idle one if it is still connected. The transport
+   * must be given back with either {@link #release(Transport)} or {@link #invalidate(Transport)}.
+   */
+  public Transport borrow() throws MessagingException {
+    Transport transport;
+    while ((transport = idleTransports.poll()) != null) {
+      // Checking the connection sends a NOOP, which is much cheaper than connecting again.
+      if (transport.isConnected()) {
+        return transport;
+      }
+      close(transport);
+    }
+
+    transport = javaMailSender.getSession().getTransport(javaMailSender.getProtocol());
+    transport.connect(javaMailSender.getHost(), javaMailSender.getPort(),
+        javaMailSender.getUsername(), javaMailSender.getPassword());
+    return transport;
+  }
+
+  public void release(Transport transport) {
+    idleTransports.offer(transport);
+  }
+
+  // Closes a transport that failed, so that it is not used again.
+  public void invalidate(Transport transport) {
+    close(transport);
+  }
+
+  @PreDestroy
+  public void closeAll() {
+    Transport transport;
+    while ((transport = idleTransports.poll()) != null) {
+      close(transport);
+    }
+  }
+
+  private static void close(Transport transport) {
+    try {
+      transport.close();
+    } catch (MessagingException e) {
+      logger.debug("Failed to close an SMTP connection", e);
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.azkar.services.notifications;
+
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.common.collect.ImmutableSet;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Aps;
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.MessagingErrorCode;
+import com.google.firebase.messaging.MulticastMessage;
+import com.google.firebase.messaging.Notification;
+import com.google.firebase.messaging.SendResponse;
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "notifications-sender", havingValue = "firebase",
+    matchIfMissing = true)
+public class FirebaseNotificationSender implements NotificationSender {
+
+  private static final Logger logger = LoggerFactory.getLogger(FirebaseNotificationSender.class);
+
+  // The errors after which FCM recommends retrying later. Retrying after the other errors fails
+  // the same way.
+  private static final Set<MessagingErrorCode> TRANSIENT_ERROR_CODES = ImmutableSet.of(
+      MessagingErrorCode.UNAVAILABLE,
+      MessagingErrorCode.INTERNAL,
+      MessagingErrorCode.QUOTA_EXCEEDED);
+
+  @PostConstruct
+  public void initialize() {
+    FirebaseOptions options = null;
+    try {
+      options = FirebaseOptions.builder()
+          .setCredentials(GoogleCredentials.getApplicationDefault())
+          .build();
+      FirebaseApp.initializeApp(options);
+    } catch (IOException e) {
+      logger.error("Could not initialize Firebase app correctly.", e);
+    }
+  }
+
+  @Override
+  public MulticastResult sendMulticast(String title, String body, List<String> tokens) {
+    MulticastMessage message = MulticastMessage.builder()
+        .addAllTokens(tokens)
+        .setNotification(
+            Notification.builder().setTitle(title).setBody(body).build())
+        .setApnsConfig(
+            ApnsConfig.builder()
+                .setAps(
+                    Aps.builder()
+                        .setSound("default")
+                        .build()
+                )
+                .build())
+        .build();
+
+    MulticastResult.MulticastResultBuilder result = MulticastResult.builder();
+    BatchResponse batchResponse;
+    try {
+      batchResponse = FirebaseMessaging.getInstance().sendMulticast(message);
+    } catch (FirebaseMessagingException e) {
+      logger.warn(String.format("Failed to send a notification to %d tokens with error code: %s, "
+          + "with title: %s, and body: %s", tokens.size(), e.getMessagingErrorCode(), title,
+          body), e);
+      // The whole call failed, e.g. because of a network error, so it is retried for all tokens.
+      return result.failedTokens(tokens).build();
+    }
+
+    // The responses are in the same order as the tokens.
+    List<SendResponse> responses = batchResponse.getResponses();
+    for (int i = 0; i < responses.size(); i++) {
+      FirebaseMessagingException exception = responses.get(i).getException();
+      if (exception == null) {
+        continue;
+      }
+      logger.warn("Failed to send a notification with error code: {}, with title: {}, and body: "
+          + "{}", exception.getMessagingErrorCode(), title, body);
+      if (exception.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED) {
+        result.unregisteredToken(tokens.get(i));
+      } else if (TRANSIENT_ERROR_CODES.contains(exception.getMessagingErrorCode())) {
+        result.failedToken(tokens.get(i));
+      }
+    }
+    return result.build();
+  }
+}
@@ -0,0 +1,25 @@
+package com.azkar.services.notifications;
+
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Only logs the notifications instead of sending them. Used by the tests and by local benchmarks
+ * by setting {@code notifications-sender} to {@code logging}.
+ */
+@Component
+@ConditionalOnProperty(name = "notifications-sender", havingValue = "logging")
+public class LoggingNotificationSender implements NotificationSender {
+
+  private static final Logger logger = LoggerFactory.getLogger(LoggingNotificationSender.class);
+
+  @Override
+  public MulticastResult sendMulticast(String title, String body, List<String> tokens) {
+    logger.debug("Sending a notification to {} tokens with title: {}, and body: {}",
+        tokens.size(), title, body);
+    return MulticastResult.builder().build();
+  }
+}
@@ -0,0 +1,24 @@
+package com.azkar.services.notifications;
+
+import java.util.List;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Singular;
+
+/**
+ * The tokens that a multicast notification was not delivered to, see {@link
+ * NotificationSender#sendMulticast(String, String, List)}. The notification was either sent to the
+ * rest of the tokens or failed permanently for them.
+ */
+@Builder
+@Getter
+public class MulticastResult {
+
+  // Tokens that are no longer registered and should not be used again.
+  @Singular
+  private final List<String> unregisteredTokens;
+  // Tokens that the notification failed to be sent to because of a transient error, e.g. FCM
+  // being unavailable, and that it should be sent to again later.
+  @Singular
+  private final List<String> failedTokens;
+}
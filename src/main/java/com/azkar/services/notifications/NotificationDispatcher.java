@@ -0,0 +1,210 @@
+package com.azkar.services.notifications;
+
+import com.azkar.entities.NotificationOutboxEntry;
+import com.azkar.repos.NotificationOutboxRepo;
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+/**
+ * Sends push notifications in batches through the notification outbox, see {@link
+ * NotificationOutboxEntry}. Dispatching a notification only writes it to the outbox, so requests
+ * never wait for FCM and bursts of notifications are never rejected.
+ *
+ * <p>Every {@code notifications-outbox-poll-millis}, the outbox is drained in batches of {@code
+ * notifications-outbox-batch-size} entries. The entries of a batch with the same title and body
+ * (e.g. the ones sent to all the members of a group) are sent with one multicast call per {@link
+ * NotificationSender#MAX_TOKENS_PER_SEND} tokens instead of one call per user. Entries that failed
+ * with a transient error are retried with exponential backoff up to {@code
+ * notifications-max-attempts} times. Since the entries are only deleted after they are sent, the
+ * entries of an instance stopped while sending them are sent by another instance.
+ *
+ * <p>It is not lazily initialized so that every instance drains the outbox, even one that hasn't
+ * dispatched any notification since it started.
+ */
+@Service
+@Lazy(value = false)
+public class NotificationDispatcher {
+
+  private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+
+  @Value("${notifications-outbox-batch-size}")
+  public int batchSize;
+
+  // How long the entries of a batch are not claimed by other workers while being sent.
+  @Value("${notifications-outbox-lease-millis}")
+  public long leaseMillis;
+
+  @Value("${notifications-max-attempts}")
+  public int maxAttempts;
+
+  @Value("${notifications-retry-initial-delay-millis}")
+  public long retryInitialDelayMillis;
+
+  @Value("${notifications-retry-max-delay-millis}")
+  public long retryMaxDelayMillis;
+
+  @Autowired
+  private NotificationSender notificationSender;
+
+  @Autowired
+  private NotificationOutboxRepo notificationOutboxRepo;
+
+  @Autowired
+  private NotificationTargetsCache notificationTargetsCache;
+
+  // Counted since the application started.
+  private final AtomicLong sentCount = new AtomicLong();
+  private final AtomicLong retriedCount = new AtomicLong();
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  /**
+   * Writes {@code notifications} to the outbox with a single write. They are sent with the next
+   * batches.
+   */
+  public void dispatch(Collection<PushNotification> notifications) {
+    if (notifications.isEmpty()) {
+      return;
+    }
+    Date now = new Date();
+    List<NotificationOutboxEntry> entries = notifications.stream()
+        .map(notification -> NotificationOutboxEntry.builder()
+            .userId(notification.getUserId())
+            .token(notification.getToken())
+            .title(notification.getTitle())
+            .body(notification.getBody())
+            .nextAttemptAt(now)
+            .createdAt(now)
+            .build())
+        .collect(Collectors.toList());
+    notificationOutboxRepo.insert(entries);
+  }
+
+  @Scheduled(fixedDelayString = "${notifications-outbox-poll-millis}",
+      initialDelayString = "${notifications-outbox-poll-millis}")
+  public void drain() {
+    long startTimeMillis = System.currentTimeMillis();
+    long drainedCount = 0;
+    List<NotificationOutboxEntry> batch;
+    do {
+      batch = notificationOutboxRepo.claimDue(batchSize, leaseMillis);
+      if (!batch.isEmpty()) {
+        send(batch);
+        drainedCount += batch.size();
+      }
+    } while (batch.size() == batchSize);
+
+    if (drainedCount > 0) {
+      long elapsedMillis = Math.max(1, System.currentTimeMillis() - startTimeMillis);
+      logger.info("Drained {} notifications in {} ms ({} notifications/second). Since the start: "
+              + "{} sent, {} retried and {} dropped", drainedCount, elapsedMillis,
+          drainedCount * 1000 / elapsedMillis, sentCount.get(), retriedCount.get(),
+          droppedCount.get());
+    }
+  }
+
+  public long getSentCount() {
+    return sentCount.get();
+  }
+
+  public long getRetriedCount() {
+    return retriedCount.get();
+  }
+
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  private void send(List<NotificationOutboxEntry> batch) {
+    // Maps every title and body to the entries of every token it is sent to. A token that has more
+    // than one entry with the same notification gets it only once.
+    Map<List<String>, Map<String, List<NotificationOutboxEntry>>> entriesByContent =
+        new LinkedHashMap<>();
+    for (NotificationOutboxEntry entry : batch) {
+      entriesByContent
+          .computeIfAbsent(Arrays.asList(entry.getTitle(), entry.getBody()),
+              content -> new LinkedHashMap<>())
+          .computeIfAbsent(entry.getToken(), token -> new ArrayList<>())
+          .add(entry);
+    }
+
+    List<NotificationOutboxEntry> failedEntries = new ArrayList<>();
+    for (Map.Entry<List<String>, Map<String, List<NotificationOutboxEntry>>> content :
+        entriesByContent.entrySet()) {
+      String title = content.getKey().get(0);
+      String body = content.getKey().get(1);
+      Map<String, List<NotificationOutboxEntry>> entriesByToken = content.getValue();
+      for (List<String> tokens : Lists.partition(new ArrayList<>(entriesByToken.keySet()),
+          NotificationSender.MAX_TOKENS_PER_SEND)) {
+        for (String failedToken : sendMulticast(title, body, tokens, entriesByToken)) {
+          failedEntries.addAll(entriesByToken.get(failedToken));
+        }
+      }
+    }
+    sentCount.addAndGet(batch.size() - failedEntries.size());
+
+    List<NotificationOutboxEntry> retriedEntries = new ArrayList<>();
+    for (NotificationOutboxEntry entry : failedEntries) {
+      entry.setAttempts(entry.getAttempts() + 1);
+      if (entry.getAttempts() < maxAttempts) {
+        entry.setNextAttemptAt(new Date(System.currentTimeMillis() + getRetryDelayMillis(entry)));
+        retriedEntries.add(entry);
+      } else {
+        logger.warn("Dropped the notification to user {} after {} attempts", entry.getUserId(),
+            entry.getAttempts());
+        droppedCount.incrementAndGet();
+      }
+    }
+    retriedCount.addAndGet(retriedEntries.size());
+
+    // The rest of the entries were either sent or will never be.
+    notificationOutboxRepo.reschedule(retriedEntries);
+    Set<String> retriedIds = retriedEntries.stream()
+        .map(NotificationOutboxEntry::getId)
+        .collect(Collectors.toSet());
+    notificationOutboxRepo.deleteAllById(batch.stream()
+        .map(NotificationOutboxEntry::getId)
+        .filter(id -> !retriedIds.contains(id))
+        .collect(Collectors.toList()));
+  }
+
+  // Returns the tokens that the notification should be sent to again.
+  private List<String> sendMulticast(String title, String body, List<String> tokens,
+      Map<String, List<NotificationOutboxEntry>> entriesByToken) {
+    MulticastResult result;
+    try {
+      result = notificationSender.sendMulticast(title, body, tokens);
+    } catch (RuntimeException e) {
+      // The other calls are still made.
+      logger.error(String.format("Failed to send a notification to %d tokens", tokens.size()), e);
+      return tokens;
+    }
+    for (String unregisteredToken : result.getUnregisteredTokens()) {
+      for (NotificationOutboxEntry entry : entriesByToken.get(unregisteredToken)) {
+        notificationTargetsCache.unsetNotificationsToken(entry.getUserId(), unregisteredToken);
+      }
+    }
+    return result.getFailedTokens();
+  }
+
+  // Doubles after every failed attempt.
+  private long getRetryDelayMillis(NotificationOutboxEntry entry) {
+    int doublings = Math.min(entry.getAttempts() - 1, 30);
+    return Math.min(retryInitialDelayMillis << doublings, retryMaxDelayMillis);
+  }
+}
@@ -0,0 +1,20 @@
+package com.azkar.services.notifications;
+
+import java.util.List;
+
+/**
+ * Sends push notifications to devices. See {@link FirebaseNotificationSender}, and {@link
+ * LoggingNotificationSender} which stands in for it in tests and benchmarks.
+ */
+public interface NotificationSender {
+
+  // The maximum number of tokens that FCM accepts in one multicast message.
+  int MAX_TOKENS_PER_SEND = 500;
+
+  /**
+   * Sends the same notification to all of {@code tokens}, which are at most {@link
+   * #MAX_TOKENS_PER_SEND}, with a single call. Returns the tokens that it was not delivered to
+   * and why.
+   */
+  MulticastResult sendMulticast(String title, String body, List<String> tokens);
+}
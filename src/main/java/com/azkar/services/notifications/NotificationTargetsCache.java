@@ -0,0 +1,75 @@
+package com.azkar.services.notifications;
+
+import com.azkar.entities.views.UserNotificationTarget;
+import com.azkar.repos.UserRepo;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * Caches the notifications tokens and names of the users notifications are sent to, so that
+ * sending a notification to the members of a group loads only the few of them that are not cached
+ * with a single projected query instead of loading their whole documents.
+ *
+ * <p>All the writes of the notifications tokens must go through this class so that the cached
+ * tokens are invalidated. The entries also expire shortly after they are cached since the names
+ * can change without going through here.
+ */
+@Service
+public class NotificationTargetsCache {
+
+  private static final int MAX_CACHED_USERS = 10000;
+  private static final int EXPIRY_MINUTES = 5;
+
+  @Autowired
+  private UserRepo userRepo;
+
+  private final Cache<String, UserNotificationTarget> cache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_CACHED_USERS)
+      .expireAfterWrite(EXPIRY_MINUTES, TimeUnit.MINUTES)
+      .build();
+
+  /**
+   * Returns the notification targets of the users with {@code usersIds}. Users that don't exist
+   * are skipped.
+   */
+  public List<UserNotificationTarget> getAll(Collection<String> usersIds) {
+    Set<String> uniqueUsersIds = new LinkedHashSet<>(usersIds);
+    Map<String, UserNotificationTarget> cachedTargets = cache.getAllPresent(uniqueUsersIds);
+    List<UserNotificationTarget> targets = new ArrayList<>(cachedTargets.values());
+
+    uniqueUsersIds.removeAll(cachedTargets.keySet());
+    for (UserNotificationTarget target :
+        userRepo.findViewsByIds(uniqueUsersIds, UserNotificationTarget.class)) {
+      cache.put(target.getId(), target);
+      targets.add(target);
+    }
+    return targets;
+  }
+
+  public void setNotificationsToken(String userId, String notificationsToken) {
+    userRepo.setNotificationsToken(userId, notificationsToken);
+    invalidate(userId);
+  }
+
+  /**
+   * Removes the notifications token of the user only if it is still {@code notificationsToken},
+   * e.g. when the token is no longer registered.
+   */
+  public void unsetNotificationsToken(String userId, String notificationsToken) {
+    userRepo.unsetNotificationsToken(userId, notificationsToken);
+    invalidate(userId);
+  }
+
+  public void invalidate(String userId) {
+    cache.invalidate(userId);
+  }
+}
@@ -0,0 +1,16 @@
+package com.azkar.services.notifications;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@Getter
+@AllArgsConstructor
+public class PushNotification {
+
+  private final String userId;
+  private final String token;
+  private final String title;
+  private final String body;
+}
@@ -92,14 +92,14 @@ public abstract class TestBase {
         .lastName("\uD83C\uDFCE️️")
         .username("sabeq")
         .build();
-    userRepo.save(sabeq);
+    userRepo.insert(sabeq);
 
     Friendship sabeqFriendship = Friendship.builder()
         .userId(User.SABEQ_ID)
         .friends(new ArrayList<>())
         .id(new ObjectId().toString())
         .build();
-    friendshipRepo.save(sabeqFriendship);
+    friendshipRepo.insert(sabeqFriendship);
   }
 
   protected void addNewUser(User user) {
@@ -0,0 +1,70 @@
+package com.azkar.configs.authentication;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+import com.azkar.payload.ResponseBase.Status;
+import com.azkar.payload.exceptions.ServiceUnavailableException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+public class BoundedPasswordEncoderTest {
+
+  private final CountDownLatch hashingStarted = new CountDownLatch(1);
+  private final CountDownLatch hashingAllowed = new CountDownLatch(1);
+  private final BoundedPasswordEncoder passwordEncoder =
+      new BoundedPasswordEncoder(new BlockingPasswordEncoder(), /* threadsCount= */ 1,
+          /* queueCapacity= */ 1);
+
+  @After
+  public void after() {
+    hashingAllowed.countDown();
+    passwordEncoder.shutdown();
+  }
+
+  @Test
+  public void encode_queueFull_shouldBeRejected() throws Exception {
+    CompletableFuture<String> running =
+        CompletableFuture.supplyAsync(() -> passwordEncoder.encode("running"));
+    hashingStarted.await();
+    CompletableFuture<String> queued =
+        CompletableFuture.supplyAsync(() -> passwordEncoder.encode("queued"));
+    while (passwordEncoder.getQueueDepth() == 0) {
+      Thread.sleep(1);
+    }
+
+    try {
+      passwordEncoder.encode("rejected");
+      throw new AssertionError("Expected the hash to be rejected");
+    } catch (ServiceUnavailableException e) {
+      assertThat(e.error.code, is(Status.SERVER_BUSY_ERROR));
+    }
+
+    hashingAllowed.countDown();
+    assertThat(running.get(), is("encoded-running"));
+    assertThat(queued.get(), is("encoded-queued"));
+  }
+
+  // Doesn't finish hashing until the test allows it.
+  private class BlockingPasswordEncoder implements PasswordEncoder {
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+      hashingStarted.countDown();
+      try {
+        hashingAllowed.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return "encoded-" + rawPassword;
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+      return encode(rawPassword).equals(encodedPassword);
+    }
+  }
+}
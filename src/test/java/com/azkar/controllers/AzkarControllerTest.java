@@ -1,6 +1,9 @@
 package com.azkar.controllers;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.azkar.TestBase;
@@ -12,11 +15,16 @@ import com.azkar.factories.entities.UserFactory;
 import com.azkar.payload.azkarcontroller.responses.GetAzkarResponse;
 import com.azkar.payload.azkarcontroller.responses.GetCategoriesResponse;
 import com.google.common.collect.ImmutableList;
+import java.io.ByteArrayInputStream;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ResourceLoader;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
 
 // TODO(issue/238): Remove GET /azkar test and rename this class
 public class AzkarControllerTest extends TestBase {
@@ -49,6 +57,31 @@ public class AzkarControllerTest extends TestBase {
         .andExpect(content().json(JsonHandler.toJson(expectedResponse)));
   }
 
+  @Test
+  public void getAzkar_gzipAccepted_shouldReturnGzippedAzkar() throws Exception {
+    User user = UserFactory.getNewUser();
+    addNewUser(user);
+
+    byte[] expectedBody = performGetRequest(user, "/azkar")
+        .andExpect(status().isOk())
+        .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+        .andReturn().getResponse().getContentAsByteArray();
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.set(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+    MockHttpServletResponse response = httpClient.performGetRequest(user, "/azkar", headers)
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+        .andReturn().getResponse();
+
+    assertThat(response.getContentLength(), is(response.getContentAsByteArray().length));
+    try (GZIPInputStream body =
+        new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+      assertThat(StreamUtils.copyToByteArray(body), is(expectedBody));
+    }
+  }
+
   // NOTE: Please refer to resources/test-azkar.csv and resources/test-categories.csv files to view
   // the test data.
   @Test
@@ -11,6 +11,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.azkar.TestBase;
 import com.azkar.controllers.utils.JsonHandler;
 import com.azkar.entities.Group;
+import com.azkar.entities.GroupChallenge;
 import com.azkar.entities.User;
 import com.azkar.entities.challenges.CustomSimpleChallenge;
 import com.azkar.factories.entities.GroupFactory;
@@ -19,6 +20,7 @@ import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.challengecontroller.requests.AddCustomSimpleChallengeRequest;
 import com.azkar.payload.challengecontroller.responses.AddCustomSimpleChallengeResponse;
 import com.azkar.payload.challengecontroller.responses.DeleteChallengeResponse;
+import com.azkar.repos.GroupChallengeRepo;
 import com.azkar.repos.GroupRepo;
 import com.azkar.repos.UserRepo;
 import com.google.common.collect.ImmutableList;
@@ -37,6 +39,8 @@ public class CustomSimpleChallengeTest extends TestBase {
   GroupRepo groupRepo;
   @Autowired
   UserRepo userRepo;
+  @Autowired
+  GroupChallengeRepo groupChallengeRepo;
   private User user1 = UserFactory.getNewUser();
   private Group validGroup = GroupFactory.getNewGroup(user1.getId());
   private Group invalidGroup = GroupFactory.getNewGroup(user1.getId());
@@ -195,7 +199,8 @@ public class CustomSimpleChallengeTest extends TestBase {
         .getCustomSimpleChallenges();
     assertThat(challengesProgress.size(),
         equalTo(0));
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertTrue("GroupChallenges list is expected to be empty but it is not.",
         groupChallenges.isEmpty());
   }
@@ -15,6 +15,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.azkar.TestBase;
 import com.azkar.controllers.utils.JsonHandler;
 import com.azkar.entities.Group;
+import com.azkar.entities.GroupChallenge;
 import com.azkar.entities.User;
 import com.azkar.entities.User.UserGroup;
 import com.azkar.entities.Zekr;
@@ -27,6 +28,7 @@ import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.challengecontroller.requests.AddAzkarChallengeRequest;
 import com.azkar.payload.challengecontroller.responses.AddAzkarChallengeResponse;
 import com.azkar.payload.challengecontroller.responses.GetChallengesResponse;
+import com.azkar.repos.GroupChallengeRepo;
 import com.azkar.repos.GroupRepo;
 import com.azkar.repos.UserRepo;
 import com.google.common.collect.ImmutableList;
@@ -48,6 +50,8 @@ public class GroupAzkarChallengeTest extends TestBase {
   GroupRepo groupRepo;
   @Autowired
   UserRepo userRepo;
+  @Autowired
+  GroupChallengeRepo groupChallengeRepo;
 
   private User user1 = UserFactory.getNewUser();
   private Group validGroup = GroupFactory.getNewGroup(user1.getId());
@@ -81,7 +85,8 @@ public class GroupAzkarChallengeTest extends TestBase {
     List<AzkarChallenge> challengesProgress = userRepo.findById(user1.getId()).get()
         .getAzkarChallenges();
     assertThat(challengesProgress.size(), is(1 + TestBase.STARTING_AZKAR_CHALLENGES_COUNT));
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertThat(groupChallenges.size(), is(1));
     User updatedUser1 = userRepo.findById(user1.getId()).get();
     User updatedAnotherGroupMember = userRepo.findById(anotherGroupMember.getId()).get();
@@ -268,7 +273,8 @@ public class GroupAzkarChallengeTest extends TestBase {
 
     List<AzkarChallenge> challengesProgress = userRepo.findById(user1.getId()).get()
         .getAzkarChallenges();
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertThat(challengesProgress.size(), is(1 + TestBase.STARTING_AZKAR_CHALLENGES_COUNT));
     assertThat(groupChallenges.size(), is(1));
   }
@@ -357,7 +363,8 @@ public class GroupAzkarChallengeTest extends TestBase {
         .get()
         .getAzkarChallenges();
     assertThat(userChallenges.size(), equalTo(TestBase.STARTING_AZKAR_CHALLENGES_COUNT));
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertThat(groupChallenges, empty());
   }
 
@@ -380,7 +387,8 @@ public class GroupAzkarChallengeTest extends TestBase {
 
     List<AzkarChallenge> challengesProgress = userRepo.findById(user1.getId()).get()
         .getAzkarChallenges();
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertThat(challengesProgress.size(), is(1 + TestBase.STARTING_AZKAR_CHALLENGES_COUNT));
     assertThat(groupChallenges.size(), is(1));
   }
@@ -406,7 +414,8 @@ public class GroupAzkarChallengeTest extends TestBase {
     List<AzkarChallenge> challengesProgress = userRepo.findById(user1.getId()).get()
         .getAzkarChallenges();
     assertThat(challengesProgress.size(), equalTo(TestBase.STARTING_AZKAR_CHALLENGES_COUNT));
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertTrue("GroupChallenges list is expected to be empty but it is not.",
         groupChallenges.isEmpty());
   }
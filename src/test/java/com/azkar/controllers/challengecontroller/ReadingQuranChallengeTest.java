@@ -12,6 +12,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import com.azkar.TestBase;
 import com.azkar.controllers.utils.JsonHandler;
 import com.azkar.entities.Group;
+import com.azkar.entities.GroupChallenge;
 import com.azkar.entities.User;
 import com.azkar.entities.challenges.ReadingQuranChallenge;
 import com.azkar.entities.challenges.ReadingQuranChallenge.SurahSubChallenge;
@@ -22,6 +23,7 @@ import com.azkar.payload.ResponseBase.Status;
 import com.azkar.payload.challengecontroller.requests.AddReadingQuranChallengeRequest;
 import com.azkar.payload.challengecontroller.responses.AddReadingQuranChallengeResponse;
 import com.azkar.payload.challengecontroller.responses.DeleteChallengeResponse;
+import com.azkar.repos.GroupChallengeRepo;
 import com.azkar.repos.GroupRepo;
 import com.azkar.repos.UserRepo;
 import com.google.common.collect.ImmutableList;
@@ -39,6 +41,8 @@ public class ReadingQuranChallengeTest extends TestBase {
   GroupRepo groupRepo;
   @Autowired
   UserRepo userRepo;
+  @Autowired
+  GroupChallengeRepo groupChallengeRepo;
 
   private User user1 = UserFactory.getNewUser();
   private Group validGroup = GroupFactory.getNewGroup(user1.getId());
@@ -239,7 +243,8 @@ public class ReadingQuranChallengeTest extends TestBase {
         .getReadingQuranChallenges();
     assertThat(challengesProgress.size(),
         equalTo(TestBase.STARTING_READING_QURAN_CHALLENGES_COUNT));
-    List<String> groupChallenges = groupRepo.findById(validGroup.getId()).get().getChallengesIds();
+    List<GroupChallenge> groupChallenges =
+        groupChallengeRepo.findByGroupId(validGroup.getId());
     assertTrue("GroupChallenges list is expected to be empty but it is not.",
         groupChallenges.isEmpty());
   }
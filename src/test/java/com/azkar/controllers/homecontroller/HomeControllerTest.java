@@ -3,7 +3,10 @@ package com.azkar.controllers.homecontroller;
 import static com.azkar.factories.entities.ChallengeFactory.EXPIRY_DATE_OFFSET;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.nullValue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 import com.azkar.TestBase;
@@ -29,6 +32,7 @@ import java.time.Instant;
 import java.util.List;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.web.servlet.MvcResult;
 
 public class HomeControllerTest extends TestBase {
@@ -134,4 +138,73 @@ public class HomeControllerTest extends TestBase {
             group -> group.getUsersIds().contains(user1.getId()) && group.getUsersIds()
                 .contains(user2.getId()) && group.getUsersIds().contains(user3.getId())));
   }
+
+  @Test
+  public void getHome_challengeAddedAfterHomeFeedIsBuilt_shouldBeReturned() throws Exception {
+    User user1 = getNewRegisteredUser();
+    User user2 = getNewRegisteredUser();
+    azkarApi.makeFriends(user1, user2);
+
+    // Builds the home feeds of the users.
+    assertThat(getHome(user1).getData().getChallenges().size(),
+        is(TestBase.STARTING_CHALLENGES_COUNT));
+    assertThat(getHome(user2).getData().getChallenges().size(),
+        is(TestBase.STARTING_CHALLENGES_COUNT));
+
+    AzkarChallenge challenge = ChallengeFactory.getNewChallenge("groupId").toBuilder()
+        .groupId(null)
+        .build();
+    AddAzkarChallengeRequest addAzkarChallengeRequest =
+        AddAzkarChallengeRequest.AddFriendsChallengeRequestBuilder()
+            .friendsIds(ImmutableList.of(user2.getId()))
+            .challenge(challenge)
+            .build();
+    MvcResult result = azkarApi.addAzkarChallenge(user1, addAzkarChallengeRequest)
+        .andExpect(status().isOk())
+        .andReturn();
+    String challengeId = JsonHandler.fromJson(result.getResponse().getContentAsString(),
+        AddAzkarChallengeResponse.class).getData().getId();
+
+    for (User user : ImmutableList.of(user1, user2)) {
+      GetHomeResponse response = getHome(user);
+      assertThat(response.getData().getChallenges().size(),
+          is(/*new=*/1 + TestBase.STARTING_CHALLENGES_COUNT));
+      assertThat(response.getData().getChallenges().stream().anyMatch(
+          returnedChallenge -> returnedChallenge.getAzkarChallenge() != null
+              && returnedChallenge.getAzkarChallenge().getId().equals(challengeId)), is(true));
+    }
+  }
+
+  @Test
+  public void getHome_unchangedHome_shouldReturnNotModified() throws Exception {
+    User user1 = getNewRegisteredUser();
+    User user2 = getNewRegisteredUser();
+    String apiVersion = FeaturesVersions.READING_QURAN_CHALLENGE_VERSION;
+
+    // Builds the home feed of the user.
+    getHome(user1);
+    String etag = azkarApi.getHome(user1, apiVersion)
+        .andExpect(status().isOk())
+        .andExpect(header().exists(HttpHeaders.ETAG))
+        .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+    azkarApi.getHomeIfNoneMatch(user1, apiVersion, etag)
+        .andExpect(status().isNotModified())
+        .andExpect(content().string(""));
+
+    // The friends of the user are shown in the home so it changes with the friendship.
+    azkarApi.makeFriends(user1, user2);
+    azkarApi.getHomeIfNoneMatch(user1, apiVersion, etag)
+        .andExpect(status().isOk())
+        .andExpect(header().string(HttpHeaders.ETAG, not(etag)));
+  }
+
+  private GetHomeResponse getHome(User user) throws Exception {
+    MvcResult mvcResult =
+        azkarApi.getHome(user, FeaturesVersions.READING_QURAN_CHALLENGE_VERSION)
+            .andExpect(status().isOk())
+            .andReturn();
+    return JsonHandler.fromJson(mvcResult.getResponse().getContentAsString(),
+        GetHomeResponse.class);
+  }
 }
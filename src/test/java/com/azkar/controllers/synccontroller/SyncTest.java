@@ -0,0 +1,81 @@
+package com.azkar.controllers.synccontroller;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.azkar.TestBase;
+import com.azkar.controllers.utils.JsonHandler;
+import com.azkar.entities.User;
+import com.azkar.entities.challenges.AzkarChallenge;
+import com.azkar.factories.entities.ChallengeFactory;
+import com.azkar.payload.challengecontroller.requests.AddAzkarChallengeRequest;
+import com.azkar.payload.challengecontroller.responses.AddAzkarChallengeResponse;
+import com.azkar.payload.synccontroller.SyncResponse;
+import com.azkar.payload.utils.FeaturesVersions;
+import com.google.common.collect.ImmutableList;
+import org.junit.Test;
+import org.springframework.test.web.servlet.MvcResult;
+
+public class SyncTest extends TestBase {
+
+  @Test
+  public void sync_noWatermark_shouldRequireFullSync() throws Exception {
+    User user = getNewRegisteredUser();
+
+    SyncResponse.Body body = sync(user, /*since=*/null);
+
+    assertThat(body.isFullSyncRequired(), is(true));
+    assertThat(body.getWatermark(), notNullValue());
+  }
+
+  @Test
+  public void sync_invalidWatermark_shouldRequireFullSync() throws Exception {
+    User user = getNewRegisteredUser();
+
+    assertThat(sync(user, "invalid").isFullSyncRequired(), is(true));
+  }
+
+  @Test
+  public void sync_challengeAddedAfterWatermark_shouldBeReturned() throws Exception {
+    User user1 = getNewRegisteredUser();
+    User user2 = getNewRegisteredUser();
+    azkarApi.makeFriends(user1, user2);
+    String watermark = sync(user1, /*since=*/null).getWatermark();
+
+    AzkarChallenge challenge = ChallengeFactory.getNewChallenge("groupId").toBuilder()
+        .groupId(null)
+        .build();
+    AddAzkarChallengeRequest addAzkarChallengeRequest =
+        AddAzkarChallengeRequest.AddFriendsChallengeRequestBuilder()
+            .friendsIds(ImmutableList.of(user2.getId()))
+            .challenge(challenge)
+            .build();
+    MvcResult result = azkarApi.addAzkarChallenge(user1, addAzkarChallengeRequest)
+        .andExpect(status().isOk())
+        .andReturn();
+    AzkarChallenge addedChallenge = JsonHandler.fromJson(result.getResponse().getContentAsString(),
+        AddAzkarChallengeResponse.class).getData();
+
+    for (User user : ImmutableList.of(user1, user2)) {
+      SyncResponse.Body body = sync(user, watermark);
+      assertThat(body.isFullSyncRequired(), is(false));
+      assertThat(body.getChallenges().stream().anyMatch(
+          returnedChallenge -> returnedChallenge.getAzkarChallenge() != null
+              && returnedChallenge.getAzkarChallenge().getId().equals(addedChallenge.getId())),
+          is(true));
+      assertThat(body.getGroups().stream().anyMatch(
+          group -> group.getId().equals(addedChallenge.getGroupId())), is(true));
+    }
+  }
+
+  private SyncResponse.Body sync(User user, String since) throws Exception {
+    MvcResult mvcResult =
+        azkarApi.sync(user, FeaturesVersions.READING_QURAN_CHALLENGE_VERSION, since)
+            .andExpect(status().isOk())
+            .andReturn();
+    return JsonHandler.fromJson(mvcResult.getResponse().getContentAsString(), SyncResponse.class)
+        .getData();
+  }
+}
@@ -87,6 +87,10 @@ public class DeleteUserTest extends TestBase {
         .andExpect(status().isBadRequest())
         .andExpect(content().json(JsonHandler.toJson(expectedGetUserResponse)));
 
+    // Other users are cleaned up in the background, so wait until the deleted user is removed from
+    // the last thing that is cleaned up for them.
+    waitUntilRemovedFromGroup(user2, azkarChallenge.getGroupId(), user1);
+
     // try to retrieve friendships
     List<Friend> user2Friends = azkarApi.getFriendsLeaderboardV2AndReturn(user2);
     assertThat(user2Friends.size(), is(1));
@@ -103,4 +107,13 @@ public class DeleteUserTest extends TestBase {
     assertThat("", azkarChallengeGroup.getUsersIds().contains(user2.getId()));
     assertThat("", azkarChallengeGroup.getUsersIds().contains(user3.getId()));
   }
+
+  private void waitUntilRemovedFromGroup(User member, String groupId, User deletedUser)
+      throws Exception {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (azkarApi.getGroupAndReturn(member, groupId).getUsersIds().contains(deletedUser.getId())
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50);
+    }
+  }
 }
@@ -3,6 +3,7 @@ package com.azkar.controllers.usercontroller;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
 import static org.springframework.test.util.AssertionErrors.assertTrue;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
@@ -448,6 +449,40 @@ public class PubliclyAvailableUsersTest extends TestBase {
             .equals(testUserFirstNamePrefix + "0")));
   }
 
+  @Test
+  public void getPubliclyAvailableUsers_afterId_shouldReturnOlderUsers() throws Exception {
+    User femaleUser1 = getNewRegisteredUser();
+    User femaleUser2 = getNewRegisteredUser();
+    User femaleUser3 = getNewRegisteredUser();
+    azkarApi.addToPubliclyAvailableFemales(femaleUser1);
+    azkarApi.addToPubliclyAvailableFemales(femaleUser2);
+    azkarApi.addToPubliclyAvailableFemales(femaleUser3);
+
+    ResultActions resultActions = azkarApi.getPubliclyAvailableUsers(femaleUser1)
+        .andExpect(status().isOk());
+    GetPubliclyAvailableUsersResponse response = getResponse(resultActions,
+        GetPubliclyAvailableUsersResponse.class);
+    assertThat(response.getData().size(), is(2));
+    assertThat(response.getNextAfterId(), is(nullValue()));
+
+    String femaleUser3EntryId =
+        publiclyAvailableFemaleUsersRepo.findByUserId(femaleUser3.getId()).get().getId();
+    GetPubliclyAvailableUsersResponse expectedResponse = new GetPubliclyAvailableUsersResponse();
+    expectedResponse.setData(ImmutableList.of(
+        PubliclyAvailableUser.builder()
+            .userId(femaleUser2.getId())
+            .firstName(femaleUser2.getFirstName())
+            .lastName(femaleUser2.getLastName())
+            .build()));
+    azkarApi.getPubliclyAvailableUsersAfter(femaleUser1, femaleUser3EntryId)
+        .andExpect(status().isOk())
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json(JsonHandler.toJson(expectedResponse)));
+
+    azkarApi.getPubliclyAvailableUsersAfter(femaleUser1, "invalid")
+        .andExpect(status().isBadRequest());
+  }
+
   @Test
   public void getPubliclyAvailableUsers_userIsFriend_shouldNotBeReturned() throws Exception {
     // Testing for males
@@ -2,6 +2,7 @@ package com.azkar.controllers.usercontroller;
 
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -11,11 +12,17 @@ import com.azkar.entities.User;
 import com.azkar.factories.entities.UserFactory;
 import com.azkar.payload.usercontroller.requests.SetNotificationTokenRequestBody;
 import com.azkar.payload.usercontroller.responses.SetNotificationTokenResponse;
+import com.azkar.services.notifications.NotificationTargetsCache;
+import java.util.Collections;
 import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.MediaType;
 
 public class SetNotificationsTokenTest extends TestBase {
 
+  @Autowired
+  NotificationTargetsCache notificationTargetsCache;
+
   @Test
   public void setNotificationsToken_normalScenario_shouldSucceed() throws Exception {
     User user = UserFactory.getNewUser();
@@ -31,4 +38,23 @@ public class SetNotificationsTokenTest extends TestBase {
         .andExpect(content().contentType(MediaType.APPLICATION_JSON))
         .andExpect(content().json(JsonHandler.toJson(response)));
   }
+
+  @Test
+  public void setNotificationsToken_tokenCached_shouldInvalidateCachedToken() throws Exception {
+    User user = UserFactory.getNewUser();
+    addNewUser(user);
+    azkarApi.sendNotificationsToken(user, new SetNotificationTokenRequestBody("old-token"))
+        .andExpect(status().isOk());
+    assertThat(getCachedToken(user), equalTo("old-token"));
+
+    azkarApi.sendNotificationsToken(user, new SetNotificationTokenRequestBody("new-token"))
+        .andExpect(status().isOk());
+
+    assertThat(getCachedToken(user), equalTo("new-token"));
+  }
+
+  private String getCachedToken(User user) {
+    return notificationTargetsCache.getAll(Collections.singletonList(user.getId())).get(0)
+        .getNotificationsToken();
+  }
 }
@@ -66,6 +66,12 @@ public class AzkarApi {
         String.format("/users/publicly_available_users?page_num=%d", pageNum));
   }
 
+  public ResultActions getPubliclyAvailableUsersAfter(User user, String afterId)
+      throws Exception {
+    return httpClient.performGetRequest(user,
+        String.format("/users/publicly_available_users?after_id=%s", afterId));
+  }
+
   public ResultActions addToPubliclyAvailableMales(User user) throws Exception {
     return httpClient.performPutRequest(user, "/users/publicly_available_males");
   }
@@ -366,6 +372,17 @@ public class AzkarApi {
     return httpClient.performGetRequestWithApiVersion(user, "/apiHome", apiVersion);
   }
 
+  public ResultActions getHomeIfNoneMatch(User user, String apiVersion, String etag)
+      throws Exception {
+    return httpClient.performConditionalGetRequestWithApiVersion(user, "/apiHome", apiVersion,
+        etag);
+  }
+
+  public ResultActions sync(User user, String apiVersion, String since) throws Exception {
+    String path = since == null ? "/sync" : "/sync?since=" + since;
+    return httpClient.performGetRequestWithApiVersion(user, path, apiVersion);
+  }
+
   public void makeFriends(User user1, User user2) throws Exception {
     sendFriendRequest(user1, user2);
     acceptFriendRequest(user2, user1);
@@ -43,6 +43,13 @@ public class HttpClient {
     return mockMvc.perform(requestBuilder);
   }
 
+  public ResultActions performGetRequest(User user, String path, HttpHeaders headers)
+      throws Exception {
+    MockHttpServletRequestBuilder requestBuilder = get(path).headers(headers);
+    addAuthenticationToken(requestBuilder, user);
+    return mockMvc.perform(requestBuilder);
+  }
+
   public ResultActions performGetRequestWithApiVersion(User user, String path, String apiVersion)
       throws Exception {
     MockHttpServletRequestBuilder requestBuilder = get(path);
@@ -51,6 +58,15 @@ public class HttpClient {
     return mockMvc.perform(requestBuilder);
   }
 
+  public ResultActions performConditionalGetRequestWithApiVersion(User user, String path,
+      String apiVersion, String etag) throws Exception {
+    MockHttpServletRequestBuilder requestBuilder = get(path);
+    requestBuilder.header(BaseController.API_VERSION_HEADER, apiVersion);
+    requestBuilder.header(HttpHeaders.IF_NONE_MATCH, etag);
+    addAuthenticationToken(requestBuilder, user);
+    return mockMvc.perform(requestBuilder);
+  }
+
   public ResultActions performPostRequest(String path, String body) throws Exception {
     MockHttpServletRequestBuilder requestBuilder = post(path);
     addRequestBody(requestBuilder, body);
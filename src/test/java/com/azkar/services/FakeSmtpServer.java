@@ -0,0 +1,136 @@
+package com.azkar.services;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.mail.MessagingException;
+import javax.mail.Session;
+import javax.mail.internet.MimeMessage;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A local SMTP server that accepts every email without TLS or authentication and keeps it in
+ * memory, so that the tests can check the emails sent by the application.
+ */
+class FakeSmtpServer implements AutoCloseable {
+
+  private final ServerSocket serverSocket;
+  private final List<Socket> clientSockets = new CopyOnWriteArrayList<>();
+  private final BlockingQueue<ReceivedEmail> receivedEmails = new LinkedBlockingQueue<>();
+  private final AtomicInteger connectionsCount = new AtomicInteger();
+
+  FakeSmtpServer(int port) throws IOException {
+    serverSocket = new ServerSocket(port);
+    Thread acceptingThread = new Thread(this::acceptConnections, "fake-smtp-server");
+    acceptingThread.setDaemon(true);
+    acceptingThread.start();
+  }
+
+  /**
+   * Waits for an email to {@code recipient}, returns null if none was received in time. Emails to
+   * other recipients, e.g. the ones sent by other tests, are skipped.
+   */
+  ReceivedEmail awaitEmailTo(String recipient, long timeoutMillis)
+      throws InterruptedException, MessagingException {
+    long deadlineMillis = System.currentTimeMillis() + timeoutMillis;
+    ReceivedEmail email;
+    while ((email = receivedEmails.poll(deadlineMillis - System.currentTimeMillis(),
+        TimeUnit.MILLISECONDS)) != null) {
+      if (email.getMessage().getAllRecipients()[0].toString().equals(recipient)) {
+        return email;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    for (Socket clientSocket : clientSockets) {
+      clientSocket.close();
+    }
+  }
+
+  private void acceptConnections() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket clientSocket = serverSocket.accept();
+        clientSockets.add(clientSocket);
+        int connectionId = connectionsCount.incrementAndGet();
+        Thread connectionThread =
+            new Thread(() -> handleConnection(clientSocket, connectionId));
+        connectionThread.setDaemon(true);
+        connectionThread.start();
+      } catch (IOException e) {
+        // The server was closed.
+      }
+    }
+  }
+
+  private void handleConnection(Socket clientSocket, int connectionId) {
+    try (Socket socket = clientSocket;
+        BufferedReader reader = new BufferedReader(
+            new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        PrintWriter writer = new PrintWriter(socket.getOutputStream(), true)) {
+      reply(writer, "220 localhost ESMTP");
+      String line;
+      while ((line = reader.readLine()) != null) {
+        String command = line.toUpperCase();
+        if (command.startsWith("EHLO") || command.startsWith("HELO")) {
+          reply(writer, "250 localhost");
+        } else if (command.startsWith("DATA")) {
+          reply(writer, "354 End data with <CR><LF>.<CR><LF>");
+          receivedEmails.add(new ReceivedEmail(connectionId, readMessage(reader)));
+          reply(writer, "250 OK");
+        } else if (command.startsWith("QUIT")) {
+          reply(writer, "221 Bye");
+          return;
+        } else {
+          // MAIL, RCPT, RSET and NOOP.
+          reply(writer, "250 OK");
+        }
+      }
+    } catch (IOException | MessagingException e) {
+      // The connection was closed.
+    }
+  }
+
+  private static MimeMessage readMessage(BufferedReader reader)
+      throws IOException, MessagingException {
+    StringBuilder data = new StringBuilder();
+    String line;
+    while ((line = reader.readLine()) != null && !line.equals(".")) {
+      // Lines starting with a dot are escaped with another dot.
+      data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+    }
+    return new MimeMessage(Session.getInstance(new Properties()),
+        new ByteArrayInputStream(data.toString().getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static void reply(PrintWriter writer, String reply) {
+    writer.print(reply + "\r\n");
+    writer.flush();
+  }
+
+  @Getter
+  @AllArgsConstructor
+  static class ReceivedEmail {
+
+    // Identifies the connection that the email was sent over.
+    private final int connectionId;
+    private final MimeMessage message;
+  }
+}
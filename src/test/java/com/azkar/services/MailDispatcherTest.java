@@ -0,0 +1,60 @@
+package com.azkar.services;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+
+import com.azkar.TestBase;
+import com.azkar.services.FakeSmtpServer.ReceivedEmail;
+import com.azkar.services.mail.EmailMessage;
+import com.azkar.services.mail.MailDispatcher;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+
+public class MailDispatcherTest extends TestBase {
+
+  private static final long TIMEOUT_MILLIS = 5000;
+
+  @Autowired
+  MailDispatcher mailDispatcher;
+
+  @Value("${mail-port}")
+  int mailPort;
+
+  @Test
+  public void dispatch_manyEmails_shouldBeSentOverTheSameConnection() throws Exception {
+    try (FakeSmtpServer smtpServer = new FakeSmtpServer(mailPort)) {
+      assertThat(mailDispatcher.dispatch(email("first@example.com", "first")), is(true));
+      ReceivedEmail firstEmail = smtpServer.awaitEmailTo("first@example.com", TIMEOUT_MILLIS);
+      assertThat(mailDispatcher.dispatch(email("second@example.com", "second")), is(true));
+      ReceivedEmail secondEmail = smtpServer.awaitEmailTo("second@example.com", TIMEOUT_MILLIS);
+
+      assertThat(firstEmail, notNullValue());
+      assertThat(firstEmail.getMessage().getSubject(), is("subject-first"));
+      assertThat((String) firstEmail.getMessage().getContent(), containsString("<p>first</p>"));
+      assertThat(secondEmail, notNullValue());
+      assertThat(secondEmail.getConnectionId(), is(firstEmail.getConnectionId()));
+    }
+  }
+
+  @Test
+  public void dispatch_serverUnavailable_shouldRetry() throws Exception {
+    assertThat(mailDispatcher.dispatch(email("retried@example.com", "retried")), is(true));
+    // The first attempt fails since the server is not started yet.
+    Thread.sleep(50);
+
+    try (FakeSmtpServer smtpServer = new FakeSmtpServer(mailPort)) {
+      assertThat(smtpServer.awaitEmailTo("retried@example.com", TIMEOUT_MILLIS), notNullValue());
+    }
+  }
+
+  private static EmailMessage email(String to, String text) {
+    return EmailMessage.builder()
+        .to(to)
+        .subject("subject-" + text)
+        .html("<p>" + text + "</p>")
+        .build();
+  }
+}
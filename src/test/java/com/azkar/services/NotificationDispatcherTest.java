@@ -0,0 +1,121 @@
+package com.azkar.services;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.azkar.TestBase;
+import com.azkar.entities.NotificationOutboxEntry;
+import com.azkar.repos.NotificationOutboxRepo;
+import com.azkar.services.notifications.MulticastResult;
+import com.azkar.services.notifications.NotificationDispatcher;
+import com.azkar.services.notifications.NotificationSender;
+import com.azkar.services.notifications.PushNotification;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+public class NotificationDispatcherTest extends TestBase {
+
+  @Autowired
+  NotificationDispatcher notificationDispatcher;
+
+  @Autowired
+  NotificationOutboxRepo notificationOutboxRepo;
+
+  @Autowired
+  ConfigurableListableBeanFactory beanFactory;
+
+  @MockBean
+  NotificationSender notificationSender;
+
+  @Before
+  public void before() {
+    notificationOutboxRepo.deleteAll();
+    when(notificationSender.sendMulticast(any(), any(), anyList()))
+        .thenReturn(MulticastResult.builder().build());
+  }
+
+  @Test
+  public void drain_sameNotificationToManyUsers_shouldBeSentWithMulticastCalls() {
+    int usersCount = NotificationSender.MAX_TOKENS_PER_SEND + 100;
+    List<PushNotification> notifications = new ArrayList<>();
+    for (int i = 0; i < usersCount; i++) {
+      notifications.add(notification("user" + i, "title", "body"));
+    }
+    // Dispatched twice for the same user, so it should be sent only once.
+    notifications.add(notification("user0", "title", "body"));
+    notifications.add(notification("user0", "other title", "other body"));
+    notificationDispatcher.dispatch(notifications);
+
+    notificationDispatcher.drain();
+
+    verify(notificationSender, times(2)).sendMulticast(eq("title"), eq("body"), anyList());
+    verify(notificationSender).sendMulticast("other title", "other body",
+        Collections.singletonList("token-user0"));
+    assertThat(notificationOutboxRepo.findAll(), is(empty()));
+  }
+
+  @Test
+  public void drain_transientFailure_shouldRetryLater() {
+    when(notificationSender.sendMulticast(any(), any(), anyList()))
+        .thenReturn(MulticastResult.builder().failedToken("token-user0").build());
+    notificationDispatcher.dispatch(Collections.singletonList(
+        notification("user0", "title", "body")));
+
+    notificationDispatcher.drain();
+    // The notification is not due again yet.
+    notificationDispatcher.drain();
+
+    verify(notificationSender).sendMulticast("title", "body",
+        Collections.singletonList("token-user0"));
+    List<NotificationOutboxEntry> entries = notificationOutboxRepo.findAll();
+    assertThat(entries, hasSize(1));
+    assertThat(entries.get(0).getAttempts(), is(1));
+    assertThat(entries.get(0).getNextAttemptAt(), greaterThan(new Date()));
+  }
+
+  @Test
+  public void drain_entriesLeftInOutbox_shouldBeSentWithoutAnyDispatch() {
+    // The dispatcher must be created at startup, otherwise it doesn't poll before something
+    // injects it.
+    assertThat(beanFactory.getBeanDefinition("notificationDispatcher").isLazyInit(), is(false));
+    // Written directly to the outbox like the entries left by a stopped instance.
+    Date now = new Date();
+    notificationOutboxRepo.insert(NotificationOutboxEntry.builder()
+        .userId("user0")
+        .token("token-user0")
+        .title("title")
+        .body("body")
+        .nextAttemptAt(now)
+        .createdAt(now)
+        .build());
+
+    verify(notificationSender, timeout(10_000)).sendMulticast("title", "body",
+        Collections.singletonList("token-user0"));
+  }
+
+  private static PushNotification notification(String userId, String title, String body) {
+    return PushNotification.builder()
+        .userId(userId)
+        .token("token-" + userId)
+        .title(title)
+        .body(body)
+        .build();
+  }
+}